@@ -0,0 +1,70 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.model.ActivationStatusBlobInfo;
+import io.getlime.security.powerauth.crypto.server.activation.PowerAuthServerActivation;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of activation status blob encryption, see {@link PowerAuthServerActivation#encryptedStatusBlob}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ActivationStatusBenchmark {
+
+    private final PowerAuthServerActivation serverActivation = new PowerAuthServerActivation();
+
+    private ActivationStatusBlobInfo statusBlobInfo;
+    private byte[] challenge;
+    private byte[] nonce;
+    private SecretKey transportKey;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        statusBlobInfo = new ActivationStatusBlobInfo();
+        statusBlobInfo.setActivationStatus((byte) 3);
+        statusBlobInfo.setCurrentVersion((byte) 3);
+        statusBlobInfo.setUpgradeVersion((byte) 3);
+        statusBlobInfo.setFailedAttempts((byte) 0);
+        statusBlobInfo.setMaxFailedAttempts((byte) 5);
+        statusBlobInfo.setCtrLookAhead((byte) 20);
+        statusBlobInfo.setCtrByte((byte) 0);
+        statusBlobInfo.setCtrDataHash(keyGenerator.generateRandomBytes(16));
+        challenge = keyGenerator.generateRandomBytes(16);
+        nonce = keyGenerator.generateRandomBytes(16);
+        transportKey = keyGenerator.generateRandomSecretKey();
+    }
+
+    @Benchmark
+    public byte[] encryptedStatusBlob() throws Exception {
+        return serverActivation.encryptedStatusBlob(statusBlobInfo, challenge, nonce, transportKey);
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
+import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Benchmark of concurrent PowerAuth signature validation, each operation validates a signature in 10 000 concurrent
+ * tasks. Each task resolves the crypto provider utilities using {@link CryptoProviderUtilFactory#getCryptoProviderUtils()},
+ * the same way as the server code paths do, and validates the signature using {@link SignatureUtils}.
+ * <p>
+ * The {@code VIRTUAL} executor runs each task in a new virtual thread, it requires Java 21 or later and the benchmark
+ * fails for this executor on older Java versions. Virtual threads pinned to their carrier thread by a monitor are
+ * reported on the standard output by {@code -Djdk.tracePinnedThreads}. The {@code PLATFORM} executor runs the tasks
+ * in a fixed pool of platform threads, as in a typical servlet container.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+@State(Scope.Benchmark)
+public class ConcurrentSignatureValidationBenchmark {
+
+    private static final int TASK_COUNT = 10_000;
+    private static final int PLATFORM_THREAD_COUNT = 200;
+
+    /**
+     * Kind of threads running the tasks.
+     */
+    @Param({"PLATFORM", "VIRTUAL"})
+    private String executor;
+
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+
+    private byte[] data;
+    private List<SecretKey> signatureKeys;
+    private byte[] ctrData;
+    private String signature;
+    private ExecutorService platformExecutor;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        data = keyGenerator.generateRandomBytes(256);
+        ctrData = keyGenerator.generateRandomBytes(16);
+        signatureKeys = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            signatureKeys.add(keyGenerator.generateRandomSecretKey());
+        }
+        signature = signatureUtils.computePowerAuthSignature(data, signatureKeys, ctrData, PowerAuthSignatureFormat.BASE64);
+        if ("VIRTUAL".equals(executor)) {
+            // Fail early in case virtual threads are not supported
+            shutdown(newVirtualThreadPerTaskExecutor());
+        } else {
+            platformExecutor = Executors.newFixedThreadPool(PLATFORM_THREAD_COUNT);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (platformExecutor != null) {
+            shutdown(platformExecutor);
+        }
+    }
+
+    @Benchmark
+    public int validatePowerAuthSignatureConcurrently() throws Exception {
+        final ExecutorService executorService = platformExecutor != null ? platformExecutor : newVirtualThreadPerTaskExecutor();
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>(TASK_COUNT);
+            for (int i = 0; i < TASK_COUNT; i++) {
+                results.add(executorService.submit(() -> {
+                    CryptoProviderUtilFactory.getCryptoProviderUtils();
+                    return signatureUtils.validatePowerAuthSignature(data, signature, signatureKeys, ctrData, PowerAuthSignatureFormat.BASE64);
+                }));
+            }
+            int validCount = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    validCount++;
+                }
+            }
+            if (validCount != TASK_COUNT) {
+                throw new IllegalStateException("Signature validation failed in " + (TASK_COUNT - validCount) + " tasks");
+            }
+            return validCount;
+        } finally {
+            if (executorService != platformExecutor) {
+                shutdown(executorService);
+            }
+        }
+    }
+
+    /**
+     * Create executor which runs each task in a new virtual thread. The executor is created using reflection,
+     * so that the benchmarks can be compiled for older Java versions.
+     *
+     * @return Executor service.
+     * @throws Exception In case virtual threads are not supported.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() throws Exception {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException ex) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later", ex);
+        }
+    }
+
+    /**
+     * Shut down the executor and wait for termination of its tasks.
+     *
+     * @param executorService Executor service.
+     * @throws InterruptedException In case waiting is interrupted.
+     */
+    private static void shutdown(ExecutorService executorService) throws InterruptedException {
+        executorService.shutdown();
+        if (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Executor did not terminate");
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesDecryptor;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEncryptor;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEnvelopeKeyCache;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesFactory;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.kdf.KdfX9_63;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesCryptogram;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesSharedInfo1;
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.util.AESEncryptionUtils;
+import io.getlime.security.powerauth.crypto.lib.util.HMACHashUtilities;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
+import io.getlime.security.powerauth.provider.CryptoPrimitiveFamily;
+import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of AES, HMAC and digest based operations with different crypto backends, see {@link CryptoProviderUtilFactory}.
+ * EC primitives always use Bouncy Castle backend. The {@code FASTEST} backend is selected on the current machine
+ * by {@link CryptoProviderUtilFactory#selectFastestBackends()}. The {@code decryptRequestCached} benchmark shows
+ * the symmetric part of ECIES, the envelope key is served from {@link EciesEnvelopeKeyCache}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoBackendBenchmark {
+
+    /**
+     * Backend for AES, HMAC and digest primitives.
+     */
+    @Param({"BC", "JDK", "FASTEST"})
+    private String backend;
+
+    /**
+     * Size of the processed data in bytes.
+     */
+    @Param({"1024"})
+    private int dataSize;
+
+    private final HMACHashUtilities hmac = new HMACHashUtilities();
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+    private final AESEncryptionUtils aes = new AESEncryptionUtils();
+    private final EciesFactory eciesFactory = new EciesFactory(new EciesEnvelopeKeyCache(1000, 5, TimeUnit.MINUTES));
+
+    private byte[] data;
+    private byte[] key;
+    private byte[] ctrData;
+    private List<SecretKey> signatureKeys;
+    private SecretKey aesKey;
+    private byte[] iv;
+    private ECPrivateKey privateKey;
+    private byte[] applicationSecret;
+    private EciesCryptogram requestCryptogram;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final Map<CryptoPrimitiveFamily, String> backendNames;
+        if ("FASTEST".equals(backend)) {
+            backendNames = CryptoProviderUtilFactory.selectFastestBackends();
+        } else {
+            backendNames = new EnumMap<>(CryptoPrimitiveFamily.class);
+            backendNames.put(CryptoPrimitiveFamily.EC, "BC");
+            backendNames.put(CryptoPrimitiveFamily.AES, backend);
+            backendNames.put(CryptoPrimitiveFamily.HMAC, backend);
+            backendNames.put(CryptoPrimitiveFamily.DIGEST, backend);
+        }
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils(backendNames));
+
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        data = keyGenerator.generateRandomBytes(dataSize);
+        key = keyGenerator.generateRandomBytes(16);
+        ctrData = keyGenerator.generateRandomBytes(16);
+        signatureKeys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            signatureKeys.add(keyGenerator.generateRandomSecretKey());
+        }
+        aesKey = keyGenerator.generateRandomSecretKey();
+        iv = keyGenerator.generateRandomBytes(16);
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        privateKey = (ECPrivateKey) keyPair.getPrivate();
+        applicationSecret = keyGenerator.generateRandomBytes(16);
+        final EciesEncryptor encryptor = eciesFactory.getEciesEncryptorForApplication((ECPublicKey) keyPair.getPublic(), applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        requestCryptogram = encryptor.encryptRequest(data, true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkSupport.initializeCryptoProvider();
+    }
+
+    @Benchmark
+    public byte[] hmac() throws Exception {
+        return hmac.hash(key, data);
+    }
+
+    @Benchmark
+    public byte[] kdfX963() throws Exception {
+        return KdfX9_63.derive(key, data, 48);
+    }
+
+    @Benchmark
+    public byte[] aesEncrypt() throws Exception {
+        return aes.encrypt(data, iv, aesKey);
+    }
+
+    @Benchmark
+    public byte[] decryptRequestCached() throws Exception {
+        final EciesDecryptor decryptor = eciesFactory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        return decryptor.decryptRequest(requestCryptogram);
+    }
+
+    @Benchmark
+    public String computePowerAuthSignature() throws Exception {
+        return signatureUtils.computePowerAuthSignature(data, signatureKeys, ctrData, PowerAuthSignatureFormat.BASE64);
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.util.AESEncryptionUtils;
+import io.getlime.security.powerauth.crypto.lib.util.CryptoEngineCache;
+import io.getlime.security.powerauth.crypto.lib.util.HMACHashUtilities;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of primitive operations with and without the JCE engine cache, see {@link CryptoEngineCache}.
+ * The difference between the two variants is the cost of the provider lookup.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoEngineCacheBenchmark {
+
+    /**
+     * Whether the JCE engine cache is enabled.
+     */
+    @Param({"true", "false"})
+    private boolean engineCacheEnabled;
+
+    private final HMACHashUtilities hmac = new HMACHashUtilities();
+    private final AESEncryptionUtils aes = new AESEncryptionUtils();
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+
+    private byte[] key;
+    private SecretKey secretKey;
+    private byte[] iv;
+    private byte[] data;
+    private byte[] ecdsaSignature;
+    private PublicKey publicKey;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        PowerAuthConfiguration.INSTANCE.setCryptoEngineCacheEnabled(engineCacheEnabled);
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        key = keyGenerator.generateRandomBytes(16);
+        secretKey = keyGenerator.generateRandomSecretKey();
+        iv = keyGenerator.generateRandomBytes(16);
+        data = keyGenerator.generateRandomBytes(64);
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        publicKey = keyPair.getPublic();
+        ecdsaSignature = signatureUtils.computeECDSASignature(data, keyPair.getPrivate());
+    }
+
+    @TearDown
+    public void tearDown() {
+        PowerAuthConfiguration.INSTANCE.setCryptoEngineCacheEnabled(true);
+    }
+
+    @Benchmark
+    public byte[] hmacSha256() throws Exception {
+        return hmac.hash(key, data);
+    }
+
+    @Benchmark
+    public byte[] aesEncrypt() throws Exception {
+        return aes.encrypt(data, iv, secretKey);
+    }
+
+    @Benchmark
+    public boolean ecdsaVerify() throws Exception {
+        return signatureUtils.validateECDSASignature(data, ecdsaSignature, publicKey);
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.model.ECDSASignedData;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of batch ECDSA signature validation, see {@link SignatureUtils#validateECDSASignatures(List)}. The batch
+ * validation is compared with validation of individual signatures in a loop.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ECDSABatchBenchmark {
+
+    /**
+     * Number of signatures in the batch.
+     */
+    @Param({"1000"})
+    private int batchSize;
+
+    /**
+     * Number of distinct public keys in the batch.
+     */
+    @Param({"1", "100"})
+    private int keyCount;
+
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+
+    private List<ECDSASignedData> signedDataList;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        final List<KeyPair> keyPairs = new ArrayList<>();
+        for (int i = 0; i < keyCount; i++) {
+            keyPairs.add(keyGenerator.generateKeyPair());
+        }
+        signedDataList = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            final KeyPair keyPair = keyPairs.get(i % keyCount);
+            final byte[] data = keyGenerator.generateRandomBytes(64);
+            signedDataList.add(new ECDSASignedData(data, signatureUtils.computeECDSASignature(data, keyPair.getPrivate()), keyPair.getPublic()));
+        }
+    }
+
+    @Benchmark
+    public BitSet validateInLoop() throws Exception {
+        final BitSet results = new BitSet(signedDataList.size());
+        for (int i = 0; i < signedDataList.size(); i++) {
+            final ECDSASignedData signedData = signedDataList.get(i);
+            if (signatureUtils.validateECDSASignature(signedData.getData(), signedData.getSignature(), signedData.getPublicKey())) {
+                results.set(i);
+            }
+        }
+        return results;
+    }
+
+    @Benchmark
+    public BitSet validateBatch() throws Exception {
+        return signatureUtils.validateECDSASignatures(signedDataList);
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesDecryptor;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEncryptor;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEnvelopeKeyCache;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesFactory;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesServerContext;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesCryptogram;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesSharedInfo1;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of server side ECIES operations, see {@link EciesDecryptor}. The request decryption includes
+ * the ECDH key agreement and the envelope key derivation, the response encryption reuses the envelope key
+ * established by the preceding request decryption. The {@code decryptRequestCached} benchmark shows a repeated
+ * request with the same ephemeral key, served from {@link EciesEnvelopeKeyCache}. The activation scope benchmarks
+ * compare decryptors created by the factory for each request with decryptors created by a shared
+ * {@link EciesServerContext}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EciesBenchmark {
+
+    /**
+     * Size of the request and response body in bytes.
+     */
+    @Param({"1024", "65536"})
+    private int payloadSize;
+
+    private final EciesFactory eciesFactory = new EciesFactory();
+    private final EciesFactory cachedEciesFactory = new EciesFactory(new EciesEnvelopeKeyCache(1000, 5, TimeUnit.MINUTES));
+
+    private ECPrivateKey privateKey;
+    private byte[] applicationSecret;
+    private byte[] responseData;
+    private EciesCryptogram requestCryptogram;
+    private byte[] transportKey;
+    private EciesCryptogram activationRequestCryptogram;
+    private EciesServerContext activationContext;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        privateKey = (ECPrivateKey) keyPair.getPrivate();
+        applicationSecret = keyGenerator.generateRandomBytes(16);
+        responseData = keyGenerator.generateRandomBytes(payloadSize);
+        final EciesEncryptor encryptor = eciesFactory.getEciesEncryptorForApplication((ECPublicKey) keyPair.getPublic(), applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        requestCryptogram = encryptor.encryptRequest(keyGenerator.generateRandomBytes(payloadSize), true);
+        transportKey = keyGenerator.generateRandomBytes(16);
+        final EciesEncryptor activationEncryptor = eciesFactory.getEciesEncryptorForActivation((ECPublicKey) keyPair.getPublic(), applicationSecret, transportKey, EciesSharedInfo1.ACTIVATION_SCOPE_GENERIC);
+        activationRequestCryptogram = activationEncryptor.encryptRequest(keyGenerator.generateRandomBytes(payloadSize), true);
+        activationContext = cachedEciesFactory.getEciesServerContextForActivation(privateKey, applicationSecret, transportKey);
+    }
+
+    /**
+     * State holding a decryptor which already processed the request, so that only the response
+     * encryption is measured. The decryptor is single-use, therefore it is prepared for each invocation.
+     */
+    @State(Scope.Thread)
+    public static class ResponseState {
+
+        private EciesDecryptor decryptor;
+
+        @Setup(Level.Invocation)
+        public void setUp(EciesBenchmark benchmark) throws Exception {
+            decryptor = benchmark.eciesFactory.getEciesDecryptorForApplication(benchmark.privateKey, benchmark.applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+            decryptor.decryptRequest(benchmark.requestCryptogram);
+        }
+    }
+
+    @Benchmark
+    public byte[] decryptRequest() throws Exception {
+        final EciesDecryptor decryptor = eciesFactory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        return decryptor.decryptRequest(requestCryptogram);
+    }
+
+    @Benchmark
+    public byte[] decryptRequestCached() throws Exception {
+        final EciesDecryptor decryptor = cachedEciesFactory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        return decryptor.decryptRequest(requestCryptogram);
+    }
+
+    @Benchmark
+    public byte[] decryptActivationRequestCached() throws Exception {
+        final EciesDecryptor decryptor = cachedEciesFactory.getEciesDecryptorForActivation(privateKey, applicationSecret, transportKey, EciesSharedInfo1.ACTIVATION_SCOPE_GENERIC);
+        return decryptor.decryptRequest(activationRequestCryptogram);
+    }
+
+    @Benchmark
+    public byte[] decryptActivationRequestContext() throws Exception {
+        final EciesDecryptor decryptor = activationContext.createDecryptor(EciesSharedInfo1.ACTIVATION_SCOPE_GENERIC);
+        return decryptor.decryptRequest(activationRequestCryptogram);
+    }
+
+    @Benchmark
+    public EciesCryptogram encryptResponse(ResponseState state) throws Exception {
+        return state.decryptor.encryptResponse(responseData);
+    }
+
+}
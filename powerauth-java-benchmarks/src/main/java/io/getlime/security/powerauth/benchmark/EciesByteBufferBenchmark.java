@@ -0,0 +1,158 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesDecryptor;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEncryptor;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEnvelopeKeyCache;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesFactory;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesCryptogram;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesSharedInfo1;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of ECIES request decryption and response encryption with data in byte buffers. The byte array variants
+ * copy the data between a direct network buffer and byte arrays, the buffer variants process heap or direct buffers
+ * without copying. The envelope keys are served from {@link EciesEnvelopeKeyCache}, so that mostly the symmetric
+ * part of ECIES is measured.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EciesByteBufferBenchmark {
+
+    /**
+     * Size of the request and response body in bytes.
+     */
+    @Param({"1024", "65536", "1048576"})
+    private int payloadSize;
+
+    private final EciesFactory eciesFactory = new EciesFactory(new EciesEnvelopeKeyCache(1000, 5, TimeUnit.MINUTES));
+
+    private ECPrivateKey privateKey;
+    private byte[] applicationSecret;
+    private EciesCryptogram requestHeader;
+    private ByteBuffer heapRequest;
+    private ByteBuffer directRequest;
+    private ByteBuffer heapResponse;
+    private ByteBuffer directResponse;
+    private ByteBuffer heapOutput;
+    private ByteBuffer directOutput;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        privateKey = (ECPrivateKey) keyPair.getPrivate();
+        applicationSecret = keyGenerator.generateRandomBytes(16);
+        final EciesEncryptor encryptor = eciesFactory.getEciesEncryptorForApplication((ECPublicKey) keyPair.getPublic(), applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        final EciesCryptogram requestCryptogram = encryptor.encryptRequest(keyGenerator.generateRandomBytes(payloadSize), true);
+        requestHeader = new EciesCryptogram(requestCryptogram.getEphemeralPublicKey(), requestCryptogram.getMac(), null, requestCryptogram.getNonce());
+        heapRequest = ByteBuffer.wrap(requestCryptogram.getEncryptedData());
+        directRequest = ByteBuffer.allocateDirect(requestCryptogram.getEncryptedData().length).put(requestCryptogram.getEncryptedData());
+        directRequest.flip();
+        final byte[] responseData = keyGenerator.generateRandomBytes(payloadSize);
+        heapResponse = ByteBuffer.wrap(responseData);
+        directResponse = ByteBuffer.allocateDirect(payloadSize).put(responseData);
+        directResponse.flip();
+        heapOutput = ByteBuffer.allocate(payloadSize + 16);
+        directOutput = ByteBuffer.allocateDirect(payloadSize + 16);
+    }
+
+    /**
+     * State holding a decryptor which already processed the request, so that only the response
+     * encryption is measured. The decryptor is single-use, therefore it is prepared for each invocation.
+     */
+    @State(Scope.Thread)
+    public static class ResponseState {
+
+        private EciesDecryptor decryptor;
+
+        @Setup(Level.Invocation)
+        public void setUp(EciesByteBufferBenchmark benchmark) throws Exception {
+            decryptor = benchmark.getDecryptor();
+            decryptor.decryptRequest(benchmark.requestHeader, benchmark.directRequest.duplicate(), benchmark.directOutput.duplicate(), true);
+        }
+    }
+
+    private EciesDecryptor getDecryptor() throws Exception {
+        return eciesFactory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+    }
+
+    @Benchmark
+    public ByteBuffer decryptRequestByteArray() throws Exception {
+        // Copy the request from the network buffer and the result back
+        final ByteBuffer input = directRequest.duplicate();
+        final byte[] encryptedData = new byte[input.remaining()];
+        input.get(encryptedData);
+        final EciesCryptogram cryptogram = new EciesCryptogram(requestHeader.getEphemeralPublicKey(), requestHeader.getMac(), encryptedData, requestHeader.getNonce());
+        final byte[] data = getDecryptor().decryptRequest(cryptogram, true);
+        final ByteBuffer output = directOutput.duplicate();
+        output.put(data);
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer decryptRequestHeapBuffer() throws Exception {
+        final ByteBuffer output = heapOutput.duplicate();
+        getDecryptor().decryptRequest(requestHeader, heapRequest.duplicate(), output, true);
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer decryptRequestDirectBuffer() throws Exception {
+        final ByteBuffer output = directOutput.duplicate();
+        getDecryptor().decryptRequest(requestHeader, directRequest.duplicate(), output, true);
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer encryptResponseByteArray(ResponseState state) throws Exception {
+        // Copy the response from the network buffer and the result back
+        final ByteBuffer input = directResponse.duplicate();
+        final byte[] data = new byte[input.remaining()];
+        input.get(data);
+        final EciesCryptogram cryptogram = state.decryptor.encryptResponse(data);
+        final ByteBuffer output = directOutput.duplicate();
+        output.put(cryptogram.getEncryptedData());
+        return output;
+    }
+
+    @Benchmark
+    public EciesCryptogram encryptResponseHeapBuffer(ResponseState state) throws Exception {
+        return state.decryptor.encryptResponse(heapResponse.duplicate(), heapOutput.duplicate());
+    }
+
+    @Benchmark
+    public EciesCryptogram encryptResponseDirectBuffer(ResponseState state) throws Exception {
+        return state.decryptor.encryptResponse(directResponse.duplicate(), directOutput.duplicate());
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesDecryptor;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEncryptor;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEnvelopeKeyCache;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesFactory;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesCryptogram;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesSharedInfo1;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.security.KeyPair;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of ECIES encryption and decryption of large payloads using byte arrays and streams. The envelope keys
+ * are served from {@link EciesEnvelopeKeyCache}, so that mostly the symmetric part of ECIES is measured. Run with
+ * {@code -prof gc} to compare the allocation rate of both variants.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EciesStreamingBenchmark {
+
+    /**
+     * Size of the request and response body in bytes.
+     */
+    @Param({"65536", "4194304"})
+    private int payloadSize;
+
+    private final EciesFactory eciesFactory = new EciesFactory(new EciesEnvelopeKeyCache(1000, 5, TimeUnit.MINUTES));
+
+    private ECPrivateKey privateKey;
+    private byte[] applicationSecret;
+    private byte[] responseData;
+    private EciesCryptogram requestCryptogram;
+    private EciesCryptogram requestHeader;
+    private ByteSource requestSource;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        privateKey = (ECPrivateKey) keyPair.getPrivate();
+        applicationSecret = keyGenerator.generateRandomBytes(16);
+        responseData = keyGenerator.generateRandomBytes(payloadSize);
+        final EciesEncryptor encryptor = eciesFactory.getEciesEncryptorForApplication((ECPublicKey) keyPair.getPublic(), applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        requestCryptogram = encryptor.encryptRequest(keyGenerator.generateRandomBytes(payloadSize), true);
+        requestHeader = new EciesCryptogram(requestCryptogram.getEphemeralPublicKey(), requestCryptogram.getMac(), null, requestCryptogram.getNonce());
+        requestSource = ByteSource.wrap(requestCryptogram.getEncryptedData());
+    }
+
+    /**
+     * State holding a decryptor which already processed the request, so that only the response
+     * encryption is measured. The decryptor is single-use, therefore it is prepared for each invocation.
+     */
+    @State(Scope.Thread)
+    public static class ResponseState {
+
+        private EciesDecryptor decryptor;
+
+        @Setup(Level.Invocation)
+        public void setUp(EciesStreamingBenchmark benchmark) throws Exception {
+            decryptor = benchmark.getDecryptor();
+            // Streaming decryption keeps the allocations of the setup out of the measured results
+            decryptor.decryptRequest(benchmark.requestHeader, benchmark.requestSource, ByteStreams.nullOutputStream(), true);
+        }
+    }
+
+    private EciesDecryptor getDecryptor() throws Exception {
+        return eciesFactory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+    }
+
+    @Benchmark
+    public byte[] decryptRequest() throws Exception {
+        return getDecryptor().decryptRequest(requestCryptogram);
+    }
+
+    @Benchmark
+    public void decryptRequestStreaming() throws Exception {
+        getDecryptor().decryptRequest(requestHeader, requestSource, ByteStreams.nullOutputStream(), true);
+    }
+
+    @Benchmark
+    public EciesCryptogram encryptResponse(ResponseState state) throws Exception {
+        return state.decryptor.encryptResponse(responseData);
+    }
+
+    @Benchmark
+    public EciesCryptogram encryptResponseStreaming(ResponseState state) throws Exception {
+        return state.decryptor.encryptResponse(new ByteArrayInputStream(responseData), ByteStreams.nullOutputStream());
+    }
+
+}
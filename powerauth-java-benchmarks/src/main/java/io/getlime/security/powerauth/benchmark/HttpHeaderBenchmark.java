@@ -0,0 +1,147 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.http.PowerAuthSignatureHttpHeader;
+import io.getlime.security.powerauth.http.PowerAuthTokenHttpHeader;
+import io.getlime.security.powerauth.http.validator.InvalidPowerAuthHttpHeaderException;
+import io.getlime.security.powerauth.http.validator.PowerAuthSignatureHttpHeaderValidator;
+import io.getlime.security.powerauth.http.validator.PowerAuthTokenHttpHeaderValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark of PowerAuth HTTP header parsing and validation, compares the header parser with the original
+ * regular expression based implementation and the fused parse and validate method with parsing followed
+ * by validation.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpHeaderBenchmark {
+
+    private String signatureHeader;
+    private String tokenHeader;
+    private String invalidSignatureHeader;
+    private PowerAuthSignatureHttpHeader parsedSignatureHeader;
+    private PowerAuthTokenHttpHeader parsedTokenHeader;
+
+    @Setup
+    public void setUp() {
+        signatureHeader = new PowerAuthSignatureHttpHeader("d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a", "aGVsbG8gd29ybGQgYXBwIQ==",
+                "12345678-12345678-12345678", "possession_knowledge", "bm9uY2Ugbm9uY2Ugbm9uYw==", "3.1").buildHttpHeader();
+        tokenHeader = new PowerAuthTokenHttpHeader("d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a", "ZGlnZXN0IGRpZ2VzdCBkaWdlc3QgZGlnZXN0IGRpZ2U=",
+                "bm9uY2Ugbm9uY2Ugbm9uYw==", "1583332460123", "3.1").buildHttpHeader();
+        // Header with valid activation ID and malformed nonce
+        parsedSignatureHeader = new PowerAuthSignatureHttpHeader().fromValue(signatureHeader);
+        parsedTokenHeader = new PowerAuthTokenHttpHeader().fromValue(tokenHeader);
+        invalidSignatureHeader = signatureHeader.replace("bm9uY2Ugbm9uY2Ugbm9uYw==", "bm9uY2Ugbm9uY2Ugbm9uYw==bm9uY2Ugbm9uY2Ugbm9uYw==");
+    }
+
+    @Benchmark
+    public PowerAuthSignatureHttpHeader parseSignatureHeader() {
+        return new PowerAuthSignatureHttpHeader().fromValue(signatureHeader);
+    }
+
+    @Benchmark
+    public Map<String, String> parseSignatureHeaderRegex() {
+        return parseWithRegex(signatureHeader);
+    }
+
+    @Benchmark
+    public PowerAuthTokenHttpHeader parseTokenHeader() {
+        return new PowerAuthTokenHttpHeader().fromValue(tokenHeader);
+    }
+
+    @Benchmark
+    public Map<String, String> parseTokenHeaderRegex() {
+        return parseWithRegex(tokenHeader);
+    }
+
+    @Benchmark
+    public PowerAuthSignatureHttpHeader validateSignatureHeader() throws InvalidPowerAuthHttpHeaderException {
+        PowerAuthSignatureHttpHeaderValidator.validate(parsedSignatureHeader);
+        return parsedSignatureHeader;
+    }
+
+    @Benchmark
+    public PowerAuthTokenHttpHeader validateTokenHeader() throws InvalidPowerAuthHttpHeaderException {
+        PowerAuthTokenHttpHeaderValidator.validate(parsedTokenHeader);
+        return parsedTokenHeader;
+    }
+
+    @Benchmark
+    public PowerAuthSignatureHttpHeader parseThenValidateSignatureHeader() throws InvalidPowerAuthHttpHeaderException {
+        final PowerAuthSignatureHttpHeader header = new PowerAuthSignatureHttpHeader().fromValue(signatureHeader);
+        PowerAuthSignatureHttpHeaderValidator.validate(header);
+        return header;
+    }
+
+    @Benchmark
+    public PowerAuthSignatureHttpHeader parseAndValidateSignatureHeader() throws InvalidPowerAuthHttpHeaderException {
+        return PowerAuthSignatureHttpHeaderValidator.parseAndValidate(signatureHeader);
+    }
+
+    @Benchmark
+    public String parseThenValidateInvalidSignatureHeader() {
+        try {
+            PowerAuthSignatureHttpHeaderValidator.validate(new PowerAuthSignatureHttpHeader().fromValue(invalidSignatureHeader));
+            return null;
+        } catch (InvalidPowerAuthHttpHeaderException ex) {
+            return ex.getMessage();
+        }
+    }
+
+    @Benchmark
+    public String parseAndValidateInvalidSignatureHeader() {
+        try {
+            PowerAuthSignatureHttpHeaderValidator.parseAndValidate(invalidSignatureHeader);
+            return null;
+        } catch (InvalidPowerAuthHttpHeaderException ex) {
+            return ex.getMessage();
+        }
+    }
+
+    /**
+     * Original regular expression based header parser, used as a baseline.
+     */
+    private static Map<String, String> parseWithRegex(String header) {
+        header = header.trim();
+        if (!header.startsWith("PowerAuth ")) {
+            return new HashMap<>();
+        }
+        header = header.substring("PowerAuth ".length()).trim();
+        final Map<String, String> result = new HashMap<>();
+        final Pattern p = Pattern.compile("(\\w+)=\"*((?<=\")[^\"]+(?=\")|([^\\s]+)),*\"*");
+        final Matcher m = p.matcher(header);
+        while (m.find()) {
+            result.put(m.group(1), m.group(2));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.provider.CryptoProviderUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of EC key conversions, see {@link CryptoProviderUtil}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyConversionBenchmark {
+
+    private CryptoProviderUtil keyConvertor;
+
+    private PublicKey publicKey;
+    private byte[] publicKeyBytes;
+    private byte[] privateKeyBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+        final KeyPair keyPair = new KeyGenerator().generateKeyPair();
+        publicKey = keyPair.getPublic();
+        publicKeyBytes = keyConvertor.convertPublicKeyToBytes(publicKey);
+        privateKeyBytes = keyConvertor.convertPrivateKeyToBytes(keyPair.getPrivate());
+    }
+
+    @Benchmark
+    public PublicKey convertBytesToPublicKey() throws Exception {
+        return keyConvertor.convertBytesToPublicKey(publicKeyBytes);
+    }
+
+    @Benchmark
+    public byte[] convertPublicKeyToBytes() throws Exception {
+        return keyConvertor.convertPublicKeyToBytes(publicKey);
+    }
+
+    @Benchmark
+    public PrivateKey convertBytesToPrivateKey() throws Exception {
+        return keyConvertor.convertBytesToPrivateKey(privateKeyBytes);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.kdf.KdfX9_63;
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureTypes;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.server.keyfactory.PowerAuthServerDerivedKeyCache;
+import io.getlime.security.powerauth.crypto.server.keyfactory.PowerAuthServerKeyFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of key agreement and key derivation primitives, see {@link KdfX9_63}, {@link KeyGenerator}
+ * and {@link PowerAuthServerKeyFactory}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyDerivationBenchmark {
+
+    /**
+     * Number of bytes produced by the KDF, 48 bytes is the size of ECIES envelope key.
+     */
+    @Param({"48"})
+    private int outputBytes;
+
+    private final KeyGenerator keyGenerator = new KeyGenerator();
+    private final PowerAuthServerKeyFactory serverKeyFactory = new PowerAuthServerKeyFactory();
+    private final PowerAuthServerKeyFactory cachedServerKeyFactory = new PowerAuthServerKeyFactory(new PowerAuthServerDerivedKeyCache(1000, 5, TimeUnit.MINUTES));
+
+    private byte[] secret;
+    private byte[] sharedInfo;
+    private byte[] output;
+    private PrivateKey privateKey;
+    private PublicKey publicKey;
+    private SecretKey masterSecretKey;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        secret = keyGenerator.generateRandomBytes(32);
+        sharedInfo = keyGenerator.generateRandomBytes(88);
+        output = new byte[outputBytes];
+        final KeyPair keyPair1 = keyGenerator.generateKeyPair();
+        final KeyPair keyPair2 = keyGenerator.generateKeyPair();
+        privateKey = keyPair1.getPrivate();
+        publicKey = keyPair2.getPublic();
+        masterSecretKey = keyGenerator.generateRandomSecretKey();
+    }
+
+    @Benchmark
+    public byte[] kdfX963Derive() throws Exception {
+        return KdfX9_63.derive(secret, sharedInfo, outputBytes);
+    }
+
+    @Benchmark
+    public byte[] kdfX963DeriveIntoArray() throws Exception {
+        KdfX9_63.derive(secret, sharedInfo, outputBytes, output, 0);
+        return output;
+    }
+
+    @Benchmark
+    public SecretKey computeSharedKey() throws Exception {
+        return keyGenerator.computeSharedKey(privateKey, publicKey, true);
+    }
+
+    @Benchmark
+    public List<SecretKey> keysForSignatureType() throws Exception {
+        return serverKeyFactory.keysForSignatureType(PowerAuthSignatureTypes.POSSESSION_KNOWLEDGE_BIOMETRY, masterSecretKey);
+    }
+
+    @Benchmark
+    public List<SecretKey> keysForSignatureTypeCached() throws Exception {
+        return cachedServerKeyFactory.keysForSignatureType("activation", PowerAuthSignatureTypes.POSSESSION_KNOWLEDGE_BIOMETRY, masterSecretKey);
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.util.PasswordHash;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of Argon2 password hash verification, see {@link PasswordHash}. The operation is intentionally
+ * expensive, therefore the results are reported in milliseconds.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashBenchmark {
+
+    private byte[] password;
+    private String passwordHash;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.initializeCryptoProvider();
+        password = "0123456789".getBytes(StandardCharsets.UTF_8);
+        passwordHash = PasswordHash.hash(password);
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return PasswordHash.verify(password, passwordHash);
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.generator.IdentifierGenerator;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.model.RecoveryInfo;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of bulk recovery code and PUK generation, see {@link IdentifierGenerator#generateRecoveryCodes(List, int, boolean, java.util.function.Consumer)}.
+ * Scores are reported per generated recovery code, so that the throughput is expressed in codes per second.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecoveryCodeBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Number of PUKs generated for each recovery code.
+     */
+    @Param({"1", "10"})
+    private int pukCount;
+
+    private final IdentifierGenerator identifierGenerator = new IdentifierGenerator();
+
+    private List<SecretKey> secretKeys;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        secretKeys = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            secretKeys.add(keyGenerator.generateRandomSecretKey());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void generateInLoop(Blackhole blackhole) throws Exception {
+        for (SecretKey secretKey : secretKeys) {
+            blackhole.consume(identifierGenerator.generateRecoveryCode(secretKey, pukCount, true));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void generateBulk(Blackhole blackhole) throws Exception {
+        identifierGenerator.generateRecoveryCodes(secretKeys, pukCount, true, blackhole::consume);
+    }
+
+}
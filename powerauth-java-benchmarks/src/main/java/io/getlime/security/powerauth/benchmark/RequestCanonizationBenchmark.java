@@ -0,0 +1,107 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.http.PowerAuthRequestCanonizationUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of GET query string canonization, compares {@link PowerAuthRequestCanonizationUtils} with
+ * the original implementation based on splitting, maps and full decoding and encoding.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestCanonizationBenchmark {
+
+    @Param({"4", "32"})
+    private int parameterCount;
+
+    private String queryString;
+
+    @Setup
+    public void setUp() {
+        // Typical search query, with a few escaped values
+        final StringBuilder sb = new StringBuilder();
+        for (int i = parameterCount; i > 0; i--) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append("filter_").append(i % 10).append('=');
+            sb.append(i % 4 == 0 ? "value%20with%20spaces" : "value" + i);
+        }
+        queryString = sb.toString();
+    }
+
+    @Benchmark
+    public String canonizeGetParameters() {
+        return PowerAuthRequestCanonizationUtils.canonizeGetParameters(queryString);
+    }
+
+    @Benchmark
+    public String canonizeGetParametersOriginal() throws UnsupportedEncodingException {
+        return canonizeOriginal(queryString);
+    }
+
+    /**
+     * Original implementation of the canonization, used as a baseline.
+     */
+    private static String canonizeOriginal(String queryString) throws UnsupportedEncodingException {
+        final List<Map<String, String>> items = new ArrayList<>();
+        for (String keyValue : queryString.split("&")) {
+            final String[] tmp = keyValue.split("=", 2);
+            if (tmp.length != 2) {
+                continue;
+            }
+            final Map<String, String> pair = new HashMap<>();
+            pair.put("key", URLDecoder.decode(tmp[0], StandardCharsets.UTF_8.name()));
+            pair.put("val", URLDecoder.decode(tmp[1], StandardCharsets.UTF_8.name()));
+            items.add(pair);
+        }
+        items.sort((left, right) -> {
+            final String leftKey = left.get("key");
+            final String rightKey = right.get("key");
+            return leftKey.equals(rightKey) ? left.get("val").compareTo(right.get("val")) : leftKey.compareTo(rightKey);
+        });
+        final StringBuilder result = new StringBuilder();
+        for (Map<String, String> pair : items) {
+            if (result.length() > 0) {
+                result.append("&");
+            }
+            result.append(URLEncoder.encode(pair.get("key"), StandardCharsets.UTF_8.name()));
+            result.append("=");
+            result.append(URLEncoder.encode(pair.get("val"), StandardCharsets.UTF_8.name()));
+        }
+        return result.length() > 0 ? result.toString() : null;
+    }
+
+}
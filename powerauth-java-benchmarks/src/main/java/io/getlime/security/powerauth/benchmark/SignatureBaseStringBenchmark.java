@@ -0,0 +1,74 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.http.PowerAuthHttpBody;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of HMAC computed over the signature base string, compares signing of the constructed signature
+ * base string with feeding the signature base string into the MAC, see {@link PowerAuthHttpBody}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureBaseStringBenchmark {
+
+    @Param({"1024", "5242880"})
+    private int bodySize;
+
+    private Mac mac;
+    private byte[] nonce;
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws Exception {
+        final SecureRandom random = new SecureRandom();
+        final byte[] key = new byte[16];
+        random.nextBytes(key);
+        mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        nonce = new byte[16];
+        random.nextBytes(nonce);
+        body = new byte[bodySize];
+        random.nextBytes(body);
+    }
+
+    @Benchmark
+    public byte[] macSignatureBaseString() {
+        final String signatureBaseString = PowerAuthHttpBody.getSignatureBaseString("POST", "/pa/signature/validate", nonce, body);
+        return mac.doFinal(signatureBaseString.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public byte[] macSignatureBaseStringStreamed() {
+        PowerAuthHttpBody.updateSignatureBaseString("POST", "/pa/signature/validate", nonce, body, mac);
+        return mac.doFinal();
+    }
+
+}
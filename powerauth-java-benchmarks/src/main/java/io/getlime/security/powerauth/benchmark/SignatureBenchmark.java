@@ -0,0 +1,98 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of PowerAuth signature computation and validation, see {@link SignatureUtils}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureBenchmark {
+
+    /**
+     * Number of signature factors.
+     */
+    @Param({"1", "2", "3"})
+    private int factors;
+
+    /**
+     * Format of the signature.
+     */
+    @Param({"DECIMAL", "BASE64"})
+    private PowerAuthSignatureFormat format;
+
+    /**
+     * Size of the signed data in bytes.
+     */
+    @Param({"256"})
+    private int dataSize;
+
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+
+    private byte[] data;
+    private ByteBuffer dataBuffer;
+    private List<SecretKey> signatureKeys;
+    private byte[] ctrData;
+    private String signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        data = keyGenerator.generateRandomBytes(dataSize);
+        dataBuffer = ByteBuffer.wrap(data);
+        ctrData = keyGenerator.generateRandomBytes(16);
+        signatureKeys = new ArrayList<>();
+        for (int i = 0; i < factors; i++) {
+            signatureKeys.add(keyGenerator.generateRandomSecretKey());
+        }
+        signature = signatureUtils.computePowerAuthSignature(data, signatureKeys, ctrData, format);
+    }
+
+    @Benchmark
+    public String computePowerAuthSignature() throws Exception {
+        return signatureUtils.computePowerAuthSignature(data, signatureKeys, ctrData, format);
+    }
+
+    @Benchmark
+    public boolean validatePowerAuthSignature() throws Exception {
+        return signatureUtils.validatePowerAuthSignature(data, signature, signatureKeys, ctrData, format);
+    }
+
+    @Benchmark
+    public boolean verifyPowerAuthSignature() throws Exception {
+        return signatureUtils.verifyPowerAuthSignature(dataBuffer, signature, signatureKeys, ctrData, format);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
+import io.getlime.security.powerauth.crypto.lib.generator.HashBasedCounter;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
+import io.getlime.security.powerauth.crypto.server.signature.PowerAuthServerSignature;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of signature verification with counter look ahead window, see
+ * {@link PowerAuthServerSignature#verifySignatureForDataWithLookAhead}. The client counter is ahead of the server
+ * counter, so that the signature matches the last counter value in the window. The {@code verifyInLoop} benchmark
+ * shows the cost of advancing the counter and verifying the signature for each step on the caller side.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureLookAheadBenchmark {
+
+    /**
+     * Size of the look ahead window.
+     */
+    @Param({"1", "20"})
+    private int lookAhead;
+
+    /**
+     * Format of the signature.
+     */
+    @Param({"BASE64"})
+    private PowerAuthSignatureFormat format;
+
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+    private final PowerAuthServerSignature serverSignature = new PowerAuthServerSignature();
+    private final HashBasedCounter counter = new HashBasedCounter();
+
+    private byte[] data;
+    private List<SecretKey> signatureKeys;
+    private byte[] ctrData;
+    private String signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        data = keyGenerator.generateRandomBytes(256);
+        signatureKeys = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            signatureKeys.add(keyGenerator.generateRandomSecretKey());
+        }
+        ctrData = counter.init();
+        byte[] clientCtrData = ctrData;
+        for (int i = 1; i < lookAhead; i++) {
+            clientCtrData = counter.next(clientCtrData);
+        }
+        signature = signatureUtils.computePowerAuthSignature(data, signatureKeys, clientCtrData, format);
+    }
+
+    @Benchmark
+    public int verifyInLoop() throws Exception {
+        byte[] currentCtrData = ctrData;
+        for (int offset = 0; offset < lookAhead; offset++) {
+            if (serverSignature.verifySignatureForData(data, signature, signatureKeys, currentCtrData, format)) {
+                return offset;
+            }
+            currentCtrData = counter.next(currentCtrData);
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int verifyWithLookAhead() throws Exception {
+        return serverSignature.verifySignatureForDataWithLookAhead(ByteBuffer.wrap(data), signature, signatureKeys, ctrData, lookAhead, format);
+    }
+
+}
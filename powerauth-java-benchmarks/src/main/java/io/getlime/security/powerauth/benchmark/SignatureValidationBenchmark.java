@@ -0,0 +1,110 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of PowerAuth signature validation with valid, malformed and wrong signatures, see
+ * {@link SignatureUtils#validatePowerAuthSignature}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureValidationBenchmark {
+
+    /**
+     * Kind of the validated signature.
+     */
+    public enum SignatureInput {
+        /**
+         * Signature matching the data.
+         */
+        VALID,
+        /**
+         * Signature which cannot be decoded in the given format.
+         */
+        MALFORMED,
+        /**
+         * Well formed signature which does not match the data.
+         */
+        WRONG
+    }
+
+    /**
+     * Format of the signature.
+     */
+    @Param({"DECIMAL", "BASE64"})
+    private PowerAuthSignatureFormat format;
+
+    /**
+     * Kind of the validated signature.
+     */
+    @Param({"VALID", "MALFORMED", "WRONG"})
+    private SignatureInput input;
+
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+
+    private byte[] data;
+    private List<SecretKey> signatureKeys;
+    private byte[] ctrData;
+    private String signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        data = keyGenerator.generateRandomBytes(256);
+        ctrData = keyGenerator.generateRandomBytes(16);
+        signatureKeys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            signatureKeys.add(keyGenerator.generateRandomSecretKey());
+        }
+        final String validSignature = signatureUtils.computePowerAuthSignature(data, signatureKeys, ctrData, format);
+        switch (input) {
+            case VALID:
+                signature = validSignature;
+                break;
+            case MALFORMED:
+                signature = "#" + validSignature.substring(1);
+                break;
+            case WRONG:
+                final byte[] otherData = keyGenerator.generateRandomBytes(256);
+                signature = signatureUtils.computePowerAuthSignature(otherData, signatureKeys, ctrData, format);
+                break;
+        }
+    }
+
+    @Benchmark
+    public boolean validatePowerAuthSignature() throws Exception {
+        return signatureUtils.validatePowerAuthSignature(data, signature, signatureKeys, ctrData, format);
+    }
+
+}
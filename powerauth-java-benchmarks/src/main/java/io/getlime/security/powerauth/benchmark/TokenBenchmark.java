@@ -0,0 +1,66 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import io.getlime.security.powerauth.crypto.lib.util.PreparedHmacKey;
+import io.getlime.security.powerauth.crypto.lib.util.TokenUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of token digest computation and validation, see {@link TokenUtils}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenBenchmark {
+
+    private final TokenUtils tokenUtils = new TokenUtils();
+
+    private byte[] tokenSecret;
+    private PreparedHmacKey preparedTokenSecret;
+    private byte[] nonce;
+    private byte[] timestamp;
+    private byte[] tokenDigest;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkSupport.initializeCryptoProvider();
+        tokenSecret = tokenUtils.generateTokenSecret();
+        nonce = tokenUtils.generateTokenNonce();
+        timestamp = tokenUtils.generateTokenTimestamp();
+        tokenDigest = tokenUtils.computeTokenDigest(nonce, timestamp, tokenSecret);
+        preparedTokenSecret = PreparedHmacKey.prepare(tokenSecret);
+    }
+
+    @Benchmark
+    public boolean validateTokenDigest() throws Exception {
+        return tokenUtils.validateTokenDigest(nonce, timestamp, tokenSecret, tokenDigest);
+    }
+
+    @Benchmark
+    public boolean validateTokenDigestPrepared() throws Exception {
+        return tokenUtils.validateTokenDigest(nonce, timestamp, preparedTokenSecret, tokenDigest);
+    }
+
+}
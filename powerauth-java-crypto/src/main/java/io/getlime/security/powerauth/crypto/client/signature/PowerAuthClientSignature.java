@@ -18,6 +18,7 @@ package io.getlime.security.powerauth.crypto.client.signature;
 
 import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureDataFeeder;
 import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
 import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
 
@@ -53,4 +54,22 @@ public class PowerAuthClientSignature {
         return signatureUtils.computePowerAuthSignature(data, signatureKeys, ctrData, signatureFormat);
     }
 
+    /**
+     * Compute a PowerAuth signature for data provided by a data feeder, signature
+     * keys and counter. The data feeder updates MACs initialized with the keys
+     * derived for each signature factor, so that the signed data does not have
+     * to be constructed as a single byte array.
+     *
+     * @param dataFeeder Data feeder which updates the MACs with signed data.
+     * @param signatureKeys A signature keys.
+     * @param ctrData Hash based counter / index of the derived key KEY_DERIVED.
+     * @param signatureFormat Format of signature to calculate.
+     * @return PowerAuth signature for provided data.
+     * @throws GenericCryptoException In case signature computation fails or signed data cannot be read.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public String signatureForData(SignatureDataFeeder dataFeeder, List<SecretKey> signatureKeys, byte[] ctrData, PowerAuthSignatureFormat signatureFormat) throws GenericCryptoException, CryptoProviderException {
+        return signatureUtils.computePowerAuthSignature(dataFeeder, signatureKeys, ctrData, signatureFormat);
+    }
+
 }
@@ -32,9 +32,15 @@ public enum PowerAuthConfiguration {
     INSTANCE;
 
     /**
-     * Instance of the KeyConvertor, a class used to convert keys to bytes and vice versa.
+     * Instance of the KeyConvertor, a class used to convert keys to bytes and vice versa. The field is volatile,
+     * so that the instance is safely published to all threads without locking.
      */
-    private CryptoProviderUtil keyConvertor;
+    private volatile CryptoProviderUtil keyConvertor;
+
+    /**
+     * Whether JCE engines (Mac, Cipher, Signature) are cached per thread.
+     */
+    private volatile boolean cryptoEngineCacheEnabled = true;
 
     /**
      * Set key convertor instance.
@@ -49,12 +55,31 @@ public enum PowerAuthConfiguration {
      * @return Key convertor instance
      */
     public CryptoProviderUtil getKeyConvertor() {
+        final CryptoProviderUtil keyConvertor = this.keyConvertor;
         if (keyConvertor == null) {
             throw new NullPointerException("Convertor mustn't be null! Set convertor by calling PowerAuthConfiguration.INSTANCE.setKeyConvertor().");
         }
         return keyConvertor;
     }
 
+    /**
+     * Enable or disable caching of JCE engines (Mac, Cipher, Signature) per thread. The cache is enabled by default.
+     * Disable the cache in environments where thread local values must not outlive the application, for example
+     * in application servers with hot redeployment.
+     * @param cryptoEngineCacheEnabled Whether JCE engine cache is enabled.
+     */
+    public void setCryptoEngineCacheEnabled(boolean cryptoEngineCacheEnabled) {
+        this.cryptoEngineCacheEnabled = cryptoEngineCacheEnabled;
+    }
+
+    /**
+     * Get whether caching of JCE engines (Mac, Cipher, Signature) per thread is enabled.
+     * @return Whether JCE engine cache is enabled.
+     */
+    public boolean isCryptoEngineCacheEnabled() {
+        return cryptoEngineCacheEnabled;
+    }
+
     /**
      * How many iterations should be used for PBKDF2 key derivation.
      */
@@ -16,7 +16,7 @@
  */
 package io.getlime.security.powerauth.crypto.lib.encryptor.ecies;
 
-import com.google.common.primitives.Bytes;
+import com.google.common.io.ByteSource;
 import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.exception.EciesException;
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesCryptogram;
@@ -29,13 +29,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.SecretKey;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.interfaces.ECPrivateKey;
 import java.util.Arrays;
 
 /**
- * Class implementing an ECIES decryptor.
+ * Class implementing an ECIES decryptor. The decryptor is a single-use object for one request and response,
+ * use {@link EciesServerContext} to share the state which does not depend on the request.
  *
  * @author Petr Dvorak, petr@wultra.com
  * @author Roman Strobl, roman.strobl@wultra.com
@@ -44,15 +49,17 @@ public class EciesDecryptor {
 
     private static final Logger logger = LoggerFactory.getLogger(EciesDecryptor.class);
 
-    // Underlying implementation classes
-    private final AESEncryptionUtils aes = new AESEncryptionUtils();
-    private final HMACHashUtilities hmac = new HMACHashUtilities();
+    // Underlying implementation classes, stateless and shared by all decryptors
+    private static final AESEncryptionUtils aes = new AESEncryptionUtils();
+    private static final HMACHashUtilities hmac = new HMACHashUtilities();
     private final CryptoProviderUtil keyConverter = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
 
     // Encryptor working data storage
     private final PrivateKey privateKey;
     private final byte[] sharedInfo1;
     private final byte[] sharedInfo2;
+    private final EciesEnvelopeKeyCache envelopeKeyCache;
+    private final byte[] privateKeyId;
     private EciesEnvelopeKey envelopeKey;
 
     // Life-cycle management variables
@@ -77,9 +84,39 @@ public class EciesDecryptor {
      * @param sharedInfo2 Additional shared information used during decryption.
      */
     public EciesDecryptor(ECPrivateKey encryptionPrivateKey, byte[] sharedInfo1, byte[] sharedInfo2) {
+        this(encryptionPrivateKey, sharedInfo1, sharedInfo2, null);
+    }
+
+    /**
+     * Construct a new decryptor with the base private key, provided sharedInfo1 and sharedInfo2 parameters
+     * and cache of envelope keys.
+     *
+     * @param encryptionPrivateKey Private key to be used for decryption.
+     * @param sharedInfo1 Additional shared information used during key derivation.
+     * @param sharedInfo2 Additional shared information used during decryption.
+     * @param envelopeKeyCache Cache of envelope keys, or null if envelope keys should not be cached.
+     */
+    EciesDecryptor(ECPrivateKey encryptionPrivateKey, byte[] sharedInfo1, byte[] sharedInfo2, EciesEnvelopeKeyCache envelopeKeyCache) {
+        this(encryptionPrivateKey, sharedInfo1, sharedInfo2, envelopeKeyCache,
+                envelopeKeyCache == null ? null : EciesEnvelopeKeyCache.computePrivateKeyId(encryptionPrivateKey));
+    }
+
+    /**
+     * Construct a new decryptor with the base private key, provided sharedInfo1 and sharedInfo2 parameters,
+     * cache of envelope keys and precomputed identifier of the private key.
+     *
+     * @param encryptionPrivateKey Private key to be used for decryption.
+     * @param sharedInfo1 Additional shared information used during key derivation.
+     * @param sharedInfo2 Additional shared information used during decryption.
+     * @param envelopeKeyCache Cache of envelope keys, or null if envelope keys should not be cached.
+     * @param privateKeyId Identifier of the private key in the cache of envelope keys, or null if envelope keys should not be cached.
+     */
+    EciesDecryptor(ECPrivateKey encryptionPrivateKey, byte[] sharedInfo1, byte[] sharedInfo2, EciesEnvelopeKeyCache envelopeKeyCache, byte[] privateKeyId) {
         this.privateKey = encryptionPrivateKey;
         this.sharedInfo1 = sharedInfo1;
         this.sharedInfo2 = sharedInfo2;
+        this.envelopeKeyCache = envelopeKeyCache;
+        this.privateKeyId = privateKeyId;
         this.canDecryptData = true;
         this.canEncryptData = false;
     }
@@ -96,6 +133,8 @@ public class EciesDecryptor {
         this.envelopeKey = envelopeKey;
         this.sharedInfo1 = null;
         this.sharedInfo2 = sharedInfo2;
+        this.envelopeKeyCache = null;
+        this.privateKeyId = null;
         // Allow decrypt to support request decryption with provided envelope key and sharedInfo2
         this.canDecryptData = true;
         this.canEncryptData = false;
@@ -111,7 +150,7 @@ public class EciesDecryptor {
      * @throws EciesException In case envelope key initialization fails.
      */
     public void initEnvelopeKey(byte[] ephemeralPublicKeyBytes) throws EciesException {
-        envelopeKey = EciesEnvelopeKey.fromPrivateKey(privateKey, ephemeralPublicKeyBytes, sharedInfo1);
+        envelopeKey = deriveEnvelopeKey(ephemeralPublicKeyBytes);
         // Invalidate this decryptor for decryption
         canDecryptData = false;
         canEncryptData = true;
@@ -140,7 +179,7 @@ public class EciesDecryptor {
         }
         // Derive envelope key, but only in case it does not exist yet
         if (envelopeKey == null) {
-            envelopeKey = EciesEnvelopeKey.fromPrivateKey(privateKey, cryptogram.getEphemeralPublicKey(), sharedInfo1);
+            envelopeKey = deriveEnvelopeKey(cryptogram.getEphemeralPublicKey());
         }
         return decrypt(cryptogram, requireIv);
     }
@@ -175,6 +214,155 @@ public class EciesDecryptor {
         return encrypt(data);
     }
 
+    /**
+     * Decrypt request data read from the source and write the decrypted data into the output stream. The data
+     * is decrypted in chunks and the MAC is computed incrementally, so the memory usage does not depend on the data
+     * size. The source is read twice, the MAC from the cryptogram is validated before any decrypted data is written
+     * into the output stream. The source must provide the same content each time it is opened.
+     *
+     * @param cryptogram ECIES cryptogram with ephemeral public key, MAC and nonce, encrypted data is ignored.
+     * @param source Source of encrypted request data.
+     * @param output Output stream for decrypted request data.
+     * @param requireIv Determines whether non-zero IV is used for decryption and encryption. This is required for protocol V3.1 and later.
+     * @throws EciesException In case request decryption fails.
+     */
+    public void decryptRequest(EciesCryptogram cryptogram, ByteSource source, OutputStream output, boolean requireIv) throws EciesException {
+        if (cryptogram == null || cryptogram.getMac() == null || source == null || output == null || (envelopeKey == null && cryptogram.getEphemeralPublicKey() == null)) {
+            throw new EciesException("Parameter cryptogram for request decryption is invalid");
+        }
+        if (requireIv && cryptogram.getNonce() == null) {
+            throw new EciesException("Nonce parameter in cryptogram is invalid.");
+        }
+        if (!canDecryptRequest()) {
+            throw new EciesException("Request decryption is not allowed");
+        }
+        // Derive envelope key, but only in case it does not exist yet
+        if (envelopeKey == null) {
+            envelopeKey = deriveEnvelopeKey(cryptogram.getEphemeralPublicKey());
+        }
+        final byte[] iv = requireIv ? envelopeKey.deriveIvForNonce(cryptogram.getNonce()) : new byte[16];
+        EciesStreamCipher.decrypt(source, output, envelopeKey.getEncKey(), iv, envelopeKey.getMacKey(), sharedInfo2, cryptogram.getMac());
+
+        // Invalidate this decryptor for decryption
+        canDecryptData = false;
+        canEncryptData = true;
+        ivForEncryption = iv;
+    }
+
+    /**
+     * Encrypt response data read from the input stream and write the encrypted data into the output stream. Use when
+     * the request was already decrypted and the ECIES envelope key is already derived. The encrypted data is the same
+     * as the data in cryptogram returned by {@link #encryptResponse(byte[])}.
+     *
+     * @param input Input stream with response data.
+     * @param output Output stream for encrypted response data.
+     * @return ECIES cryptogram with MAC, encrypted data is not included.
+     * @throws EciesException In case response encryption fails.
+     */
+    public EciesCryptogram encryptResponse(InputStream input, OutputStream output) throws EciesException {
+        if (input == null || output == null) {
+            throw new EciesException("Parameter stream for response encryption is null");
+        }
+        if (!canEncryptResponse()) {
+            throw new EciesException("Response encryption is not allowed");
+        }
+        final byte[] iv = ivForEncryption;
+
+        // Invalidate this decryptor
+        canEncryptData = false;
+        ivForEncryption = null;
+
+        final byte[] mac = EciesStreamCipher.encrypt(input, output, envelopeKey.getEncKey(), iv, envelopeKey.getMacKey(), sharedInfo2);
+        return new EciesCryptogram(mac, null);
+    }
+
+    /**
+     * Decrypt request data remaining in the input buffer and store the decrypted data into the output buffer. The MAC
+     * from the cryptogram is validated before the data is decrypted. Both heap and direct buffers are supported, so
+     * that the data does not need to be copied from network buffers into byte arrays.
+     *
+     * @param cryptogram ECIES cryptogram with ephemeral public key, MAC and nonce, encrypted data is ignored.
+     * @param encryptedData Buffer with encrypted request data, the position is advanced to its limit after
+     *                      successful decryption.
+     * @param output Buffer for decrypted request data, at least the remaining encrypted data size must remain.
+     * @param requireIv Determines whether non-zero IV is used for decryption and encryption. This is required for protocol V3.1 and later.
+     * @return Number of decrypted bytes stored in the output buffer.
+     * @throws EciesException In case request decryption fails.
+     */
+    public int decryptRequest(EciesCryptogram cryptogram, ByteBuffer encryptedData, ByteBuffer output, boolean requireIv) throws EciesException {
+        if (cryptogram == null || cryptogram.getMac() == null || encryptedData == null || output == null || (envelopeKey == null && cryptogram.getEphemeralPublicKey() == null)) {
+            throw new EciesException("Parameter cryptogram for request decryption is invalid");
+        }
+        if (requireIv && cryptogram.getNonce() == null) {
+            throw new EciesException("Nonce parameter in cryptogram is invalid.");
+        }
+        if (!canDecryptRequest()) {
+            throw new EciesException("Request decryption is not allowed");
+        }
+        // Derive envelope key, but only in case it does not exist yet
+        if (envelopeKey == null) {
+            envelopeKey = deriveEnvelopeKey(cryptogram.getEphemeralPublicKey());
+        }
+        try {
+            // Validate data MAC value
+            if (!MessageDigest.isEqual(computeMac(encryptedData), cryptogram.getMac())) {
+                throw new EciesException("Invalid MAC");
+            }
+
+            // Decrypt the data with AES
+            final SecretKey encKey = keyConverter.convertBytesToSharedSecretKey(envelopeKey.getEncKey());
+            final byte[] iv = requireIv ? envelopeKey.deriveIvForNonce(cryptogram.getNonce()) : new byte[16];
+
+            // Invalidate this decryptor for decryption
+            canDecryptData = false;
+            canEncryptData = true;
+            ivForEncryption = iv;
+
+            return aes.decrypt(encryptedData, output, iv, encKey);
+        } catch (InvalidKeyException | GenericCryptoException | CryptoProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new EciesException("Request decryption failed", ex);
+        }
+    }
+
+    /**
+     * Encrypt response data remaining in the input buffer and store the encrypted data into the output buffer. Use
+     * when the request was already decrypted and the ECIES envelope key is already derived. The encrypted data is
+     * the same as the data in cryptogram returned by {@link #encryptResponse(byte[])}.
+     *
+     * @param data Buffer with response data, the position is advanced to its limit.
+     * @param output Buffer for encrypted response data, at least {@code (data.remaining() / 16 + 1) * 16} bytes must
+     *               remain, block aligned data is extended by a full block of padding. The position is advanced by
+     *               the size of encrypted data.
+     * @return ECIES cryptogram with MAC, encrypted data is not included.
+     * @throws EciesException In case response encryption fails.
+     */
+    public EciesCryptogram encryptResponse(ByteBuffer data, ByteBuffer output) throws EciesException {
+        if (data == null || output == null) {
+            throw new EciesException("Parameter data for response encryption is null");
+        }
+        if (!canEncryptResponse()) {
+            throw new EciesException("Response encryption is not allowed");
+        }
+        try {
+            final SecretKey encKey = keyConverter.convertBytesToSharedSecretKey(envelopeKey.getEncKey());
+            final byte[] iv = ivForEncryption;
+            final ByteBuffer encryptedData = output.duplicate();
+            final int length = aes.encrypt(data, output, iv, encKey);
+            encryptedData.limit(encryptedData.position() + length);
+            final byte[] mac = computeMac(encryptedData);
+
+            // Invalidate this decryptor
+            canEncryptData = false;
+            ivForEncryption = null;
+
+            return new EciesCryptogram(mac, null);
+        } catch (InvalidKeyException | GenericCryptoException | CryptoProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new EciesException("Response encryption failed", ex);
+        }
+    }
+
     /**
      * Get parameter sharedInfo2 for ECIES.
      * @return Parameter sharedInfo2 for ECIES.
@@ -191,6 +379,20 @@ public class EciesDecryptor {
         return envelopeKey;
     }
 
+    /**
+     * Derive envelope key from the private key and ephemeral public key, use the envelope key cache when available.
+     *
+     * @param ephemeralPublicKeyBytes Ephemeral public key bytes.
+     * @return ECIES envelope key.
+     * @throws EciesException In case envelope key derivation fails.
+     */
+    private EciesEnvelopeKey deriveEnvelopeKey(byte[] ephemeralPublicKeyBytes) throws EciesException {
+        if (envelopeKeyCache != null) {
+            return envelopeKeyCache.getEnvelopeKey(privateKeyId, privateKey, ephemeralPublicKeyBytes, sharedInfo1);
+        }
+        return EciesEnvelopeKey.fromPrivateKey(privateKey, ephemeralPublicKeyBytes, sharedInfo1);
+    }
+
     /**
      * Get whether request data can be decrypted.
      *
@@ -210,6 +412,38 @@ public class EciesDecryptor {
         return canEncryptData && envelopeKey.isValid() && ivForEncryption != null;
     }
 
+    /**
+     * Compute MAC of encrypted data remaining in the buffer and sharedInfo2.
+     *
+     * @param encryptedData Buffer with encrypted data, the position is not modified.
+     * @return MAC of the data.
+     * @throws GenericCryptoException In case MAC computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     * @throws EciesException In case the envelope key is not valid.
+     */
+    private byte[] computeMac(ByteBuffer encryptedData) throws GenericCryptoException, CryptoProviderException, EciesException {
+        if (sharedInfo2 == null) {
+            return hmac.hashBuffers(envelopeKey.getMacKey(), encryptedData);
+        }
+        return hmac.hashBuffers(envelopeKey.getMacKey(), encryptedData, ByteBuffer.wrap(sharedInfo2));
+    }
+
+    /**
+     * Compute MAC of encrypted data and sharedInfo2.
+     *
+     * @param encryptedData Encrypted data.
+     * @return MAC of the data.
+     * @throws GenericCryptoException In case MAC computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     * @throws EciesException In case the envelope key is not valid.
+     */
+    private byte[] computeMac(byte[] encryptedData) throws GenericCryptoException, CryptoProviderException, EciesException {
+        if (sharedInfo2 == null) {
+            return hmac.hash(envelopeKey.getMacKey(), encryptedData);
+        }
+        return hmac.hash(envelopeKey.getMacKey(), encryptedData, sharedInfo2);
+    }
+
     /**
      * Decrypt provided encrypted cryptogram.
      *
@@ -220,9 +454,8 @@ public class EciesDecryptor {
      */
     private byte[] decrypt(EciesCryptogram cryptogram, boolean requireIv) throws EciesException {
         try {
-            // Validate data MAC value
-            final byte[] macData = (sharedInfo2 == null ? cryptogram.getEncryptedData() : Bytes.concat(cryptogram.getEncryptedData(), sharedInfo2));
-            final byte[] mac = hmac.hash(envelopeKey.getMacKey(), macData);
+            // Validate MAC value of the data and sharedInfo2
+            final byte[] mac = computeMac(cryptogram.getEncryptedData());
             if (!Arrays.equals(mac, cryptogram.getMac())) {
                 throw new EciesException("Invalid MAC");
             }
@@ -260,9 +493,8 @@ public class EciesDecryptor {
             final byte[] iv = ivForEncryption;
             final byte[] body = aes.encrypt(data, iv, encKey);
 
-            // Compute MAC of the data
-            final byte[] macData = (sharedInfo2 == null ? body : Bytes.concat(body, sharedInfo2));
-            final byte[] mac = hmac.hash(envelopeKey.getMacKey(), macData);
+            // Compute MAC of the data and sharedInfo2
+            final byte[] mac = computeMac(body);
 
             // Invalidate this decryptor
             canEncryptData = false;
@@ -16,7 +16,7 @@
  */
 package io.getlime.security.powerauth.crypto.lib.encryptor.ecies;
 
-import com.google.common.primitives.Bytes;
+import com.google.common.io.ByteSource;
 import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.exception.EciesException;
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesCryptogram;
@@ -30,7 +30,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.SecretKey;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.PublicKey;
 import java.security.interfaces.ECPublicKey;
 import java.util.Arrays;
@@ -142,6 +146,143 @@ public class EciesEncryptor {
         return decrypt(cryptogram);
     }
 
+    /**
+     * Encrypt request data read from the input stream and write the encrypted data into the output stream. The data
+     * is encrypted in chunks and the MAC is computed incrementally, so the memory usage does not depend on the data
+     * size. The encrypted data is the same as the data in cryptogram returned by {@link #encryptRequest(byte[], boolean)}.
+     *
+     * @param input Input stream with request data.
+     * @param output Output stream for encrypted request data.
+     * @param useIv Controls whether encryption uses non-zero initialization vector for protocol V3.1+.
+     * @return ECIES cryptogram with ephemeral public key, MAC and nonce, encrypted data is not included.
+     * @throws EciesException In case request encryption fails.
+     */
+    public EciesCryptogram encryptRequest(InputStream input, OutputStream output, boolean useIv) throws EciesException {
+        if (input == null || output == null) {
+            throw new EciesException("Parameter stream for request encryption is null");
+        }
+        if (!canEncryptRequest()) {
+            throw new EciesException("Request encryption is not allowed");
+        }
+        envelopeKey = EciesEnvelopeKey.fromPublicKey(publicKey, sharedInfo1);
+        final byte[] nonce = useIv ? keyGenerator.generateRandomBytes(16) : null;
+        final byte[] iv = useIv ? envelopeKey.deriveIvForNonce(nonce) : new byte[16];
+        final byte[] mac = EciesStreamCipher.encrypt(input, output, envelopeKey.getEncKey(), iv, envelopeKey.getMacKey(), sharedInfo2);
+
+        // Invalidate this encryptor for encryption
+        canEncryptData = false;
+        canDecryptData = true;
+        ivForDecryption = iv;
+
+        return new EciesCryptogram(envelopeKey.getEphemeralKeyPublic(), mac, null, nonce);
+    }
+
+    /**
+     * Decrypt response data read from the source and write the decrypted data into the output stream. The source is
+     * read twice, the MAC from the cryptogram is validated before any decrypted data is written into the output
+     * stream. The source must provide the same content each time it is opened.
+     *
+     * @param cryptogram ECIES cryptogram with MAC, encrypted data is ignored.
+     * @param source Source of encrypted response data.
+     * @param output Output stream for decrypted response data.
+     * @throws EciesException In case response decryption fails.
+     */
+    public void decryptResponse(EciesCryptogram cryptogram, ByteSource source, OutputStream output) throws EciesException {
+        if (cryptogram == null || cryptogram.getMac() == null || source == null || output == null) {
+            throw new EciesException("Parameter cryptogram for response decryption is invalid");
+        }
+        if (!canDecryptResponse()) {
+            throw new EciesException("Response decryption is not allowed");
+        }
+        final byte[] iv = ivForDecryption;
+
+        // Invalidate the encryptor
+        canDecryptData = false;
+        ivForDecryption = null;
+
+        EciesStreamCipher.decrypt(source, output, envelopeKey.getEncKey(), iv, envelopeKey.getMacKey(), sharedInfo2, cryptogram.getMac());
+    }
+
+    /**
+     * Encrypt request data remaining in the input buffer and store the encrypted data into the output buffer. Both
+     * heap and direct buffers are supported, so that the data does not need to be copied into byte arrays. The
+     * encrypted data is the same as the data in cryptogram returned by {@link #encryptRequest(byte[], boolean)}.
+     *
+     * @param data Buffer with request data, the position is advanced to its limit.
+     * @param output Buffer for encrypted request data, at least {@code (data.remaining() / 16 + 1) * 16} bytes must
+     *               remain, block aligned data is extended by a full block of padding. The position is advanced by
+     *               the size of encrypted data.
+     * @param useIv Controls whether encryption uses non-zero initialization vector for protocol V3.1+.
+     * @return ECIES cryptogram with ephemeral public key, MAC and nonce, encrypted data is not included.
+     * @throws EciesException In case request encryption fails.
+     */
+    public EciesCryptogram encryptRequest(ByteBuffer data, ByteBuffer output, boolean useIv) throws EciesException {
+        if (data == null || output == null) {
+            throw new EciesException("Parameter data for request encryption is null");
+        }
+        if (!canEncryptRequest()) {
+            throw new EciesException("Request encryption is not allowed");
+        }
+        envelopeKey = EciesEnvelopeKey.fromPublicKey(publicKey, sharedInfo1);
+        try {
+            final byte[] nonce = useIv ? keyGenerator.generateRandomBytes(16) : null;
+            final byte[] iv = useIv ? envelopeKey.deriveIvForNonce(nonce) : new byte[16];
+            final SecretKey encKey = keyConverter.convertBytesToSharedSecretKey(envelopeKey.getEncKey());
+            final ByteBuffer encryptedData = output.duplicate();
+            final int length = aes.encrypt(data, output, iv, encKey);
+            encryptedData.limit(encryptedData.position() + length);
+            final byte[] mac = computeMac(encryptedData);
+
+            // Invalidate this encryptor for encryption
+            canEncryptData = false;
+            canDecryptData = true;
+            ivForDecryption = iv;
+
+            return new EciesCryptogram(envelopeKey.getEphemeralKeyPublic(), mac, null, nonce);
+        } catch (InvalidKeyException | GenericCryptoException | CryptoProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new EciesException("Request encryption failed", ex);
+        }
+    }
+
+    /**
+     * Decrypt response data remaining in the input buffer and store the decrypted data into the output buffer. The MAC
+     * from the cryptogram is validated before the data is decrypted. Both heap and direct buffers are supported.
+     *
+     * @param cryptogram ECIES cryptogram with MAC, encrypted data is ignored.
+     * @param encryptedData Buffer with encrypted response data, the position is advanced to its limit after
+     *                      successful decryption.
+     * @param output Buffer for decrypted response data, at least the remaining encrypted data size must remain.
+     * @return Number of decrypted bytes stored in the output buffer.
+     * @throws EciesException In case response decryption fails.
+     */
+    public int decryptResponse(EciesCryptogram cryptogram, ByteBuffer encryptedData, ByteBuffer output) throws EciesException {
+        if (cryptogram == null || cryptogram.getMac() == null || encryptedData == null || output == null) {
+            throw new EciesException("Parameter cryptogram for response decryption is invalid");
+        }
+        if (!canDecryptResponse()) {
+            throw new EciesException("Response decryption is not allowed");
+        }
+        try {
+            // Validate data MAC value
+            if (!MessageDigest.isEqual(computeMac(encryptedData), cryptogram.getMac())) {
+                throw new EciesException("Invalid MAC");
+            }
+
+            final SecretKey encKey = keyConverter.convertBytesToSharedSecretKey(envelopeKey.getEncKey());
+            final byte[] iv = ivForDecryption;
+
+            // Invalidate the encryptor
+            canDecryptData = false;
+            ivForDecryption = null;
+
+            return aes.decrypt(encryptedData, output, iv, encKey);
+        } catch (InvalidKeyException | GenericCryptoException | CryptoProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new EciesException("Response decryption failed", ex);
+        }
+    }
+
     /**
      * Get parameter sharedInfo2 for ECIES.
      * @return Parameter sharedInfo2 for ECIES.
@@ -176,6 +317,38 @@ public class EciesEncryptor {
         return canDecryptData && envelopeKey.isValid() && ivForDecryption != null;
     }
 
+    /**
+     * Compute MAC of encrypted data remaining in the buffer and sharedInfo2.
+     *
+     * @param encryptedData Buffer with encrypted data, the position is not modified.
+     * @return MAC of the data.
+     * @throws GenericCryptoException In case MAC computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     * @throws EciesException In case the envelope key is not valid.
+     */
+    private byte[] computeMac(ByteBuffer encryptedData) throws GenericCryptoException, CryptoProviderException, EciesException {
+        if (sharedInfo2 == null) {
+            return hmac.hashBuffers(envelopeKey.getMacKey(), encryptedData);
+        }
+        return hmac.hashBuffers(envelopeKey.getMacKey(), encryptedData, ByteBuffer.wrap(sharedInfo2));
+    }
+
+    /**
+     * Compute MAC of encrypted data and sharedInfo2.
+     *
+     * @param encryptedData Encrypted data.
+     * @return MAC of the data.
+     * @throws GenericCryptoException In case MAC computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     * @throws EciesException In case the envelope key is not valid.
+     */
+    private byte[] computeMac(byte[] encryptedData) throws GenericCryptoException, CryptoProviderException, EciesException {
+        if (sharedInfo2 == null) {
+            return hmac.hash(envelopeKey.getMacKey(), encryptedData);
+        }
+        return hmac.hash(envelopeKey.getMacKey(), encryptedData, sharedInfo2);
+    }
+
     /**
      * Encrypt data using ECIES and construct ECIES cryptogram.
      *
@@ -203,9 +376,8 @@ public class EciesEncryptor {
             final SecretKey encKey = keyConverter.convertBytesToSharedSecretKey(encKeyBytes);
             final byte[] encryptedData = aes.encrypt(data, iv, encKey);
 
-            // Compute MAC of the data
-            final byte[] macData = (sharedInfo2 == null ? encryptedData : Bytes.concat(encryptedData, sharedInfo2));
-            final byte[] mac = hmac.hash(envelopeKey.getMacKey(), macData);
+            // Compute MAC of the data and sharedInfo2
+            final byte[] mac = computeMac(encryptedData);
 
             // Invalidate this encryptor for encryption
             canEncryptData = false;
@@ -230,9 +402,8 @@ public class EciesEncryptor {
      */
     private byte[] decrypt(EciesCryptogram cryptogram) throws EciesException {
         try {
-            // Validate data MAC value
-            final byte[] macData = (sharedInfo2 == null ? cryptogram.getEncryptedData() : Bytes.concat(cryptogram.getEncryptedData(), sharedInfo2));
-            final byte[] mac = hmac.hash(envelopeKey.getMacKey(), macData);
+            // Validate MAC value of the data and sharedInfo2
+            final byte[] mac = computeMac(cryptogram.getEncryptedData());
             if (!Arrays.equals(mac, cryptogram.getMac())) {
                 throw new EciesException("Invalid MAC");
             }
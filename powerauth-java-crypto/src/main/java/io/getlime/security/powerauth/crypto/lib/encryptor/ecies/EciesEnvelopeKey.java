@@ -22,7 +22,7 @@ import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.exception.EciesE
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.kdf.KdfX9_63;
 import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
-import io.getlime.security.powerauth.crypto.lib.util.HMACHashUtilities;
+import io.getlime.security.powerauth.crypto.lib.util.PreparedHmacKey;
 import io.getlime.security.powerauth.provider.CryptoProviderUtil;
 import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
 import org.slf4j.Logger;
@@ -60,11 +60,13 @@ public class EciesEnvelopeKey {
 
     private static final CryptoProviderUtil keyConverter = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
     private static final KeyGenerator keyGenerator = new KeyGenerator();
-    private static final HMACHashUtilities hmac = new HMACHashUtilities();
 
     private final byte[] secretKey;
     private final byte[] ephemeralKeyPublic;
 
+    // Prepared IV key, initialized with the first IV derivation
+    private volatile PreparedHmacKey preparedIvKey;
+
     /**
      * EciesEnvelopeKey constructor with secret key and ephemeral public key.
      *
@@ -76,6 +78,19 @@ public class EciesEnvelopeKey {
         this.ephemeralKeyPublic = ephemeralPublicKey;
     }
 
+    /**
+     * EciesEnvelopeKey constructor with secret key, ephemeral public key and IV key prepared for HMAC.
+     *
+     * @param secretKey Derived secret key.
+     * @param ephemeralPublicKey Ephemeral public key.
+     * @param preparedIvKey IV key prepared for HMAC, or null if it should be prepared on first use.
+     */
+    EciesEnvelopeKey(byte[] secretKey, byte[] ephemeralPublicKey, PreparedHmacKey preparedIvKey) {
+        this.secretKey = secretKey;
+        this.ephemeralKeyPublic = ephemeralPublicKey;
+        this.preparedIvKey = preparedIvKey;
+    }
+
     /**
      * Construct envelope key for ECIES from public key.
      *
@@ -202,13 +217,33 @@ public class EciesEnvelopeKey {
             throw new EciesException("Nonce for IV derivation is not valid");
         }
         try {
-            return keyGenerator.convert32Bto16B(hmac.hash(getIvKey(), nonce));
-        } catch (GenericCryptoException | CryptoProviderException ex) {
+            return keyGenerator.convert32Bto16B(getPreparedIvKey().hash(nonce));
+        } catch (GenericCryptoException ex) {
             logger.warn(ex.getMessage(), ex);
             throw new EciesException("IV derivation failed", ex);
         }
     }
 
+    /**
+     * Get IV key prepared for HMAC, the key is prepared on first use and reused for all following IV derivations.
+     *
+     * @return IV key prepared for HMAC.
+     * @throws EciesException In case IV key is not valid, or the key preparation failed.
+     */
+    PreparedHmacKey getPreparedIvKey() throws EciesException {
+        PreparedHmacKey preparedKey = preparedIvKey;
+        if (preparedKey == null) {
+            try {
+                preparedKey = PreparedHmacKey.prepare(getIvKey());
+            } catch (GenericCryptoException | CryptoProviderException ex) {
+                logger.warn(ex.getMessage(), ex);
+                throw new EciesException("IV derivation failed", ex);
+            }
+            preparedIvKey = preparedKey;
+        }
+        return preparedKey;
+    }
+
     /**
      * Get the complete secret key for ECIES.
      * @return Secret key for ECIES.
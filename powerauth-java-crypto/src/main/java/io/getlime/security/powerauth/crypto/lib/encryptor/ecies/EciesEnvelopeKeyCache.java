@@ -0,0 +1,207 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.encryptor.ecies;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.exception.EciesException;
+
+import io.getlime.security.powerauth.crypto.lib.util.Hash;
+
+import java.security.PrivateKey;
+import java.security.interfaces.ECPrivateKey;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of ECIES envelope keys derived on the server side from the private key, ephemeral public key
+ * and sharedInfo1 parameter. The derivation consists of ephemeral public key decoding, ECDH key agreement
+ * and KDF, the cache allows skipping all of these steps for clients which reuse the ephemeral key, for example
+ * when retrying a request.
+ * <p>
+ * The cache is used by decryptors created by {@link EciesFactory#EciesFactory(EciesEnvelopeKeyCache)}. Entries
+ * are evicted when the cache exceeds the maximum size and when the entries are older than the configured time
+ * to live. The cache can be disabled at runtime using {@link #setEnabled(boolean)}, for deployments which require
+ * the envelope key to be derived for each request.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class EciesEnvelopeKeyCache {
+
+    private final Cache<CacheKey, EciesEnvelopeKey> cache;
+
+    private volatile boolean enabled = true;
+
+    /**
+     * Constructor with cache limits.
+     *
+     * @param maximumSize Maximum number of cached envelope keys.
+     * @param timeToLive Time to live of the cached envelope keys.
+     * @param timeUnit Unit of the time to live.
+     */
+    public EciesEnvelopeKeyCache(long maximumSize, long timeToLive, TimeUnit timeUnit) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, timeUnit)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get envelope key for given private key, ephemeral public key and sharedInfo1 parameter from the cache,
+     * derive the envelope key in case it is not cached yet. The private key is identified by its fingerprint
+     * in the cache, the cache does not keep any reference to the private key.
+     *
+     * @param privateKeyId Fingerprint of the private key, see {@link #computePrivateKeyId(PrivateKey)}. Use null
+     *                     in case the private key cannot be identified and the envelope key should not be cached.
+     * @param privateKey Private key for ECIES scheme.
+     * @param ephemeralPublicKeyBytes Ephemeral public key bytes.
+     * @param sharedInfo1 Additional information added to sharedInfo1 parameter for KDF function.
+     * @return ECIES envelope key.
+     * @throws EciesException Thrown when key derivation fails.
+     */
+    EciesEnvelopeKey getEnvelopeKey(byte[] privateKeyId, PrivateKey privateKey, byte[] ephemeralPublicKeyBytes, byte[] sharedInfo1) throws EciesException {
+        if (!enabled || privateKeyId == null || ephemeralPublicKeyBytes == null) {
+            return EciesEnvelopeKey.fromPrivateKey(privateKey, ephemeralPublicKeyBytes, sharedInfo1);
+        }
+        final CacheKey cacheKey = new CacheKey(privateKeyId, ephemeralPublicKeyBytes.clone(), sharedInfo1 == null ? null : sharedInfo1.clone());
+        final EciesEnvelopeKey cachedEnvelopeKey = cache.getIfPresent(cacheKey);
+        if (cachedEnvelopeKey != null) {
+            // Return a copy, so that the cached key material is not shared with the caller
+            // The prepared IV key is immutable and it is shared by all copies
+            return new EciesEnvelopeKey(cachedEnvelopeKey.getSecretKey().clone(), cachedEnvelopeKey.getEphemeralKeyPublic().clone(), cachedEnvelopeKey.getPreparedIvKey());
+        }
+        final EciesEnvelopeKey envelopeKey = EciesEnvelopeKey.fromPrivateKey(privateKey, ephemeralPublicKeyBytes, sharedInfo1);
+        cache.put(cacheKey, new EciesEnvelopeKey(envelopeKey.getSecretKey().clone(), cacheKey.ephemeralPublicKeyBytes));
+        return envelopeKey;
+    }
+
+    /**
+     * Compute fingerprint which identifies the private key in the cache, so that the private key value does not
+     * have to be used as a part of the cache key. The fingerprint is SHA-256 of the private key value.
+     *
+     * @param privateKey Private key for ECIES scheme.
+     * @return Fingerprint of the private key, or null in case the private key is not an EC private key.
+     */
+    static byte[] computePrivateKeyId(PrivateKey privateKey) {
+        if (!(privateKey instanceof ECPrivateKey)) {
+            return null;
+        }
+        final byte[] privateKeyValue = ((ECPrivateKey) privateKey).getS().toByteArray();
+        final byte[] privateKeyId = Hash.sha256(privateKeyValue);
+        Arrays.fill(privateKeyValue, (byte) 0);
+        return privateKeyId;
+    }
+
+    /**
+     * Get whether the cache is enabled.
+     *
+     * @return True if the cache is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the cache. When the cache is disabled, the envelope key is derived for each request
+     * and the cache content is discarded.
+     *
+     * @param enabled True if the cache should be enabled.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Remove all envelope keys from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Get approximate number of envelope keys in the cache.
+     *
+     * @return Number of cached envelope keys.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Get number of envelope key lookups which were served from the cache.
+     *
+     * @return Number of cache hits.
+     */
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * Get number of envelope key lookups which required key derivation.
+     *
+     * @return Number of cache misses.
+     */
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * Get ratio of envelope key lookups which were served from the cache, 1.0 when there was no lookup yet.
+     *
+     * @return Cache hit ratio.
+     */
+    public double getHitRatio() {
+        return cache.stats().hitRate();
+    }
+
+    /**
+     * Key of the cache entry.
+     */
+    private static final class CacheKey {
+        private final byte[] privateKeyId;
+        private final byte[] ephemeralPublicKeyBytes;
+        private final byte[] sharedInfo1;
+        private final int hashCode;
+
+        private CacheKey(byte[] privateKeyId, byte[] ephemeralPublicKeyBytes, byte[] sharedInfo1) {
+            this.privateKeyId = privateKeyId;
+            this.ephemeralPublicKeyBytes = ephemeralPublicKeyBytes;
+            this.sharedInfo1 = sharedInfo1;
+            this.hashCode = 31 * (31 * Arrays.hashCode(privateKeyId) + Arrays.hashCode(ephemeralPublicKeyBytes)) + Arrays.hashCode(sharedInfo1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final CacheKey cacheKey = (CacheKey) o;
+            return Arrays.equals(privateKeyId, cacheKey.privateKeyId)
+                    && Arrays.equals(ephemeralPublicKeyBytes, cacheKey.ephemeralPublicKeyBytes)
+                    && Arrays.equals(sharedInfo1, cacheKey.sharedInfo1);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+}
@@ -35,6 +35,25 @@ public class EciesFactory {
 
     private final HMACHashUtilities hmacHashUtilities = new HMACHashUtilities();
 
+    private final EciesEnvelopeKeyCache envelopeKeyCache;
+
+    /**
+     * Default constructor, envelope keys derived by decryptors are not cached.
+     */
+    public EciesFactory() {
+        this(null);
+    }
+
+    /**
+     * Constructor with cache of envelope keys. Decryptors created by this factory for a private key use the cache
+     * to avoid repeated derivation of envelope key for the same ephemeral public key and sharedInfo1 parameter.
+     *
+     * @param envelopeKeyCache Cache of envelope keys, or null if envelope keys should not be cached.
+     */
+    public EciesFactory(EciesEnvelopeKeyCache envelopeKeyCache) {
+        this.envelopeKeyCache = envelopeKeyCache;
+    }
+
     /**
      * Get ECIES encryptor instance for application scope.
      *
@@ -46,8 +65,7 @@ public class EciesFactory {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     public EciesEncryptor getEciesEncryptorForApplication(ECPublicKey publicKey, byte[] applicationSecret, EciesSharedInfo1 sharedInfo1) throws GenericCryptoException, CryptoProviderException {
-        byte[] sharedInfo1Value = sharedInfo1 == null ? EciesSharedInfo1.APPLICATION_SCOPE_GENERIC.value() : sharedInfo1.value();
-        return getEciesEncryptor(EciesScope.APPLICATION_SCOPE, publicKey, applicationSecret, null, sharedInfo1Value);
+        return getEciesEncryptor(EciesScope.APPLICATION_SCOPE, publicKey, applicationSecret, null, resolveSharedInfo1(EciesScope.APPLICATION_SCOPE, sharedInfo1));
     }
 
     /**
@@ -62,8 +80,7 @@ public class EciesFactory {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     public EciesEncryptor getEciesEncryptorForActivation(ECPublicKey publicKey, byte[] applicationSecret, byte[] transportKey, EciesSharedInfo1 sharedInfo1) throws GenericCryptoException, CryptoProviderException {
-        byte[] sharedInfo1Value = sharedInfo1 == null ? EciesSharedInfo1.ACTIVATION_SCOPE_GENERIC.value() : sharedInfo1.value();
-        return getEciesEncryptor(EciesScope.ACTIVATION_SCOPE, publicKey, applicationSecret, transportKey, sharedInfo1Value);
+        return getEciesEncryptor(EciesScope.ACTIVATION_SCOPE, publicKey, applicationSecret, transportKey, resolveSharedInfo1(EciesScope.ACTIVATION_SCOPE, sharedInfo1));
     }
 
     /**
@@ -90,27 +107,15 @@ public class EciesFactory {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     private EciesEncryptor getEciesEncryptor(EciesScope eciesScope, ECPublicKey publicKey, byte[] applicationSecret, byte[] transportKey, byte[] sharedInfo1) throws GenericCryptoException, CryptoProviderException {
-        switch (eciesScope) {
-
-            case APPLICATION_SCOPE: {
-                // Compute hash from APP_SECRET as sharedInfo2
-                byte[] sharedInfo2 = Hash.sha256(applicationSecret);
-                return new EciesEncryptor(publicKey, sharedInfo1, sharedInfo2);
-            }
-
-            case ACTIVATION_SCOPE: {
-                // The sharedInfo2 is defined as HMAC_SHA256(key: KEY_TRANSPORT, data: APP_SECRET)
-                byte[] sharedInfo2 = hmacHashUtilities.hash(transportKey, applicationSecret);
-                return new EciesEncryptor(publicKey, sharedInfo1, sharedInfo2);
-            }
-
-            default:
-                throw new GenericCryptoException("Unsupported ECIES scope: "+eciesScope);
-        }
+        final byte[] sharedInfo2 = deriveSharedInfo2(eciesScope, applicationSecret, transportKey);
+        return new EciesEncryptor(publicKey, sharedInfo1, sharedInfo2);
     }
 
     /**
      * Get ECIES decryptor instance for application scope.
+     * <p>
+     * Parameter sharedInfo2 is derived on each call. Servers decrypting many requests for the same application
+     * should use {@link #getEciesServerContextForApplication(ECPrivateKey, byte[])}, which derives it only once.
      *
      * @param privateKey Private key used for ECIES.
      * @param applicationSecret Application secret.
@@ -120,12 +125,14 @@ public class EciesFactory {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     public EciesDecryptor getEciesDecryptorForApplication(ECPrivateKey privateKey, byte[] applicationSecret, EciesSharedInfo1 sharedInfo1) throws GenericCryptoException, CryptoProviderException {
-        byte[] sharedInfo1Value = sharedInfo1 == null ? EciesSharedInfo1.APPLICATION_SCOPE_GENERIC.value() : sharedInfo1.value();
-        return getEciesDecryptor(EciesScope.APPLICATION_SCOPE, privateKey, applicationSecret, null, sharedInfo1Value);
+        return getEciesDecryptor(EciesScope.APPLICATION_SCOPE, privateKey, applicationSecret, null, resolveSharedInfo1(EciesScope.APPLICATION_SCOPE, sharedInfo1));
     }
 
     /**
      * Get ECIES decryptor instance for activation scope.
+     * <p>
+     * Parameter sharedInfo2 is derived on each call. Servers decrypting many requests for the same activation
+     * should use {@link #getEciesServerContextForActivation(ECPrivateKey, byte[], byte[])}, which derives it only once.
      *
      * @param privateKey Private key used for ECIES.
      * @param applicationSecret Application secret.
@@ -136,8 +143,7 @@ public class EciesFactory {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     public EciesDecryptor getEciesDecryptorForActivation(ECPrivateKey privateKey, byte[] applicationSecret, byte[] transportKey, EciesSharedInfo1 sharedInfo1) throws GenericCryptoException, CryptoProviderException {
-        byte[] sharedInfo1Value = sharedInfo1 == null ? EciesSharedInfo1.ACTIVATION_SCOPE_GENERIC.value() : sharedInfo1.value();
-        return getEciesDecryptor(EciesScope.ACTIVATION_SCOPE, privateKey, applicationSecret, transportKey, sharedInfo1Value);
+        return getEciesDecryptor(EciesScope.ACTIVATION_SCOPE, privateKey, applicationSecret, transportKey, resolveSharedInfo1(EciesScope.ACTIVATION_SCOPE, sharedInfo1));
     }
 
     /**
@@ -164,19 +170,75 @@ public class EciesFactory {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     private EciesDecryptor getEciesDecryptor(EciesScope eciesScope, ECPrivateKey privateKey, byte[] applicationSecret, byte[] transportKey, byte[] sharedInfo1) throws GenericCryptoException, CryptoProviderException {
+        final byte[] sharedInfo2 = deriveSharedInfo2(eciesScope, applicationSecret, transportKey);
+        return new EciesDecryptor(privateKey, sharedInfo1, sharedInfo2, envelopeKeyCache);
+    }
+
+    /**
+     * Get server side ECIES context for application scope. The context precomputes the sharedInfo2 parameter
+     * and it can be shared by all requests for the application.
+     *
+     * @param privateKey Private key used for ECIES.
+     * @param applicationSecret Application secret.
+     * @return Server side ECIES context.
+     * @throws GenericCryptoException In case the context could not be initialized.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public EciesServerContext getEciesServerContextForApplication(ECPrivateKey privateKey, byte[] applicationSecret) throws GenericCryptoException, CryptoProviderException {
+        final byte[] sharedInfo2 = deriveSharedInfo2(EciesScope.APPLICATION_SCOPE, applicationSecret, null);
+        return new EciesServerContext(EciesScope.APPLICATION_SCOPE, privateKey, sharedInfo2, envelopeKeyCache);
+    }
+
+    /**
+     * Get server side ECIES context for activation scope. The context precomputes the sharedInfo2 parameter
+     * and it can be shared by all requests for the activation.
+     *
+     * @param privateKey Private key used for ECIES.
+     * @param applicationSecret Application secret.
+     * @param transportKey Transport key.
+     * @return Server side ECIES context.
+     * @throws GenericCryptoException In case the context could not be initialized.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public EciesServerContext getEciesServerContextForActivation(ECPrivateKey privateKey, byte[] applicationSecret, byte[] transportKey) throws GenericCryptoException, CryptoProviderException {
+        final byte[] sharedInfo2 = deriveSharedInfo2(EciesScope.ACTIVATION_SCOPE, applicationSecret, transportKey);
+        return new EciesServerContext(EciesScope.ACTIVATION_SCOPE, privateKey, sharedInfo2, envelopeKeyCache);
+    }
+
+    /**
+     * Resolve bytes of parameter sharedInfo1, the generic value of ECIES scope is used when sharedInfo1 is not specified.
+     *
+     * @param eciesScope ECIES scope.
+     * @param sharedInfo1 Additional information for sharedInfo1 parameter using pre-defined constants, or null.
+     * @return Bytes of parameter sharedInfo1.
+     */
+    static byte[] resolveSharedInfo1(EciesScope eciesScope, EciesSharedInfo1 sharedInfo1) {
+        if (sharedInfo1 != null) {
+            return sharedInfo1.value();
+        }
+        return eciesScope == EciesScope.ACTIVATION_SCOPE ? EciesSharedInfo1.ACTIVATION_SCOPE_GENERIC.value() : EciesSharedInfo1.APPLICATION_SCOPE_GENERIC.value();
+    }
+
+    /**
+     * Derive parameter sharedInfo2 based on ECIES scope.
+     *
+     * @param eciesScope ECIES scope.
+     * @param applicationSecret Application secret.
+     * @param transportKey Transport key for activation scope. Use null value for application scope.
+     * @return Parameter sharedInfo2 for ECIES.
+     * @throws GenericCryptoException In case the ECIES scope is not supported or the derivation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    private byte[] deriveSharedInfo2(EciesScope eciesScope, byte[] applicationSecret, byte[] transportKey) throws GenericCryptoException, CryptoProviderException {
         switch (eciesScope) {
 
-            case APPLICATION_SCOPE: {
+            case APPLICATION_SCOPE:
                 // Compute hash from APP_SECRET as sharedInfo2
-                byte[] sharedInfo2 = Hash.sha256(applicationSecret);
-                return new EciesDecryptor(privateKey, sharedInfo1, sharedInfo2);
-            }
+                return Hash.sha256(applicationSecret);
 
-            case ACTIVATION_SCOPE: {
+            case ACTIVATION_SCOPE:
                 // The sharedInfo2 is defined as HMAC_SHA256(key: KEY_TRANSPORT, data: APP_SECRET)
-                byte[] sharedInfo2 = hmacHashUtilities.hash(transportKey, applicationSecret);
-                return new EciesDecryptor(privateKey, sharedInfo1, sharedInfo2);
-            }
+                return hmacHashUtilities.hash(transportKey, applicationSecret);
 
             default:
                 throw new GenericCryptoException("Unsupported ECIES scope: "+eciesScope);
@@ -0,0 +1,102 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.encryptor.ecies;
+
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesScope;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesSharedInfo1;
+
+import java.security.interfaces.ECPrivateKey;
+
+/**
+ * Immutable server side ECIES context for an application, or for an activation. The context holds the private key
+ * and the sharedInfo2 parameter, which is derived from the application secret (and the transport key in activation
+ * scope) only once when the context is created. The context is thread-safe and it can be shared by all requests
+ * for the application or activation, each request uses a lightweight single-use decryptor created by
+ * {@link #createDecryptor(EciesSharedInfo1)}.
+ * <p>
+ * Use {@link EciesFactory#getEciesServerContextForApplication(ECPrivateKey, byte[])} or
+ * {@link EciesFactory#getEciesServerContextForActivation(ECPrivateKey, byte[], byte[])} to create the context.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public final class EciesServerContext {
+
+    private final EciesScope eciesScope;
+    private final ECPrivateKey privateKey;
+    private final byte[] sharedInfo2;
+    private final EciesEnvelopeKeyCache envelopeKeyCache;
+    private final byte[] privateKeyId;
+
+    /**
+     * Constructor with ECIES scope, private key, precomputed sharedInfo2 parameter and cache of envelope keys.
+     *
+     * @param eciesScope ECIES scope.
+     * @param privateKey Private key used for ECIES.
+     * @param sharedInfo2 Parameter sharedInfo2 for ECIES, the array must not be modified after the context is created.
+     * @param envelopeKeyCache Cache of envelope keys, or null if envelope keys should not be cached.
+     */
+    EciesServerContext(EciesScope eciesScope, ECPrivateKey privateKey, byte[] sharedInfo2, EciesEnvelopeKeyCache envelopeKeyCache) {
+        this.eciesScope = eciesScope;
+        this.privateKey = privateKey;
+        this.sharedInfo2 = sharedInfo2;
+        this.envelopeKeyCache = envelopeKeyCache;
+        // The identifier of the private key for the envelope key cache is computed only once for the context
+        this.privateKeyId = envelopeKeyCache == null ? null : EciesEnvelopeKeyCache.computePrivateKeyId(privateKey);
+    }
+
+    /**
+     * Create a decryptor for a single request with the generic sharedInfo1 parameter of the context scope.
+     *
+     * @return Initialized ECIES decryptor.
+     */
+    public EciesDecryptor createDecryptor() {
+        return createDecryptor(null);
+    }
+
+    /**
+     * Create a decryptor for a single request. The decryptor decrypts the request and encrypts the response,
+     * it must not be shared by multiple requests.
+     *
+     * @param sharedInfo1 Additional information for sharedInfo1 parameter using pre-defined constants, or null
+     *                    for the generic value of the context scope.
+     * @return Initialized ECIES decryptor.
+     */
+    public EciesDecryptor createDecryptor(EciesSharedInfo1 sharedInfo1) {
+        final byte[] sharedInfo1Value = EciesFactory.resolveSharedInfo1(eciesScope, sharedInfo1);
+        // The decryptor exposes sharedInfo2, so it gets a copy of the shared value
+        return new EciesDecryptor(privateKey, sharedInfo1Value, sharedInfo2.clone(), envelopeKeyCache, privateKeyId);
+    }
+
+    /**
+     * Get ECIES scope of the context.
+     *
+     * @return ECIES scope.
+     */
+    public EciesScope getEciesScope() {
+        return eciesScope;
+    }
+
+    /**
+     * Get parameter sharedInfo2 for ECIES.
+     *
+     * @return Copy of parameter sharedInfo2 for ECIES.
+     */
+    public byte[] getSharedInfo2() {
+        return sharedInfo2.clone();
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.encryptor.ecies;
+
+import com.google.common.io.ByteSource;
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.exception.EciesException;
+import io.getlime.security.powerauth.provider.CryptoPrimitiveFamily;
+import io.getlime.security.powerauth.provider.CryptoProviderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.*;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.*;
+
+/**
+ * Streaming implementation of the ECIES data encryption and MAC computation. The data is encrypted using
+ * AES/CBC/PKCS7Padding in chunks and the MAC is computed incrementally over the encrypted data and sharedInfo2,
+ * so that the memory usage does not depend on the payload size. The produced encrypted data and MAC are identical
+ * to the values in {@link io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesCryptogram} created
+ * by the non-streaming methods. Decryption reads the encrypted data twice, because the MAC is validated before
+ * the data is decrypted.
+ * <p>
+ * Fresh cipher and MAC instances are used for each operation, because streams may invoke other cryptographic
+ * operations on the same thread while the operation is in progress.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+final class EciesStreamCipher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EciesStreamCipher.class);
+
+    /**
+     * Size of the buffer used for reading the input stream.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Size of the output buffer, cipher may output one more block from previous updates and one padding block.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = BUFFER_SIZE + 32;
+
+    private EciesStreamCipher() {
+    }
+
+    /**
+     * Encrypt data from the input stream and write the encrypted data into the output stream.
+     *
+     * @param input Input stream with data to encrypt.
+     * @param output Output stream for encrypted data.
+     * @param encKey Encryption key bytes.
+     * @param iv Initialization vector.
+     * @param macKey MAC key bytes.
+     * @param sharedInfo2 Parameter sharedInfo2 for ECIES, may be null.
+     * @return MAC of the encrypted data and sharedInfo2.
+     * @throws EciesException In case encryption fails or streams cannot be read or written.
+     */
+    static byte[] encrypt(InputStream input, OutputStream output, byte[] encKey, byte[] iv, byte[] macKey, byte[] sharedInfo2) throws EciesException {
+        final Cipher aes = initCipher(Cipher.ENCRYPT_MODE, encKey, iv);
+        final Mac hmac = initMac(macKey);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final byte[] outputBuffer = new byte[OUTPUT_BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                final int written = aes.update(buffer, 0, read, outputBuffer, 0);
+                hmac.update(outputBuffer, 0, written);
+                output.write(outputBuffer, 0, written);
+            }
+            final int written = aes.doFinal(outputBuffer, 0);
+            hmac.update(outputBuffer, 0, written);
+            output.write(outputBuffer, 0, written);
+            if (sharedInfo2 != null) {
+                hmac.update(sharedInfo2);
+            }
+            return hmac.doFinal();
+        } catch (IOException | ShortBufferException | IllegalBlockSizeException | BadPaddingException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new EciesException("Stream encryption failed", ex);
+        }
+    }
+
+    /**
+     * Decrypt data from the source and write the decrypted data into the output stream. The source is read twice,
+     * the MAC of the encrypted data and sharedInfo2 is validated during the first pass and the data is decrypted
+     * during the second pass, so that no unauthenticated data is written into the output stream. The source must
+     * provide the same content each time it is opened.
+     *
+     * @param source Source of encrypted data.
+     * @param output Output stream for decrypted data.
+     * @param encKey Encryption key bytes.
+     * @param iv Initialization vector.
+     * @param macKey MAC key bytes.
+     * @param sharedInfo2 Parameter sharedInfo2 for ECIES, may be null.
+     * @param expectedMac Expected MAC of the encrypted data and sharedInfo2.
+     * @throws EciesException In case MAC value is invalid, decryption fails or streams cannot be read or written.
+     */
+    static void decrypt(ByteSource source, OutputStream output, byte[] encKey, byte[] iv, byte[] macKey, byte[] sharedInfo2, byte[] expectedMac) throws EciesException {
+        final Mac hmac = initMac(macKey);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final byte[] outputBuffer = new byte[OUTPUT_BUFFER_SIZE];
+        try {
+            // Validate MAC before any decrypted data is written
+            try (final InputStream input = source.openStream()) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    hmac.update(buffer, 0, read);
+                }
+            }
+            if (sharedInfo2 != null) {
+                hmac.update(sharedInfo2);
+            }
+            if (!MessageDigest.isEqual(hmac.doFinal(), expectedMac)) {
+                throw new EciesException("Invalid MAC");
+            }
+            final Cipher aes = initCipher(Cipher.DECRYPT_MODE, encKey, iv);
+            try (final InputStream input = source.openStream()) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    final int written = aes.update(buffer, 0, read, outputBuffer, 0);
+                    output.write(outputBuffer, 0, written);
+                }
+            }
+            final int written = aes.doFinal(outputBuffer, 0);
+            output.write(outputBuffer, 0, written);
+        } catch (IOException | ShortBufferException | IllegalBlockSizeException | BadPaddingException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new EciesException("Stream decryption failed", ex);
+        }
+    }
+
+    /**
+     * Initialize AES cipher for streaming encryption or decryption.
+     *
+     * @param mode Cipher mode.
+     * @param encKey Encryption key bytes.
+     * @param iv Initialization vector.
+     * @return Initialized cipher.
+     * @throws EciesException In case cipher initialization fails.
+     */
+    private static Cipher initCipher(int mode, byte[] encKey, byte[] iv) throws EciesException {
+        try {
+            final CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+            final Cipher aes = Cipher.getInstance(keyConvertor.getCipherTransformation("AES/CBC/PKCS7Padding"), keyConvertor.getProviderName(CryptoPrimitiveFamily.AES));
+            aes.init(mode, new SecretKeySpec(encKey, "AES"), new IvParameterSpec(iv));
+            return aes;
+        } catch (NoSuchAlgorithmException | NoSuchProviderException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new EciesException("Cipher initialization failed", ex);
+        }
+    }
+
+    /**
+     * Initialize HMAC-SHA256 for streaming MAC computation.
+     *
+     * @param macKey MAC key bytes.
+     * @return Initialized MAC.
+     * @throws EciesException In case MAC initialization fails.
+     */
+    private static Mac initMac(byte[] macKey) throws EciesException {
+        try {
+            final Mac hmac = Mac.getInstance("HmacSHA256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.HMAC));
+            hmac.init(new SecretKeySpec(macKey, "HmacSHA256"));
+            return hmac;
+        } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeyException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new EciesException("MAC initialization failed", ex);
+        }
+    }
+
+}
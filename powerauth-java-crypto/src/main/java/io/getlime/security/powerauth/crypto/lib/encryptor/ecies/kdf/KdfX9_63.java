@@ -16,12 +16,17 @@
  */
 package io.getlime.security.powerauth.crypto.lib.encryptor.ecies.kdf;
 
-import com.google.common.primitives.Bytes;
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
-import io.getlime.security.powerauth.crypto.lib.util.Hash;
+import io.getlime.security.powerauth.crypto.lib.util.CryptoEngineCache;
+import io.getlime.security.powerauth.provider.CryptoPrimitiveFamily;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
 
 /**
  * Implementation of X9.63 KDF function with SHA256 digest type.
@@ -30,6 +35,13 @@ import java.util.Arrays;
  */
 public class KdfX9_63 {
 
+    private static final Logger logger = LoggerFactory.getLogger(KdfX9_63.class);
+
+    /**
+     * Size of SHA256 digest in bytes.
+     */
+    private static final int DIGEST_SIZE = 32;
+
     /**
      * Derive a new key using X9.63 with SHA256 digest.
      * @param secret Secret key to be used as the derivation base key.
@@ -39,39 +51,58 @@ public class KdfX9_63 {
      * @throws GenericCryptoException In case key derivation fails.
      */
     public static byte[] derive(byte[] secret, byte[] sharedInfo, int outputBytes) throws GenericCryptoException {
+        final byte[] result = new byte[Math.max(outputBytes, 0)];
+        derive(secret, sharedInfo, result.length, result, 0);
+        return result;
+    }
+
+    /**
+     * Derive a new key using X9.63 with SHA256 digest and store it into provided output array. Each round of the KDF
+     * computes {@code SHA256(secret || counter || sharedInfo)} with a digest reused by the calling thread, the digest
+     * output is written directly to the output array.
+     * @param secret Secret key to be used as the derivation base key.
+     * @param sharedInfo Extra information used for derived key computation.
+     * @param outputBytes Requested size of the key.
+     * @param out Output array for the derived key.
+     * @param offset Offset in the output array where the derived key is stored.
+     * @throws GenericCryptoException In case key derivation fails or the output array is too small.
+     */
+    public static void derive(byte[] secret, byte[] sharedInfo, int outputBytes, byte[] out, int offset) throws GenericCryptoException {
         if (secret == null) {
             throw new GenericCryptoException("Missing secret for KDF X9.63");
         }
-        byte[] result = new byte[0];
-        byte[] round = new byte[secret.length + 4 + (sharedInfo == null ? 0 : sharedInfo.length)];
-        byte[] temp;
-        byte[] counter;
-        int i = 1;
-        while (result.length < outputBytes) {
-            // Copy secret
-            System.arraycopy(secret, 0, round, 0, secret.length);
-            // Copy counter
-            counter = ByteBuffer.allocate(4).putInt(i).array();
-            System.arraycopy(counter, 0, round, secret.length, 4);
-            // Copy additional sharedInfo
-            if (sharedInfo != null) {
-                System.arraycopy(sharedInfo, 0, round, secret.length + 4, sharedInfo.length);
-            }
-            // Hash the value
-            temp = Hash.sha256(round);
-            if (temp == null || temp.length == 0) {
-                result = new byte[0];
-                break;
-            }
-            // Append working batch to result
-            result = Bytes.concat(result, temp);
-            ++i;
+        if (out == null || outputBytes < 0 || offset < 0 || offset > out.length - outputBytes) {
+            throw new GenericCryptoException("Invalid output for KDF X9.63");
         }
-        // Trim the array to the desired length
-        if (result.length > outputBytes) {
-            result = Arrays.copyOf(result, outputBytes);
+        try {
+            final String providerName = PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.DIGEST);
+            final MessageDigest sha256 = CryptoEngineCache.getMessageDigest("SHA-256", providerName);
+            final byte[] counter = new byte[4];
+            for (int position = 0, i = 1; position < outputBytes; position += DIGEST_SIZE, i++) {
+                // Counter is a 32-bit big endian integer starting with 1
+                counter[0] = (byte) (i >>> 24);
+                counter[1] = (byte) (i >>> 16);
+                counter[2] = (byte) (i >>> 8);
+                counter[3] = (byte) i;
+                sha256.update(secret);
+                sha256.update(counter);
+                if (sharedInfo != null) {
+                    sha256.update(sharedInfo);
+                }
+                final int remaining = outputBytes - position;
+                if (remaining >= DIGEST_SIZE) {
+                    sha256.digest(out, offset + position, DIGEST_SIZE);
+                } else {
+                    // Trim the last round to the desired length
+                    final byte[] lastRound = new byte[DIGEST_SIZE];
+                    sha256.digest(lastRound, 0, DIGEST_SIZE);
+                    System.arraycopy(lastRound, 0, out, offset + position, remaining);
+                }
+            }
+        } catch (NoSuchAlgorithmException | NoSuchProviderException | DigestException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
         }
-        return result;
     }
 
 }
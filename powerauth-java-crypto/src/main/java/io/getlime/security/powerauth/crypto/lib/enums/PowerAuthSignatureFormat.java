@@ -17,8 +17,10 @@
 
 package io.getlime.security.powerauth.crypto.lib.enums;
 
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -63,7 +65,23 @@ public enum PowerAuthSignatureFormat {
      */
     private final static Map<String, PowerAuthSignatureFormat> versionToEnumMap = new HashMap<>();
 
+    /**
+     * Modulo used for the decimal signature components.
+     */
+    private final static int DECIMAL_MODULO = (int) Math.pow(10, PowerAuthConfiguration.SIGNATURE_DECIMAL_LENGTH);
+
+    /**
+     * Lookup table translating Base64 characters into 6-bit values, -1 for characters outside of the alphabet.
+     */
+    private final static byte[] BASE64_DECODING_TABLE = new byte[128];
+
     static {
+        // Prepare Base64 decoding table
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        Arrays.fill(BASE64_DECODING_TABLE, (byte) -1);
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_DECODING_TABLE[alphabet.charAt(i)] = (byte) i;
+        }
         // Prepare string to enumeration mapping
         for (PowerAuthSignatureFormat format : PowerAuthSignatureFormat.values()) {
             stringToEnumMap.put(format.toString(), format);
@@ -131,4 +149,164 @@ public enum PowerAuthSignatureFormat {
     public boolean equalsName(String otherName) {
         return toString().equalsIgnoreCase(otherName);
     }
+
+    /**
+     * Get length of one signature component in the binary form used by {@link #decodeSignature(CharSequence, int, byte[])}
+     * and {@link #truncateSignatureComponent(byte[], byte[], int)}. Decimal components are stored as 4-byte big-endian
+     * integers, Base64 components as 16 bytes of the truncated HMAC.
+     *
+     * @return Length of one signature component in bytes.
+     */
+    public int getComponentLength() {
+        return this == DECIMAL ? 4 : PowerAuthConfiguration.SIGNATURE_BINARY_LENGTH;
+    }
+
+    /**
+     * Decode signature in this format into its binary components. Only the canonical form of the signature, as produced
+     * by the signature computation, is accepted. The method does not throw for malformed input, so that garbage signatures
+     * can be rejected before any HMAC is computed.
+     *
+     * @param signature Signature to be decoded.
+     * @param factorCount Expected number of signature factors.
+     * @param components Array for decoded components, at least {@code factorCount * getComponentLength()} bytes long.
+     * @return True if signature is well formed, false otherwise.
+     */
+    public boolean decodeSignature(CharSequence signature, int factorCount, byte[] components) {
+        if (signature == null) {
+            return false;
+        }
+        if (this == DECIMAL) {
+            return decodeDecimalSignature(signature, factorCount, components);
+        }
+        return decodeBase64Signature(signature, factorCount, components);
+    }
+
+    /**
+     * Convert full HMAC output of one signature factor into the binary component of this format and store it
+     * into the destination array at position of the factor.
+     *
+     * @param signatureComponent HMAC output for the signature factor.
+     * @param components Destination array for signature components.
+     * @param factorIndex Index of the signature factor.
+     */
+    public void truncateSignatureComponent(byte[] signatureComponent, byte[] components, int factorIndex) {
+        final int destinationOffset = factorIndex * getComponentLength();
+        if (this == DECIMAL) {
+            final int index = signatureComponent.length - 4;
+            final int value = ((signatureComponent[index] & 0xFF) << 24) | ((signatureComponent[index + 1] & 0xFF) << 16)
+                    | ((signatureComponent[index + 2] & 0xFF) << 8) | (signatureComponent[index + 3] & 0xFF);
+            writeInt((value & 0x7FFFFFFF) % DECIMAL_MODULO, components, destinationOffset);
+        } else {
+            final int sourceOffset = signatureComponent.length - PowerAuthConfiguration.SIGNATURE_BINARY_LENGTH;
+            System.arraycopy(signatureComponent, sourceOffset, components, destinationOffset, PowerAuthConfiguration.SIGNATURE_BINARY_LENGTH);
+        }
+    }
+
+    /**
+     * Decode decimal formatted signature, each component is stored as 4-byte big-endian integer.
+     *
+     * @param signature Signature to be decoded.
+     * @param factorCount Expected number of signature factors.
+     * @param components Array for decoded components.
+     * @return True if signature is well formed, false otherwise.
+     */
+    private static boolean decodeDecimalSignature(CharSequence signature, int factorCount, byte[] components) {
+        final int componentLength = PowerAuthConfiguration.SIGNATURE_DECIMAL_LENGTH;
+        if (signature.length() != factorCount * (componentLength + 1) - 1) {
+            return false;
+        }
+        for (int i = 0; i < factorCount; i++) {
+            final int offset = i * (componentLength + 1);
+            if (i > 0 && signature.charAt(offset - 1) != '-') {
+                return false;
+            }
+            int value = 0;
+            for (int j = 0; j < componentLength; j++) {
+                final char c = signature.charAt(offset + j);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+                value = value * 10 + (c - '0');
+            }
+            writeInt(value, components, i * 4);
+        }
+        return true;
+    }
+
+    /**
+     * Decode Base64 formatted signature with {@code "="} padding into its binary components.
+     *
+     * @param signature Signature to be decoded.
+     * @param factorCount Expected number of signature factors.
+     * @param components Array for decoded bytes.
+     * @return True if signature is well formed, false otherwise.
+     */
+    private static boolean decodeBase64Signature(CharSequence signature, int factorCount, byte[] components) {
+        final int byteCount = factorCount * PowerAuthConfiguration.SIGNATURE_BINARY_LENGTH;
+        if (signature.length() != ((byteCount + 2) / 3) * 4) {
+            return false;
+        }
+        final int fullGroups = byteCount / 3;
+        int out = 0;
+        for (int group = 0; group < fullGroups; group++) {
+            final int offset = group * 4;
+            final int s0 = decodeBase64Char(signature.charAt(offset));
+            final int s1 = decodeBase64Char(signature.charAt(offset + 1));
+            final int s2 = decodeBase64Char(signature.charAt(offset + 2));
+            final int s3 = decodeBase64Char(signature.charAt(offset + 3));
+            if ((s0 | s1 | s2 | s3) < 0) {
+                return false;
+            }
+            components[out++] = (byte) ((s0 << 2) | (s1 >> 4));
+            components[out++] = (byte) ((s1 << 4) | (s2 >> 2));
+            components[out++] = (byte) ((s2 << 6) | s3);
+        }
+        final int remainder = byteCount - fullGroups * 3;
+        if (remainder > 0) {
+            final int offset = fullGroups * 4;
+            final int s0 = decodeBase64Char(signature.charAt(offset));
+            final int s1 = decodeBase64Char(signature.charAt(offset + 1));
+            if ((s0 | s1) < 0 || signature.charAt(offset + 3) != '=') {
+                return false;
+            }
+            components[out++] = (byte) ((s0 << 2) | (s1 >> 4));
+            if (remainder == 1) {
+                // Unused bits must be zero in canonical encoding
+                if ((s1 & 0x0F) != 0 || signature.charAt(offset + 2) != '=') {
+                    return false;
+                }
+            } else {
+                final int s2 = decodeBase64Char(signature.charAt(offset + 2));
+                if (s2 < 0 || (s2 & 0x03) != 0) {
+                    return false;
+                }
+                components[out] = (byte) ((s1 << 4) | (s2 >> 2));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode a single Base64 character.
+     *
+     * @param c Character to be decoded.
+     * @return Decoded 6-bit value, or -1 for characters outside of the Base64 alphabet.
+     */
+    private static int decodeBase64Char(char c) {
+        return c < BASE64_DECODING_TABLE.length ? BASE64_DECODING_TABLE[c] : -1;
+    }
+
+    /**
+     * Write integer in big-endian byte order.
+     *
+     * @param value Value to be written.
+     * @param destination Destination array.
+     * @param offset Offset in destination array.
+     */
+    private static void writeInt(int value, byte[] destination, int offset) {
+        destination[offset] = (byte) (value >>> 24);
+        destination[offset + 1] = (byte) (value >>> 16);
+        destination[offset + 2] = (byte) (value >>> 8);
+        destination[offset + 3] = (byte) value;
+    }
 }
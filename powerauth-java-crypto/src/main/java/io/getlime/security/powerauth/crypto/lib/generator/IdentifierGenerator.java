@@ -30,9 +30,9 @@ import org.slf4j.LoggerFactory;
 import javax.crypto.SecretKey;
 import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 /**
  * Generator of identifiers used in PowerAuth protocol.
@@ -67,6 +67,16 @@ public class IdentifierGenerator {
      */
     private static final int PUK_DERIVATION_MAX_ATTEMPTS = 20;
 
+    /**
+     * Number of recovery codes generated by a single task in bulk generation.
+     */
+    private static final int RECOVERY_CODE_BATCH_CHUNK_SIZE = 64;
+
+    /**
+     * Maximum number of tasks with generated recovery codes waiting for the consumer in bulk generation.
+     */
+    private static final int RECOVERY_CODE_BATCH_MAX_PENDING_CHUNKS = 32;
+
     private final KeyGenerator keyGenerator = new KeyGenerator();
 
     /**
@@ -229,6 +239,7 @@ public class IdentifierGenerator {
 
         final Map<Integer, Long> pukDerivationIndexes = new LinkedHashMap<>();
         final Map<Integer, String> puks = new LinkedHashMap<>();
+        final Set<String> uniquePuks = new HashSet<>();
 
         for (int i = 1; i <= pukCount; i++) {
             Long derivationIndex;
@@ -246,7 +257,7 @@ public class IdentifierGenerator {
                     throw new GenericCryptoException("PUK derivation failed due to exceeding maximum number of attempts for generating unique PUK");
                 }
                 // Make sure that generated PUK is unique
-            } while (puks.containsValue(derivedPuk));
+            } while (!uniquePuks.add(derivedPuk));
 
             // Store generated PUK including its derivation index
             puks.put(i, derivedPuk);
@@ -260,6 +271,98 @@ public class IdentifierGenerator {
         }
     }
 
+    /**
+     * Generate recovery codes and PUKs for multiple secret keys in parallel using the common fork-join pool.
+     *
+     * @see #generateRecoveryCodes(List, int, boolean, ExecutorService, Consumer)
+     * @param secretKeys Secret keys to use for derivation of recovery codes and PUKs.
+     * @param pukCount Number of PUKs to generate for each recovery code.
+     * @param exportSeed Whether to export seed information.
+     * @param consumer Consumer of generated recovery codes, PUKs and optional seed information.
+     * @throws GenericCryptoException In case of any cryptography error.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     * @throws InvalidKeyException In case key is invalid.
+     */
+    public void generateRecoveryCodes(List<SecretKey> secretKeys, int pukCount, boolean exportSeed, Consumer<RecoveryInfo> consumer) throws GenericCryptoException, CryptoProviderException, InvalidKeyException {
+        generateRecoveryCodes(secretKeys, pukCount, exportSeed, ForkJoinPool.commonPool(), consumer);
+    }
+
+    /**
+     * Generate recovery codes and PUKs for multiple secret keys in parallel using provided executor. The secret keys
+     * are split into chunks which are processed as separate tasks, see {@link #generateRecoveryCode(SecretKey, int, boolean)}
+     * for details about generating a single recovery code.
+     * <p>
+     * Generated recovery codes are passed to the consumer in the order of secret keys, the consumer is always called
+     * from the calling thread. The number of generated recovery codes waiting for the consumer is limited, so that
+     * large batches can be streamed to an output without keeping all results in memory.
+     *
+     * @param secretKeys Secret keys to use for derivation of recovery codes and PUKs.
+     * @param pukCount Number of PUKs to generate for each recovery code.
+     * @param exportSeed Whether to export seed information.
+     * @param executor Executor used for generating recovery codes.
+     * @param consumer Consumer of generated recovery codes, PUKs and optional seed information.
+     * @throws GenericCryptoException In case of any cryptography error or when the generation is interrupted.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     * @throws InvalidKeyException In case key is invalid.
+     */
+    public void generateRecoveryCodes(List<SecretKey> secretKeys, int pukCount, boolean exportSeed, ExecutorService executor, Consumer<RecoveryInfo> consumer) throws GenericCryptoException, CryptoProviderException, InvalidKeyException {
+        if (secretKeys == null || executor == null || consumer == null) {
+            throw new GenericCryptoException("Invalid input data");
+        }
+        final Deque<Future<List<RecoveryInfo>>> pendingChunks = new ArrayDeque<>();
+        try {
+            for (int from = 0; from < secretKeys.size(); from += RECOVERY_CODE_BATCH_CHUNK_SIZE) {
+                if (pendingChunks.size() == RECOVERY_CODE_BATCH_MAX_PENDING_CHUNKS) {
+                    pendingChunks.removeFirst().get().forEach(consumer);
+                }
+                final List<SecretKey> chunk = secretKeys.subList(from, Math.min(from + RECOVERY_CODE_BATCH_CHUNK_SIZE, secretKeys.size()));
+                pendingChunks.addLast(executor.submit(() -> generateRecoveryCodeChunk(chunk, pukCount, exportSeed)));
+            }
+            while (!pendingChunks.isEmpty()) {
+                pendingChunks.removeFirst().get().forEach(consumer);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GenericCryptoException("Recovery code generation was interrupted", ex);
+        } catch (ExecutionException ex) {
+            logger.warn(ex.getMessage(), ex);
+            if (ex.getCause() instanceof GenericCryptoException) {
+                throw (GenericCryptoException) ex.getCause();
+            }
+            if (ex.getCause() instanceof CryptoProviderException) {
+                throw (CryptoProviderException) ex.getCause();
+            }
+            if (ex.getCause() instanceof InvalidKeyException) {
+                throw (InvalidKeyException) ex.getCause();
+            }
+            throw new GenericCryptoException(ex.getMessage(), ex.getCause());
+        } finally {
+            // Cancel remaining tasks in case of an error
+            for (Future<List<RecoveryInfo>> future : pendingChunks) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Generate recovery codes and PUKs for a chunk of secret keys.
+     *
+     * @param secretKeys Secret keys to use for derivation of recovery codes and PUKs.
+     * @param pukCount Number of PUKs to generate for each recovery code.
+     * @param exportSeed Whether to export seed information.
+     * @return Generated recovery codes, PUKs and optional seed information.
+     * @throws GenericCryptoException In case of any cryptography error.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     * @throws InvalidKeyException In case key is invalid.
+     */
+    private List<RecoveryInfo> generateRecoveryCodeChunk(List<SecretKey> secretKeys, int pukCount, boolean exportSeed) throws GenericCryptoException, CryptoProviderException, InvalidKeyException {
+        final List<RecoveryInfo> result = new ArrayList<>(secretKeys.size());
+        for (SecretKey secretKey : secretKeys) {
+            result.add(generateRecoveryCode(secretKey, pukCount, exportSeed));
+        }
+        return result;
+    }
+
     /**
      * Derive recovery code and PUKs for given secret key and seed information.
      * @param secretKey Secret key to use for derivation of recovery code and PUKs.
@@ -346,16 +449,21 @@ public class IdentifierGenerator {
      * @throws InvalidKeyException In case key is invalid.
      */
     private String generatePuk(SecretKey recoveryPukBaseKey, byte[] indexBytes) throws CryptoProviderException, InvalidKeyException, GenericCryptoException {
-        SecretKey pukKey = keyGenerator.deriveSecretKey(recoveryPukBaseKey, indexBytes);
-        byte[] pukKeyBytes = PowerAuthConfiguration.INSTANCE.getKeyConvertor().convertSharedSecretKeyToBytes(pukKey);
+        // Derive PUK key the same way as KeyGenerator.deriveSecretKey(), without creating the intermediate secret key
+        final byte[] pukKeyBytes = new byte[16];
+        keyGenerator.deriveSecretKeyBytes(recoveryPukBaseKey, indexBytes, pukKeyBytes);
 
         // Extract last 8 bytes from PUK key bytes
-        byte[] truncatedBytes = new byte[8];
-        System.arraycopy(pukKeyBytes, 8, truncatedBytes, 0, 8);
+        final long truncated = ByteBuffer.wrap(pukKeyBytes, 8, 8).getLong();
 
         // Decimalize the PUK
-        long puk = (ByteBuffer.wrap(truncatedBytes).getLong() & 0xFFFFFFFFFFL) % (long) (Math.pow(10, 10));
-        return String.format("%010d", puk);
+        long puk = (truncated & 0xFFFFFFFFFFL) % 10_000_000_000L;
+        final char[] pukChars = new char[10];
+        for (int i = pukChars.length - 1; i >= 0; i--) {
+            pukChars[i] = (char) ('0' + puk % 10);
+            puk /= 10;
+        }
+        return new String(pukChars);
     }
 
     /**
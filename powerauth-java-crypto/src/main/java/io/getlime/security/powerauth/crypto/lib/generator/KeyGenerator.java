@@ -18,22 +18,28 @@ package io.getlime.security.powerauth.crypto.lib.generator;
 
 import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
-import io.getlime.security.powerauth.crypto.lib.util.AESEncryptionUtils;
+import io.getlime.security.powerauth.crypto.lib.util.CryptoEngineCache;
 import io.getlime.security.powerauth.crypto.lib.util.HMACHashUtilities;
+import io.getlime.security.powerauth.provider.CryptoPrimitiveFamily;
 import io.getlime.security.powerauth.provider.CryptoProviderUtil;
 import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.KeyAgreement;
+import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.*;
 import java.security.spec.ECGenParameterSpec;
 import java.security.spec.InvalidKeySpecException;
-import java.util.Arrays;
 
 /**
  * An implementation of a high-level key generator class. Keys are generated
@@ -47,6 +53,16 @@ public class KeyGenerator {
 
     private static final Logger logger = LoggerFactory.getLogger(KeyGenerator.class);
 
+    /**
+     * Length of a key derived using {@link #deriveSecretKeyBytes(SecretKey, byte[], byte[])}.
+     */
+    private static final int DERIVED_KEY_LENGTH = 16;
+
+    /**
+     * Zero initialization vector used for AES key derivation.
+     */
+    private static final IvParameterSpec ZERO_IV = new IvParameterSpec(new byte[16]);
+
     private final SecureRandom random = new SecureRandom();
 
     /**
@@ -58,7 +74,7 @@ public class KeyGenerator {
     public KeyPair generateKeyPair() throws CryptoProviderException {
         try {
             // we assume BouncyCastle provider
-            KeyPairGenerator kpg = KeyPairGenerator.getInstance("ECDH", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            KeyPairGenerator kpg = KeyPairGenerator.getInstance("ECDH", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.EC));
             kpg.initialize(new ECGenParameterSpec("secp256r1"));
             return kpg.generateKeyPair();
         } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidAlgorithmParameterException ex) {
@@ -80,7 +96,7 @@ public class KeyGenerator {
      */
     public SecretKey computeSharedKey(PrivateKey privateKey, PublicKey publicKey, boolean keep32b) throws InvalidKeyException, CryptoProviderException {
         try {
-            KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.EC));
             keyAgreement.init(privateKey);
             keyAgreement.doPhase(publicKey, true);
             final byte[] sharedSecret = keyAgreement.generateSecret();
@@ -165,10 +181,44 @@ public class KeyGenerator {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     public SecretKey deriveSecretKey(SecretKey secret, byte[] index) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
-        AESEncryptionUtils aes = new AESEncryptionUtils();
-        byte[] iv = new byte[16];
-        byte[] encryptedBytes = aes.encrypt(index, iv, secret);
-        return PowerAuthConfiguration.INSTANCE.getKeyConvertor().convertBytesToSharedSecretKey(Arrays.copyOf(encryptedBytes, 16));
+        final byte[] derivedKeyBytes = new byte[DERIVED_KEY_LENGTH];
+        deriveSecretKeyBytes(secret, index, derivedKeyBytes);
+        return PowerAuthConfiguration.INSTANCE.getKeyConvertor().convertBytesToSharedSecretKey(derivedKeyBytes);
+    }
+
+    /**
+     * Derive bytes of a new secret key KEY_SHARED from a master secret key KEY_MASTER using the same KDF
+     * as {@link #deriveSecretKey(SecretKey, byte[])} and store them to the provided output buffer. The AES
+     * engine is reused by the current thread, so the method is suitable for deriving many keys in a loop.
+     *
+     * @param secret A master shared key.
+     * @param index A byte array index of the key.
+     * @param output Output buffer for 16 bytes of the derived key.
+     * @throws InvalidKeyException In case secret key is invalid.
+     * @throws GenericCryptoException In case key derivation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public void deriveSecretKeyBytes(SecretKey secret, byte[] index, byte[] output) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        if (output.length < DERIVED_KEY_LENGTH) {
+            throw new GenericCryptoException("Output buffer is too short for the derived key");
+        }
+        try {
+            final CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+            final Cipher aes = CryptoEngineCache.getCipher(keyConvertor.getCipherTransformation("AES/CBC/PKCS7Padding"), keyConvertor.getProviderName(CryptoPrimitiveFamily.AES));
+            aes.init(Cipher.ENCRYPT_MODE, secret, ZERO_IV);
+            if (aes.getOutputSize(index.length) == DERIVED_KEY_LENGTH) {
+                // Index shorter than one block, the whole encrypted block is the derived key
+                aes.doFinal(index, 0, index.length, output, 0);
+            } else {
+                System.arraycopy(aes.doFinal(index), 0, output, 0, DERIVED_KEY_LENGTH);
+            }
+        } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidAlgorithmParameterException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new CryptoProviderException(ex.getMessage(), ex);
+        } catch (IllegalBlockSizeException | BadPaddingException | NoSuchPaddingException | ShortBufferException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
+        }
     }
 
     /**
@@ -245,7 +295,7 @@ public class KeyGenerator {
     public SecretKey deriveSecretKeyFromPassword(String password, byte[] salt, int iterations) throws CryptoProviderException {
         try {
             PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, 128);
-            SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.HMAC));
             byte[] keyBytes = skf.generateSecret(spec).getEncoded();
             return new SecretKeySpec(keyBytes, "AES");
         } catch (NoSuchAlgorithmException | InvalidKeySpecException | NoSuchProviderException ex) {
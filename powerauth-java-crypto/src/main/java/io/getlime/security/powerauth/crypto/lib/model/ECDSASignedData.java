@@ -0,0 +1,69 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.model;
+
+import java.security.PublicKey;
+
+/**
+ * Class representing data signed using ECDSA, together with the signature and public key used for signature
+ * validation. Used for batch validation of ECDSA signatures.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class ECDSASignedData {
+
+    private final byte[] data;
+    private final byte[] signature;
+    private final PublicKey publicKey;
+
+    /**
+     * Constructor with signed data, signature and public key.
+     * @param data Signed data.
+     * @param signature ECDSA signature of the data.
+     * @param publicKey Public key for signature validation.
+     */
+    public ECDSASignedData(byte[] data, byte[] signature, PublicKey publicKey) {
+        this.data = data;
+        this.signature = signature;
+        this.publicKey = publicKey;
+    }
+
+    /**
+     * Get signed data.
+     * @return Signed data.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Get ECDSA signature of the data.
+     * @return ECDSA signature.
+     */
+    public byte[] getSignature() {
+        return signature;
+    }
+
+    /**
+     * Get public key for signature validation.
+     * @return Public key.
+     */
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+}
@@ -18,12 +18,15 @@ package io.getlime.security.powerauth.crypto.lib.util;
 
 import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
+import io.getlime.security.powerauth.provider.CryptoPrimitiveFamily;
+import io.getlime.security.powerauth.provider.CryptoProviderUtil;
 import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.*;
 import javax.crypto.spec.IvParameterSpec;
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -39,6 +42,11 @@ public class AESEncryptionUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(AESEncryptionUtils.class);
 
+    /**
+     * Size of chunks used for processing buffers which are not backed by an array.
+     */
+    private static final int BUFFER_CHUNK_SIZE = 4096;
+
     /**
      * Encrypt given data using given padding with given initialization
      * vector and secret key.
@@ -54,7 +62,8 @@ public class AESEncryptionUtils {
      */
     public byte[] encrypt(byte[] bytes, byte[] iv, SecretKey secret, String padding) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
         try {
-            Cipher cipherForCryptoResponse = Cipher.getInstance(padding, PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            final CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+            Cipher cipherForCryptoResponse = CryptoEngineCache.getCipher(keyConvertor.getCipherTransformation(padding), keyConvertor.getProviderName(CryptoPrimitiveFamily.AES));
             cipherForCryptoResponse.init(Cipher.ENCRYPT_MODE, secret, new IvParameterSpec(iv));
             return cipherForCryptoResponse.doFinal(bytes);
         } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidAlgorithmParameterException ex) {
@@ -97,7 +106,8 @@ public class AESEncryptionUtils {
      */
     public byte[] decrypt(byte[] bytes, byte[] iv, SecretKey secret, String padding) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
         try {
-            Cipher cipherForCryptoResponse = Cipher.getInstance(padding, PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            final CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+            Cipher cipherForCryptoResponse = CryptoEngineCache.getCipher(keyConvertor.getCipherTransformation(padding), keyConvertor.getProviderName(CryptoPrimitiveFamily.AES));
             cipherForCryptoResponse.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
             return cipherForCryptoResponse.doFinal(bytes);
         } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidAlgorithmParameterException ex) {
@@ -125,4 +135,131 @@ public class AESEncryptionUtils {
         return this.decrypt(bytes, iv, secret, "AES/CBC/PKCS7Padding");
     }
 
+    /**
+     * Encrypt data remaining in the input buffer using given padding with given initialization vector and secret key
+     * and store the encrypted data into the output buffer. Both heap and direct buffers are supported, the data is
+     * not copied into intermediate arrays. The input buffer position is advanced to its limit, the output buffer
+     * position is advanced by the number of stored bytes.
+     *
+     * @param input Buffer with data to be encrypted.
+     * @param output Buffer for encrypted data, at least {@link Cipher#getOutputSize(int)} bytes for the remaining input
+     *               size must remain. For PKCS7 padding it is {@code (input.remaining() / 16 + 1) * 16} bytes, block
+     *               aligned input is extended by a full block of padding.
+     * @param iv Initialization vector.
+     * @param secret Secret signature key.
+     * @param padding Padding to be used, for example "AES/CBC/PKCS7Padding".
+     * @return Number of bytes stored in the output buffer.
+     * @throws InvalidKeyException In case an invalid key is provided.
+     * @throws GenericCryptoException In case encryption fails or the output buffer is too small.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output, byte[] iv, SecretKey secret, String padding) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        return doFinal(Cipher.ENCRYPT_MODE, input, output, iv, secret, padding);
+    }
+
+    /**
+     * Encrypt data remaining in the input buffer using AES/CBC/PKCS7Padding with given initialization vector
+     * and secret key and store the encrypted data into the output buffer.
+     *
+     * @see #encrypt(ByteBuffer, ByteBuffer, byte[], SecretKey, String)
+     * @param input Buffer with data to be encrypted.
+     * @param output Buffer for encrypted data, at least {@code (input.remaining() / 16 + 1) * 16} bytes must remain,
+     *               block aligned input is extended by a full block of padding.
+     * @param iv Initialization vector.
+     * @param secret Secret signature key.
+     * @return Number of bytes stored in the output buffer.
+     * @throws InvalidKeyException In case an invalid key is provided.
+     * @throws GenericCryptoException In case encryption fails or the output buffer is too small.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output, byte[] iv, SecretKey secret) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        return this.encrypt(input, output, iv, secret, "AES/CBC/PKCS7Padding");
+    }
+
+    /**
+     * Decrypt data remaining in the input buffer using given padding with given initialization vector and secret key
+     * and store the decrypted data into the output buffer. Both heap and direct buffers are supported, the data is
+     * not copied into intermediate arrays. The input buffer position is advanced to its limit, the output buffer
+     * position is advanced by the number of stored bytes.
+     *
+     * @param input Buffer with encrypted data.
+     * @param output Buffer for decrypted data, at least the remaining input size must remain.
+     * @param iv Initialization vector.
+     * @param secret Secret signature key.
+     * @param padding Padding to be used, for example "AES/CBC/PKCS7Padding".
+     * @return Number of bytes stored in the output buffer.
+     * @throws InvalidKeyException In case an invalid key is provided.
+     * @throws GenericCryptoException In case decryption fails or the output buffer is too small.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output, byte[] iv, SecretKey secret, String padding) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        return doFinal(Cipher.DECRYPT_MODE, input, output, iv, secret, padding);
+    }
+
+    /**
+     * Decrypt data remaining in the input buffer using AES/CBC/PKCS7Padding with given initialization vector
+     * and secret key and store the decrypted data into the output buffer.
+     *
+     * @see #decrypt(ByteBuffer, ByteBuffer, byte[], SecretKey, String)
+     * @param input Buffer with encrypted data.
+     * @param output Buffer for decrypted data, at least the remaining input size must remain.
+     * @param iv Initialization vector.
+     * @param secret Secret signature key.
+     * @return Number of bytes stored in the output buffer.
+     * @throws InvalidKeyException In case an invalid key is provided.
+     * @throws GenericCryptoException In case decryption fails or the output buffer is too small.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output, byte[] iv, SecretKey secret) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        return this.decrypt(input, output, iv, secret, "AES/CBC/PKCS7Padding");
+    }
+
+    /**
+     * Encrypt or decrypt data between buffers.
+     *
+     * @param mode Cipher mode.
+     * @param input Input buffer.
+     * @param output Output buffer.
+     * @param iv Initialization vector.
+     * @param secret Secret signature key.
+     * @param padding Padding to be used.
+     * @return Number of bytes stored in the output buffer.
+     * @throws InvalidKeyException In case an invalid key is provided.
+     * @throws GenericCryptoException In case the cipher operation fails or the output buffer is too small.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    private int doFinal(int mode, ByteBuffer input, ByteBuffer output, byte[] iv, SecretKey secret, String padding) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        try {
+            final CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+            Cipher cipher = CryptoEngineCache.getCipher(keyConvertor.getCipherTransformation(padding), keyConvertor.getProviderName(CryptoPrimitiveFamily.AES));
+            cipher.init(mode, secret, new IvParameterSpec(iv));
+            if (input.hasArray() && output.hasArray()) {
+                return cipher.doFinal(input, output);
+            }
+            // Process direct buffers in chunks, the provider would allocate temporary arrays of the whole data size
+            if (output.remaining() < cipher.getOutputSize(input.remaining())) {
+                throw new ShortBufferException("Output buffer is too small");
+            }
+            final byte[] inputChunk = new byte[Math.min(BUFFER_CHUNK_SIZE, input.remaining())];
+            final byte[] outputChunk = new byte[inputChunk.length + 2 * cipher.getBlockSize()];
+            int length = 0;
+            while (input.hasRemaining()) {
+                final int chunkLength = Math.min(inputChunk.length, input.remaining());
+                input.get(inputChunk, 0, chunkLength);
+                final int written = cipher.update(inputChunk, 0, chunkLength, outputChunk, 0);
+                output.put(outputChunk, 0, written);
+                length += written;
+            }
+            final int written = cipher.doFinal(outputChunk, 0);
+            output.put(outputChunk, 0, written);
+            return length + written;
+        } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidAlgorithmParameterException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new CryptoProviderException(ex.getMessage(), ex);
+        } catch (IllegalBlockSizeException | BadPaddingException | NoSuchPaddingException | ShortBufferException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
+        }
+    }
+
 }
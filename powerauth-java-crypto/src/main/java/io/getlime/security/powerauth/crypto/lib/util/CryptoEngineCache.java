@@ -0,0 +1,189 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.util;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Thread local cache of JCE engines ({@link Mac}, {@link Cipher}, {@link Signature} and {@link MessageDigest}),
+ * keyed by algorithm and provider name. Looking up an engine by name in the crypto provider is expensive, the cache allows the
+ * hot paths to only call {@code init} and {@code doFinal} on an existing engine instance.
+ * <p>
+ * The engines returned by this class are shared within the calling thread. The caller must always initialize
+ * the engine before use and must not keep the reference after the operation is completed.
+ * <p>
+ * The cache can be disabled using {@link PowerAuthConfiguration#setCryptoEngineCacheEnabled(boolean)}, in
+ * such case a new engine instance is created for each call.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public final class CryptoEngineCache {
+
+    // Engine caches, mapping provider name to a map of algorithm names and engine instances
+    private static final ThreadLocal<Map<String, Map<String, Mac>>> MAC_ENGINES = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, Map<String, Cipher>>> CIPHER_ENGINES = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, Map<String, Signature>>> SIGNATURE_ENGINES = ThreadLocal.withInitial(HashMap::new);
+    // Digest cache, the null provider name stands for the default provider list
+    private static final ThreadLocal<Map<String, Map<String, MessageDigest>>> DIGEST_ENGINES = ThreadLocal.withInitial(HashMap::new);
+
+    private CryptoEngineCache() {
+    }
+
+    /**
+     * Get a MAC engine for given algorithm and provider.
+     *
+     * @param algorithm MAC algorithm, for example "HmacSHA256".
+     * @param providerName Name of the crypto provider.
+     * @return MAC engine, which needs to be initialized before use.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported.
+     * @throws NoSuchProviderException In case the provider is not available.
+     */
+    public static Mac getMac(String algorithm, String providerName) throws NoSuchAlgorithmException, NoSuchProviderException {
+        if (!PowerAuthConfiguration.INSTANCE.isCryptoEngineCacheEnabled()) {
+            return Mac.getInstance(algorithm, providerName);
+        }
+        final Map<String, Mac> engines = MAC_ENGINES.get().computeIfAbsent(providerName, p -> new HashMap<>());
+        Mac mac = engines.get(algorithm);
+        if (mac == null) {
+            mac = Mac.getInstance(algorithm, providerName);
+            engines.put(algorithm, mac);
+        }
+        return mac;
+    }
+
+    /**
+     * Get a cipher engine for given transformation and provider.
+     *
+     * @param transformation Cipher transformation supported by the provider, for example "AES/CBC/PKCS7Padding".
+     * @param providerName Name of the crypto provider.
+     * @return Cipher engine, which needs to be initialized before use.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported.
+     * @throws NoSuchProviderException In case the provider is not available.
+     * @throws NoSuchPaddingException In case the padding is not supported.
+     */
+    public static Cipher getCipher(String transformation, String providerName) throws NoSuchAlgorithmException, NoSuchProviderException, NoSuchPaddingException {
+        if (!PowerAuthConfiguration.INSTANCE.isCryptoEngineCacheEnabled()) {
+            return Cipher.getInstance(transformation, providerName);
+        }
+        final Map<String, Cipher> engines = CIPHER_ENGINES.get().computeIfAbsent(providerName, p -> new HashMap<>());
+        Cipher cipher = engines.get(transformation);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation, providerName);
+            engines.put(transformation, cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Get a signature engine for given algorithm and provider.
+     *
+     * @param algorithm Signature algorithm, for example "SHA256withECDSA".
+     * @param providerName Name of the crypto provider.
+     * @return Signature engine, which needs to be initialized for signing or verification before use.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported.
+     * @throws NoSuchProviderException In case the provider is not available.
+     */
+    public static Signature getSignature(String algorithm, String providerName) throws NoSuchAlgorithmException, NoSuchProviderException {
+        if (!PowerAuthConfiguration.INSTANCE.isCryptoEngineCacheEnabled()) {
+            return Signature.getInstance(algorithm, providerName);
+        }
+        final Map<String, Signature> engines = SIGNATURE_ENGINES.get().computeIfAbsent(providerName, p -> new HashMap<>());
+        Signature signature = engines.get(algorithm);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm, providerName);
+            engines.put(algorithm, signature);
+        }
+        return signature;
+    }
+
+    /**
+     * Get a message digest for given algorithm. The digest is looked up in the default provider list, the same way
+     * as by {@link MessageDigest#getInstance(String)}.
+     *
+     * @param algorithm Digest algorithm, for example "SHA-256".
+     * @return Message digest in the initial state.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported.
+     */
+    public static MessageDigest getMessageDigest(String algorithm) throws NoSuchAlgorithmException {
+        try {
+            return getMessageDigest(algorithm, null);
+        } catch (NoSuchProviderException ex) {
+            // Cannot happen, the provider is not specified
+            throw new NoSuchAlgorithmException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Get a message digest for given algorithm and provider.
+     *
+     * @param algorithm Digest algorithm, for example "SHA-256".
+     * @param providerName Name of the crypto provider, or null to use the default provider list.
+     * @return Message digest in the initial state.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported.
+     * @throws NoSuchProviderException In case the provider is not available.
+     */
+    public static MessageDigest getMessageDigest(String algorithm, String providerName) throws NoSuchAlgorithmException, NoSuchProviderException {
+        if (!PowerAuthConfiguration.INSTANCE.isCryptoEngineCacheEnabled()) {
+            return newMessageDigest(algorithm, providerName);
+        }
+        final Map<String, MessageDigest> engines = DIGEST_ENGINES.get().computeIfAbsent(providerName, p -> new HashMap<>());
+        MessageDigest digest = engines.get(algorithm);
+        if (digest == null) {
+            digest = newMessageDigest(algorithm, providerName);
+            engines.put(algorithm, digest);
+        } else {
+            // Discard any data left by an interrupted previous use
+            digest.reset();
+        }
+        return digest;
+    }
+
+    /**
+     * Create a new message digest.
+     *
+     * @param algorithm Digest algorithm.
+     * @param providerName Name of the crypto provider, or null to use the default provider list.
+     * @return New message digest.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported.
+     * @throws NoSuchProviderException In case the provider is not available.
+     */
+    private static MessageDigest newMessageDigest(String algorithm, String providerName) throws NoSuchAlgorithmException, NoSuchProviderException {
+        return providerName == null ? MessageDigest.getInstance(algorithm) : MessageDigest.getInstance(algorithm, providerName);
+    }
+
+    /**
+     * Remove all engines cached for the calling thread. The method should be called by applications that
+     * run on pooled threads and need to release the provider classes, for example during application undeploy.
+     */
+    public static void clear() {
+        MAC_ENGINES.remove();
+        CIPHER_ENGINES.remove();
+        SIGNATURE_ENGINES.remove();
+        DIGEST_ENGINES.remove();
+    }
+
+}
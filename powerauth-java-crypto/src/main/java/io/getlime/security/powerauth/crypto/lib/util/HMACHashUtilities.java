@@ -18,6 +18,7 @@ package io.getlime.security.powerauth.crypto.lib.util;
 
 import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
+import io.getlime.security.powerauth.provider.CryptoPrimitiveFamily;
 import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
@@ -48,7 +50,7 @@ public class HMACHashUtilities {
      */
     public byte[] hash(byte[] key, byte[] data) throws GenericCryptoException, CryptoProviderException {
         try {
-            Mac hmacSha256 = Mac.getInstance("HmacSHA256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            Mac hmacSha256 = CryptoEngineCache.getMac("HmacSHA256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.HMAC));
             SecretKey hmacKey = new SecretKeySpec(key, "HmacSHA256");
             hmacSha256.init(hmacKey);
             return hmacSha256.doFinal(data);
@@ -71,7 +73,7 @@ public class HMACHashUtilities {
      */
     public byte[] hash(SecretKey hmacKey, byte[] data) throws GenericCryptoException, CryptoProviderException {
         try {
-            Mac hmacSha256 = Mac.getInstance("HmacSHA256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            Mac hmacSha256 = CryptoEngineCache.getMac("HmacSHA256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.HMAC));
             hmacSha256.init(hmacKey);
             return hmacSha256.doFinal(data);
         } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
@@ -83,4 +85,83 @@ public class HMACHashUtilities {
         }
     }
 
+    /**
+     * Compute a HMAC-SHA256 of multiple data parts with provided key bytes. The parts are processed in the given
+     * order as a single message without concatenating them into a new array. All parts are required.
+     * @param key Key for the HMAC-SHA256 algorithm
+     * @param data First part of data for the HMAC-SHA256 algorithm.
+     * @param moreData Additional parts of data for the HMAC-SHA256 algorithm.
+     * @return HMAC-SHA256 of given data using given key.
+     * @throws GenericCryptoException In case the key or any data part is missing or hash computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public byte[] hash(byte[] key, byte[] data, byte[]... moreData) throws GenericCryptoException, CryptoProviderException {
+        if (key == null) {
+            throw new GenericCryptoException("Missing key for HMAC");
+        }
+        if (data == null || moreData == null) {
+            throw new GenericCryptoException("Missing data for HMAC");
+        }
+        for (byte[] part : moreData) {
+            if (part == null) {
+                throw new GenericCryptoException("Missing data for HMAC");
+            }
+        }
+        try {
+            Mac hmacSha256 = CryptoEngineCache.getMac("HmacSHA256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.HMAC));
+            SecretKey hmacKey = new SecretKeySpec(key, "HmacSHA256");
+            hmacSha256.init(hmacKey);
+            hmacSha256.update(data);
+            for (byte[] part : moreData) {
+                hmacSha256.update(part);
+            }
+            return hmacSha256.doFinal();
+        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new CryptoProviderException(ex.getMessage(), ex);
+        } catch (InvalidKeyException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Compute a HMAC-SHA256 of data remaining in given buffers with provided key bytes. The buffers are processed
+     * in the given order as a single message, both heap and direct buffers are supported. Positions of the buffers
+     * are not modified. All buffers are required.
+     * @param key Key for the HMAC-SHA256 algorithm
+     * @param data Buffers with data for the HMAC-SHA256 algorithm.
+     * @return HMAC-SHA256 of given data using given key.
+     * @throws GenericCryptoException In case the key or any buffer is missing or hash computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public byte[] hashBuffers(byte[] key, ByteBuffer... data) throws GenericCryptoException, CryptoProviderException {
+        if (key == null) {
+            throw new GenericCryptoException("Missing key for HMAC");
+        }
+        if (data == null) {
+            throw new GenericCryptoException("Missing data for HMAC");
+        }
+        for (ByteBuffer buffer : data) {
+            if (buffer == null) {
+                throw new GenericCryptoException("Missing data for HMAC");
+            }
+        }
+        try {
+            Mac hmacSha256 = CryptoEngineCache.getMac("HmacSHA256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.HMAC));
+            SecretKey hmacKey = new SecretKeySpec(key, "HmacSHA256");
+            hmacSha256.init(hmacKey);
+            for (ByteBuffer buffer : data) {
+                hmacSha256.update(buffer.duplicate());
+            }
+            return hmacSha256.doFinal();
+        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new CryptoProviderException(ex.getMessage(), ex);
+        } catch (InvalidKeyException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
+        }
+    }
+
 }
@@ -44,7 +44,7 @@ public class Hash {
      * @throws NoSuchAlgorithmException In case a provided algorithm does not exist.
      */
     private static byte[] hash(byte[] originalBytes) throws NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        MessageDigest md = CryptoEngineCache.getMessageDigest("SHA-256");
         return md.digest(originalBytes);
     }
 
@@ -0,0 +1,209 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.util;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
+import io.getlime.security.powerauth.provider.CryptoPrimitiveFamily;
+import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.util.Arrays;
+
+/**
+ * HMAC-SHA256 key with precomputed inner and outer hash state. The key padded with ipad and opad constants is
+ * hashed only once when the key is prepared, the states are then cloned for each computed MAC. This saves two
+ * SHA-256 block compressions for each message compared to initializing a {@link javax.crypto.Mac} with the same
+ * key repeatedly, which is useful when one key is used for several messages.
+ * <p>
+ * The prepared key is immutable and it can be shared by multiple threads. The result of computation is equal
+ * to HMAC-SHA256 as defined in RFC 2104.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public final class PreparedHmacKey {
+
+    private static final Logger logger = LoggerFactory.getLogger(PreparedHmacKey.class);
+
+    private static final int BLOCK_SIZE = 64;
+    private static final int HASH_SIZE = 32;
+    private static final byte IPAD = 0x36;
+    private static final byte OPAD = 0x5c;
+
+    private final MessageDigest innerState;
+    private final MessageDigest outerState;
+
+    private PreparedHmacKey(MessageDigest innerState, MessageDigest outerState) {
+        this.innerState = innerState;
+        this.outerState = outerState;
+    }
+
+    /**
+     * Prepare HMAC-SHA256 key from provided key bytes.
+     * @param key Key for the HMAC-SHA256 algorithm.
+     * @return Prepared HMAC-SHA256 key.
+     * @throws GenericCryptoException In case the key is missing or the digest state cannot be cloned.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public static PreparedHmacKey prepare(byte[] key) throws GenericCryptoException, CryptoProviderException {
+        if (key == null) {
+            throw new GenericCryptoException("Missing key for HMAC");
+        }
+        try {
+            final String providerName = PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.DIGEST);
+            // The cached digest of the current thread is used as a template, both states are cloned from it
+            final MessageDigest template = CryptoEngineCache.getMessageDigest("SHA-256", providerName);
+            final byte[] paddedKey = new byte[BLOCK_SIZE];
+            if (key.length > BLOCK_SIZE) {
+                // Keys longer than block size are hashed first
+                template.update(key);
+                template.digest(paddedKey, 0, HASH_SIZE);
+            } else {
+                System.arraycopy(key, 0, paddedKey, 0, key.length);
+            }
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                paddedKey[i] ^= IPAD;
+            }
+            final MessageDigest innerState = (MessageDigest) template.clone();
+            innerState.update(paddedKey);
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                paddedKey[i] ^= IPAD ^ OPAD;
+            }
+            final MessageDigest outerState = (MessageDigest) template.clone();
+            outerState.update(paddedKey);
+            Arrays.fill(paddedKey, (byte) 0);
+            return new PreparedHmacKey(innerState, outerState);
+        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new CryptoProviderException(ex.getMessage(), ex);
+        } catch (CloneNotSupportedException | DigestException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Prepare HMAC-SHA256 key from provided secret key.
+     * @param key Key for the HMAC-SHA256 algorithm.
+     * @return Prepared HMAC-SHA256 key.
+     * @throws GenericCryptoException In case the key is missing or the digest state cannot be cloned.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public static PreparedHmacKey prepare(SecretKey key) throws GenericCryptoException, CryptoProviderException {
+        if (key == null) {
+            throw new GenericCryptoException("Missing key for HMAC");
+        }
+        return prepare(key.getEncoded());
+    }
+
+    /**
+     * Compute a HMAC-SHA256 of multiple data parts. The parts are processed in the given order as a single
+     * message. All parts are required.
+     * @param data First part of data for the HMAC-SHA256 algorithm.
+     * @param moreData Additional parts of data for the HMAC-SHA256 algorithm.
+     * @return HMAC-SHA256 of given data.
+     * @throws GenericCryptoException In case any data part is missing or hash computation fails.
+     */
+    public byte[] hash(byte[] data, byte[]... moreData) throws GenericCryptoException {
+        if (data == null || moreData == null) {
+            throw new GenericCryptoException("Missing data for HMAC");
+        }
+        for (byte[] part : moreData) {
+            if (part == null) {
+                throw new GenericCryptoException("Missing data for HMAC");
+            }
+        }
+        final MessageDigest inner = cloneState(innerState);
+        inner.update(data);
+        for (byte[] part : moreData) {
+            inner.update(part);
+        }
+        final MessageDigest outer = cloneState(outerState);
+        outer.update(inner.digest());
+        return outer.digest();
+    }
+
+    /**
+     * Compute a HMAC-SHA256 of given data and store the result into the output array. The output may overlap
+     * with the input data.
+     * @param data Data for the HMAC-SHA256 algorithm.
+     * @param output Output array for the HMAC-SHA256 result.
+     * @param offset Offset in the output array, at least 32 bytes must be available.
+     * @throws GenericCryptoException In case hash computation fails.
+     */
+    public void hash(byte[] data, byte[] output, int offset) throws GenericCryptoException {
+        final MessageDigest inner = cloneState(innerState);
+        inner.update(data);
+        finish(inner, output, offset);
+    }
+
+    /**
+     * Compute a HMAC-SHA256 of data remaining in given buffer and store the result into the output array.
+     * The position of the buffer is not modified.
+     * @param data Buffer with data for the HMAC-SHA256 algorithm.
+     * @param output Output array for the HMAC-SHA256 result.
+     * @param offset Offset in the output array, at least 32 bytes must be available.
+     * @throws GenericCryptoException In case hash computation fails.
+     */
+    public void hash(ByteBuffer data, byte[] output, int offset) throws GenericCryptoException {
+        final MessageDigest inner = cloneState(innerState);
+        inner.update(data.duplicate());
+        finish(inner, output, offset);
+    }
+
+    /**
+     * Finish the inner hash and compute the outer hash into the output array.
+     * @param inner Inner hash with all data processed.
+     * @param output Output array for the HMAC-SHA256 result.
+     * @param offset Offset in the output array.
+     * @throws GenericCryptoException In case hash computation fails.
+     */
+    private void finish(MessageDigest inner, byte[] output, int offset) throws GenericCryptoException {
+        try {
+            inner.digest(output, offset, HASH_SIZE);
+            final MessageDigest outer = cloneState(outerState);
+            outer.update(output, offset, HASH_SIZE);
+            outer.digest(output, offset, HASH_SIZE);
+        } catch (DigestException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Clone prepared digest state.
+     * @param state Prepared digest state.
+     * @return Copy of the digest state.
+     * @throws GenericCryptoException In case the digest state cannot be cloned.
+     */
+    private static MessageDigest cloneState(MessageDigest state) throws GenericCryptoException {
+        try {
+            return (MessageDigest) state.clone();
+        } catch (CloneNotSupportedException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
+        }
+    }
+
+}
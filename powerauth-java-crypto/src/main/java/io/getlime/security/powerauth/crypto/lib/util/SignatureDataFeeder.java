@@ -0,0 +1,41 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.util;
+
+import javax.crypto.Mac;
+import java.io.IOException;
+
+/**
+ * Callback which feeds signed data into MACs during PowerAuth signature computation, so that the signed data
+ * does not have to be available as a single byte array. The MACs are initialized with keys derived for each
+ * signature factor, the callback must update all of them with the same data, for example using
+ * {@code PowerAuthHttpBody.updateSignatureBaseString()}. The callback must not initialize or finish the MACs.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+@FunctionalInterface
+public interface SignatureDataFeeder {
+
+    /**
+     * Update provided MACs with signed data.
+     *
+     * @param macs Initialized MACs, one MAC for each signature factor.
+     * @throws IOException In case reading of signed data fails.
+     */
+    void feed(Mac... macs) throws IOException;
+
+}
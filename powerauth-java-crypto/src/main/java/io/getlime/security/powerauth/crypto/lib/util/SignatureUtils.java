@@ -20,17 +20,27 @@ import com.google.common.base.Joiner;
 import com.google.common.io.BaseEncoding;
 import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
+import io.getlime.security.powerauth.crypto.lib.model.ECDSASignedData;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
+import io.getlime.security.powerauth.provider.CryptoPrimitiveFamily;
 import io.getlime.security.powerauth.provider.CryptoProviderUtil;
 import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.security.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Utility class for signature calculation and validation used both on client and server.
@@ -42,6 +52,16 @@ public class SignatureUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(SignatureUtils.class);
 
+    /**
+     * Maximum number of signatures validated by a single task in batch ECDSA signature validation.
+     */
+    private static final int ECDSA_BATCH_CHUNK_SIZE = 128;
+
+    /**
+     * Working buffers for signature verification, reused by all verifications executed on the same thread.
+     */
+    private static final ThreadLocal<VerificationBuffers> verificationBuffers = ThreadLocal.withInitial(VerificationBuffers::new);
+
     /**
      * Compute ECDSA signature of given bytes with a private key.
      *
@@ -54,7 +74,7 @@ public class SignatureUtils {
      */
     public byte[] computeECDSASignature(byte[] bytes, PrivateKey masterPrivateKey) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
         try {
-            Signature ecdsa = Signature.getInstance("SHA256withECDSA", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            Signature ecdsa = CryptoEngineCache.getSignature("SHA256withECDSA", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.EC));
             ecdsa.initSign(masterPrivateKey);
             ecdsa.update(bytes);
             return ecdsa.sign();
@@ -80,7 +100,7 @@ public class SignatureUtils {
      */
     public boolean validateECDSASignature(byte[] signedBytes, byte[] signature, PublicKey masterPublicKey) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
         try {
-            Signature ecdsa = Signature.getInstance("SHA256withECDSA", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            Signature ecdsa = CryptoEngineCache.getSignature("SHA256withECDSA", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.EC));
             ecdsa.initVerify(masterPublicKey);
             ecdsa.update(signedBytes);
             return ecdsa.verify(signature);
@@ -94,20 +114,119 @@ public class SignatureUtils {
     }
 
     /**
-     * Compute decimal formatted PowerAuth signature for given data using a secret signature keys and counter byte array.
+     * Validate ECDSA signatures of multiple messages in parallel using the common fork-join pool.
      *
-     * @param data Data to be signed.
-     * @param signatureKeys Keys for computing the signature.
-     * @param ctrData Counter byte array / derived key index.
-     * @return Decimal formatted PowerAuth signature for given data.
-     * @throws GenericCryptoException In case signature computation fails.
+     * @see #validateECDSASignatures(List, ExecutorService)
+     * @param signedDataList List of signed data with signatures and public keys.
+     * @return Bit set with results, bit at index {@code i} is set when the signature at index {@code i} is valid.
+     * @throws GenericCryptoException In case the validation is interrupted or fails unexpectedly.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public BitSet validateECDSASignatures(List<ECDSASignedData> signedDataList) throws GenericCryptoException, CryptoProviderException {
+        return validateECDSASignatures(signedDataList, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Validate ECDSA signatures of multiple messages in parallel using provided executor. The signatures are grouped
+     * by public key and each group is split into chunks, which are validated as separate tasks. The signature engine
+     * is reused by each worker thread and it is initialized with the public key only once per chunk.
+     * <p>
+     * Unlike {@link #validateECDSASignature(byte[], byte[], PublicKey)}, the method does not fail for a single invalid
+     * item. Missing values, malformed signature encoding, or invalid public key result in the item being reported as
+     * invalid.
+     *
+     * @param signedDataList List of signed data with signatures and public keys.
+     * @param executor Executor used for signature validation.
+     * @return Bit set with results, bit at index {@code i} is set when the signature at index {@code i} is valid.
+     * @throws GenericCryptoException In case the validation is interrupted or fails unexpectedly.
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
-    private String computePowerAuthDecimalSignature(byte[] data, List<SecretKey> signatureKeys, byte[] ctrData) throws GenericCryptoException, CryptoProviderException {
+    public BitSet validateECDSASignatures(List<ECDSASignedData> signedDataList, ExecutorService executor) throws GenericCryptoException, CryptoProviderException {
+        final BitSet results = new BitSet(signedDataList.size());
+        // Group item indexes by public key, in order of first appearance
+        final Map<PublicKey, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < signedDataList.size(); i++) {
+            final ECDSASignedData signedData = signedDataList.get(i);
+            if (signedData == null || signedData.getData() == null || signedData.getSignature() == null || signedData.getPublicKey() == null) {
+                continue;
+            }
+            groups.computeIfAbsent(signedData.getPublicKey(), k -> new ArrayList<>()).add(i);
+        }
+        // Prepare validation tasks
+        final String providerName = PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.EC);
+        final List<Callable<BitSet>> tasks = new ArrayList<>();
+        for (Map.Entry<PublicKey, List<Integer>> group : groups.entrySet()) {
+            final List<Integer> indexes = group.getValue();
+            for (int from = 0; from < indexes.size(); from += ECDSA_BATCH_CHUNK_SIZE) {
+                final List<Integer> chunk = indexes.subList(from, Math.min(from + ECDSA_BATCH_CHUNK_SIZE, indexes.size()));
+                tasks.add(() -> validateECDSASignatureChunk(signedDataList, group.getKey(), chunk, providerName));
+            }
+        }
+        // Execute tasks and merge results
+        try {
+            for (Future<BitSet> future : executor.invokeAll(tasks)) {
+                results.or(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GenericCryptoException("Signature validation was interrupted", ex);
+        } catch (ExecutionException ex) {
+            logger.warn(ex.getMessage(), ex);
+            if (ex.getCause() instanceof CryptoProviderException) {
+                throw (CryptoProviderException) ex.getCause();
+            }
+            throw new GenericCryptoException(ex.getMessage(), ex.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Validate ECDSA signatures of items which share the same public key.
+     *
+     * @param signedDataList List of all signed data.
+     * @param publicKey Public key shared by the validated items.
+     * @param indexes Indexes of the validated items.
+     * @param providerName Name of the crypto provider.
+     * @return Bit set with results.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    private BitSet validateECDSASignatureChunk(List<ECDSASignedData> signedDataList, PublicKey publicKey, List<Integer> indexes, String providerName) throws CryptoProviderException {
+        final BitSet results = new BitSet();
+        try {
+            final Signature ecdsa = CryptoEngineCache.getSignature("SHA256withECDSA", providerName);
+            ecdsa.initVerify(publicKey);
+            for (int index : indexes) {
+                final ECDSASignedData signedData = signedDataList.get(index);
+                try {
+                    // Signature engine is reset to the state after initVerify by each verify call
+                    ecdsa.update(signedData.getData());
+                    if (ecdsa.verify(signedData.getSignature())) {
+                        results.set(index);
+                    }
+                } catch (SignatureException ex) {
+                    // Malformed signature encoding, the signature is invalid
+                    logger.warn(ex.getMessage(), ex);
+                }
+            }
+        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new CryptoProviderException(ex.getMessage(), ex);
+        } catch (InvalidKeyException ex) {
+            // Invalid public key, all signatures in the chunk are invalid
+            logger.warn(ex.getMessage(), ex);
+        }
+        return results;
+    }
+
+    /**
+     * Convert PowerAuth signature components into decimal formatted PowerAuth signature.
+     *
+     * @param signatureComponents List with binary signature components.
+     * @return Decimal formatted PowerAuth signature.
+     */
+    private String formatPowerAuthDecimalSignature(List<byte[]> signatureComponents) {
         // Prepare holder for signature components
-        final String[] signatureStringComponents = new String[signatureKeys.size()];
-        // Compute signature components
-        final List<byte[]> signatureComponents = computePowerAuthSignatureComponents(data, signatureKeys, ctrData);
+        final String[] signatureStringComponents = new String[signatureComponents.size()];
         // Convert byte components into decimal signature
         for (int i = 0; i < signatureComponents.size(); i++) {
             final byte[] signatureComponent = signatureComponents.get(i);
@@ -120,20 +239,14 @@ public class SignatureUtils {
     }
 
     /**
-     * Compute Base64 formatted PowerAuth signature for given data using a secret signature keys and counter byte array.
+     * Convert PowerAuth signature components into Base64 formatted PowerAuth signature.
      *
-     * @param data Data to be signed.
-     * @param signatureKeys Keys for computing the signature.
-     * @param ctrData Counter byte array / derived key index.
-     * @return Base64 formatted PowerAuth signature for given data.
-     * @throws GenericCryptoException In case signature computation fails.
-     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     * @param signatureComponents List with binary signature components.
+     * @return Base64 formatted PowerAuth signature.
      */
-    private String computePowerAuthBase64Signature(byte[] data, List<SecretKey> signatureKeys, byte[] ctrData) throws GenericCryptoException, CryptoProviderException {
+    private String formatPowerAuthBase64Signature(List<byte[]> signatureComponents) {
         // Prepare array of bytes for a complete signature
-        final byte[] signatureBytes = new byte[signatureKeys.size() * PowerAuthConfiguration.SIGNATURE_BINARY_LENGTH];
-        // Compute signature components
-        final List<byte[]> signatureComponents = computePowerAuthSignatureComponents(data, signatureKeys, ctrData);
+        final byte[] signatureBytes = new byte[signatureComponents.size() * PowerAuthConfiguration.SIGNATURE_BINARY_LENGTH];
         // Convert signature components into one Base64 encoded signature string
         for (int i = 0; i < signatureComponents.size(); i++) {
             final byte[] signatureComponent = signatureComponents.get(i);
@@ -145,6 +258,65 @@ public class SignatureUtils {
         return BaseEncoding.base64().encode(signatureBytes);
     }
 
+    /**
+     * Convert PowerAuth signature components into signature of given format.
+     *
+     * @param signatureComponents List with binary signature components.
+     * @param format Format of signature to produce.
+     * @return PowerAuth signature.
+     * @throws GenericCryptoException In case the signature format is not supported.
+     */
+    private String formatPowerAuthSignature(List<byte[]> signatureComponents, PowerAuthSignatureFormat format) throws GenericCryptoException {
+        if (format == null) {
+            throw new GenericCryptoException("Unsupported format of PowerAuth signature.");
+        }
+        switch (format) {
+            case BASE64:
+                return formatPowerAuthBase64Signature(signatureComponents);
+            case DECIMAL:
+                return formatPowerAuthDecimalSignature(signatureComponents);
+            default:
+                throw new GenericCryptoException("Unsupported format of PowerAuth signature.");
+        }
+    }
+
+    /**
+     * Derive keys used for computing HMAC of signed data for each signature factor. The key for the first factor
+     * is KEY_1 = HMAC(signatureKey_1, ctrData), the key for factor i is KEY_i = HMAC(signatureKey_i, ctrData)
+     * with HMAC(KEY_j, ...) applied for each following factor j &lt; i in turn.
+     *
+     * @param signatureKeys Keys for computing the signature.
+     * @param ctrData Counter byte array / derived key index.
+     * @return Array with derived key bytes for each signature factor.
+     * @throws GenericCryptoException In case key derivation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    private byte[][] deriveFactorKeys(List<SecretKey> signatureKeys, byte[] ctrData) throws GenericCryptoException, CryptoProviderException {
+        // Prepare a hash
+        final HMACHashUtilities hmac = new HMACHashUtilities();
+
+        final CryptoProviderUtil keyConverter = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+        final int factorCount = signatureKeys.size();
+
+        // Keys derived from the counter are computed only once for each factor, KEY_i = HMAC(signatureKey_i, ctrData)
+        final byte[][] counterKeys = new byte[factorCount][];
+        for (int i = 0; i < factorCount; i++) {
+            final byte[] signatureKey = keyConverter.convertSharedSecretKeyToBytes(signatureKeys.get(i));
+            counterKeys[i] = hmac.hash(signatureKey, ctrData);
+        }
+
+        final byte[][] factorKeys = new byte[factorCount][];
+        for (int i = 0; i < factorCount; i++) {
+            byte[] derivedKey = counterKeys[i];
+
+            for (int j = 0; j < i; j++) {
+                derivedKey = hmac.hash(counterKeys[j + 1], derivedKey);
+            }
+            factorKeys[i] = derivedKey;
+        }
+        return factorKeys;
+    }
+
     /**
      * Compute PowerAuth signature for given data using a secret signature keys and counter byte array. The signature is returned
      * in form of list of binary components, where each item in returned array contains an appropriate signature factor. The returned
@@ -164,18 +336,7 @@ public class SignatureUtils {
         // Prepare array for signature binary components.
         final List<byte[]> signatureComponents = new ArrayList<>();
 
-        final CryptoProviderUtil keyConverter = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
-
-        for (int i = 0; i < signatureKeys.size(); i++) {
-            final byte[] signatureKey = keyConverter.convertSharedSecretKeyToBytes(signatureKeys.get(i));
-            byte[] derivedKey = hmac.hash(signatureKey, ctrData);
-
-            for (int j = 0; j < i; j++) {
-                byte[] signatureKeyInner = keyConverter.convertSharedSecretKeyToBytes(signatureKeys.get(j + 1));
-                byte[] derivedKeyInner = hmac.hash(signatureKeyInner, ctrData);
-                derivedKey = hmac.hash(derivedKeyInner, derivedKey);
-            }
-
+        for (byte[] derivedKey : deriveFactorKeys(signatureKeys, ctrData)) {
             final byte[] signatureBytes = hmac.hash(derivedKey, data);
             // Test whether calculated signature has sufficient amount of bytes.
             if (signatureBytes.length < PowerAuthConfiguration.SIGNATURE_BINARY_LENGTH) { // assert
@@ -188,17 +349,50 @@ public class SignatureUtils {
     }
 
     /**
-     * Compute PowerAuth signature for given data using a secret signature keys and counter byte array.
+     * Compute PowerAuth signature components for data provided by a data feeder. One MAC is initialized with the derived
+     * key of each signature factor, the data feeder updates all MACs with signed data and the MACs are then finished
+     * into the signature components.
      *
-     * @param data Data to be signed.
+     * @param dataFeeder Data feeder which updates the MACs with signed data.
      * @param signatureKeys Keys for computing the signature.
      * @param ctrData Counter byte array / derived key index.
-     * @param format Format of signature to produce.
-     * @return PowerAuth signature for given data.
-     * @throws GenericCryptoException In case signature computation fails.
+     * @return List with binary signature components.
+     * @throws GenericCryptoException In case signature computation fails or signed data cannot be read.
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
-    public String computePowerAuthSignature(byte[] data, List<SecretKey> signatureKeys, byte[] ctrData, PowerAuthSignatureFormat format) throws GenericCryptoException, CryptoProviderException {
+    private List<byte[]> computePowerAuthSignatureComponents(SignatureDataFeeder dataFeeder, List<SecretKey> signatureKeys, byte[] ctrData) throws GenericCryptoException, CryptoProviderException {
+        final byte[][] factorKeys = deriveFactorKeys(signatureKeys, ctrData);
+        final Mac[] macs = new Mac[factorKeys.length];
+        try {
+            // Fresh MAC instances are used, the data feeder may use the engines cached for the current thread
+            final String providerName = PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.HMAC);
+            for (int i = 0; i < factorKeys.length; i++) {
+                macs[i] = Mac.getInstance("HmacSHA256", providerName);
+                macs[i].init(new SecretKeySpec(factorKeys[i], "HmacSHA256"));
+            }
+            dataFeeder.feed(macs);
+        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new CryptoProviderException(ex.getMessage(), ex);
+        } catch (InvalidKeyException | IOException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
+        }
+        final List<byte[]> signatureComponents = new ArrayList<>();
+        for (Mac mac : macs) {
+            signatureComponents.add(mac.doFinal());
+        }
+        return signatureComponents;
+    }
+
+    /**
+     * Validate parameters used for computation of PowerAuth signature.
+     *
+     * @param signatureKeys Keys for computing the signature.
+     * @param ctrData Counter byte array / derived key index.
+     * @throws GenericCryptoException In case any parameter is invalid.
+     */
+    private void validateSignatureParameters(List<SecretKey> signatureKeys, byte[] ctrData) throws GenericCryptoException {
         if (signatureKeys == null) {
             throw new GenericCryptoException("Missing signatureKeys parameter");
         }
@@ -211,18 +405,95 @@ public class SignatureUtils {
         if (ctrData.length != PowerAuthConfiguration.SIGNATURE_COUNTER_LENGTH) {
             throw new GenericCryptoException("Invalid length of signature counter");
         }
-        switch (format) {
-            case BASE64:
-                return computePowerAuthBase64Signature(data, signatureKeys, ctrData);
-            case DECIMAL:
-                return computePowerAuthDecimalSignature(data, signatureKeys, ctrData);
-            default:
-                throw new GenericCryptoException("Unsupported format of PowerAuth signature.");
+    }
+
+    /**
+     * Compute PowerAuth signature for given data using a secret signature keys and counter byte array.
+     *
+     * @param data Data to be signed.
+     * @param signatureKeys Keys for computing the signature.
+     * @param ctrData Counter byte array / derived key index.
+     * @param format Format of signature to produce.
+     * @return PowerAuth signature for given data.
+     * @throws GenericCryptoException In case signature computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public String computePowerAuthSignature(byte[] data, List<SecretKey> signatureKeys, byte[] ctrData, PowerAuthSignatureFormat format) throws GenericCryptoException, CryptoProviderException {
+        validateSignatureParameters(signatureKeys, ctrData);
+        if (format == null) {
+            throw new GenericCryptoException("Unsupported format of PowerAuth signature.");
+        }
+        return formatPowerAuthSignature(computePowerAuthSignatureComponents(data, signatureKeys, ctrData), format);
+    }
+
+    /**
+     * Compute PowerAuth signature for data provided by a data feeder using a secret signature keys and counter byte array.
+     * The signed data is not required as a single byte array, the data feeder updates MACs initialized for each signature
+     * factor. The result is equal to {@link #computePowerAuthSignature(byte[], List, byte[], PowerAuthSignatureFormat)}
+     * for the same data.
+     *
+     * @param dataFeeder Data feeder which updates the MACs with signed data.
+     * @param signatureKeys Keys for computing the signature.
+     * @param ctrData Counter byte array / derived key index.
+     * @param format Format of signature to produce.
+     * @return PowerAuth signature for provided data.
+     * @throws GenericCryptoException In case signature computation fails or signed data cannot be read.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public String computePowerAuthSignature(SignatureDataFeeder dataFeeder, List<SecretKey> signatureKeys, byte[] ctrData, PowerAuthSignatureFormat format) throws GenericCryptoException, CryptoProviderException {
+        if (dataFeeder == null) {
+            throw new GenericCryptoException("Missing dataFeeder parameter");
+        }
+        validateSignatureParameters(signatureKeys, ctrData);
+        if (format == null) {
+            throw new GenericCryptoException("Unsupported format of PowerAuth signature.");
+        }
+        return formatPowerAuthSignature(computePowerAuthSignatureComponents(dataFeeder, signatureKeys, ctrData), format);
+    }
+
+    /**
+     * Verify the PowerAuth signature for data provided by a data feeder using provided keys. The signature is decoded
+     * before the data is read, so that malformed signatures are rejected early, and the computed signature components
+     * are compared with the decoded ones in constant time.
+     *
+     * @param dataFeeder Data feeder which updates the MACs with signed data.
+     * @param signature Data signature.
+     * @param signatureKeys Keys for signature validation.
+     * @param ctrData Counter data.
+     * @param format Format in which signature will be validated.
+     * @return Return "true" if signature matches, "false" otherwise.
+     * @throws GenericCryptoException In case signature computation fails or signed data cannot be read.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public boolean verifyPowerAuthSignature(SignatureDataFeeder dataFeeder, CharSequence signature, List<SecretKey> signatureKeys, byte[] ctrData, PowerAuthSignatureFormat format) throws GenericCryptoException, CryptoProviderException {
+        if (dataFeeder == null) {
+            throw new GenericCryptoException("Missing dataFeeder parameter");
+        }
+        if (signature == null) {
+            throw new GenericCryptoException("Missing signature parameter");
+        }
+        validateSignatureParameters(signatureKeys, ctrData);
+        if (format == null) {
+            throw new GenericCryptoException("Unsupported format of PowerAuth signature.");
         }
+        final int factorCount = signatureKeys.size();
+        // Decode the signature first, malformed signature cannot match
+        final byte[] decodedComponents = new byte[factorCount * format.getComponentLength()];
+        if (!format.decodeSignature(signature, factorCount, decodedComponents)) {
+            return false;
+        }
+        final List<byte[]> signatureComponents = computePowerAuthSignatureComponents(dataFeeder, signatureKeys, ctrData);
+        final byte[] computedComponents = new byte[decodedComponents.length];
+        for (int i = 0; i < factorCount; i++) {
+            format.truncateSignatureComponent(signatureComponents.get(i), computedComponents, i);
+        }
+        return constantTimeEquals(computedComponents, decodedComponents, decodedComponents.length);
     }
 
     /**
-     * Validate the PowerAuth signature for given data using provided keys.
+     * Validate the PowerAuth signature for given data using provided keys. The signature is decoded before any HMAC
+     * is computed, so that malformed signatures are rejected early, and the computed signature is compared with
+     * the decoded one in constant time.
      *
      * @param data Data that were signed.
      * @param signature Data signature.
@@ -234,7 +505,254 @@ public class SignatureUtils {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     public boolean validatePowerAuthSignature(byte[] data, String signature, List<SecretKey> signatureKeys, byte[] ctrData, PowerAuthSignatureFormat format) throws GenericCryptoException, CryptoProviderException {
-        return signature.equals(computePowerAuthSignature(data, signatureKeys, ctrData, format));
+        if (data == null) {
+            throw new GenericCryptoException("Missing data parameter");
+        }
+        return verifyPowerAuthSignature(ByteBuffer.wrap(data), signature, signatureKeys, ctrData, format);
+    }
+
+    /**
+     * Verify the PowerAuth signature for given data using provided keys. The method does not construct the expected
+     * signature string. The signature provided by the client is decoded by {@link PowerAuthSignatureFormat} into binary
+     * components before any HMAC is computed, and the computed components are compared with the decoded ones
+     * in constant time. Working buffers are reused across calls on the same thread.
+     * <p>
+     * The content of {@code data} between its position and limit is signed. The position of the buffer is not changed.
+     *
+     * @param data Data that were signed.
+     * @param signature Data signature.
+     * @param signatureKeys Keys for signature validation.
+     * @param ctrData Counter data.
+     * @param format Format in which signature will be validated.
+     * @return Return "true" if signature matches, "false" otherwise.
+     * @throws GenericCryptoException In case signature computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public boolean verifyPowerAuthSignature(ByteBuffer data, CharSequence signature, List<SecretKey> signatureKeys, byte[] ctrData, PowerAuthSignatureFormat format) throws GenericCryptoException, CryptoProviderException {
+        return verifyPowerAuthSignatureWithLookAhead(data, signature, signatureKeys, ctrData, 1, format) == 0;
+    }
+
+    /**
+     * Verify the PowerAuth signature for given data using provided keys, trying {@code lookAhead} consecutive values
+     * of the hash based counter, starting with {@code ctrData}. The counter is advanced in the same way as
+     * {@link io.getlime.security.powerauth.crypto.lib.generator.HashBasedCounter#next(byte[])} does, but in place.
+     * The signature is decoded only once, and the MAC and digest engines are shared by all steps.
+     * <p>
+     * The content of {@code data} between its position and limit is signed. The position of the buffer is not changed.
+     *
+     * @param data Data that were signed.
+     * @param signature Data signature.
+     * @param signatureKeys Keys for signature validation.
+     * @param ctrData Counter data of the first counter value to try.
+     * @param lookAhead Number of counter values to try, at least 1.
+     * @param format Format in which signature will be validated.
+     * @return Offset of the counter value for which the signature matches, where 0 stands for {@code ctrData},
+     * or -1 if the signature does not match any counter value in the window.
+     * @throws GenericCryptoException In case signature computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public int verifyPowerAuthSignatureWithLookAhead(ByteBuffer data, CharSequence signature, List<SecretKey> signatureKeys, byte[] ctrData, int lookAhead, PowerAuthSignatureFormat format) throws GenericCryptoException, CryptoProviderException {
+        if (data == null) {
+            throw new GenericCryptoException("Missing data parameter");
+        }
+        if (signature == null) {
+            throw new GenericCryptoException("Missing signature parameter");
+        }
+        if (signatureKeys == null) {
+            throw new GenericCryptoException("Missing signatureKeys parameter");
+        }
+        if (ctrData == null) {
+            throw new GenericCryptoException("Missing ctrData parameter");
+        }
+        if (signatureKeys.isEmpty() || signatureKeys.size() > PowerAuthConfiguration.MAX_SIGNATURE_KEYS_COUNT) {
+            throw new GenericCryptoException("Wrong number of signature keys");
+        }
+        if (ctrData.length != PowerAuthConfiguration.SIGNATURE_COUNTER_LENGTH) {
+            throw new GenericCryptoException("Invalid length of signature counter");
+        }
+        if (lookAhead < 1) {
+            throw new GenericCryptoException("Invalid look ahead window");
+        }
+        if (format == null) {
+            throw new GenericCryptoException("Unsupported format of PowerAuth signature.");
+        }
+        final VerificationBuffers buffers = verificationBuffers.get();
+        final int factorCount = signatureKeys.size();
+        // Decode the signature first, malformed signature cannot match
+        if (!format.decodeSignature(signature, factorCount, buffers.decodedComponents)) {
+            return -1;
+        }
+        try {
+            final Mac mac = CryptoEngineCache.getMac("HmacSHA256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.HMAC));
+            final byte[] counter = buffers.counter;
+            System.arraycopy(ctrData, 0, counter, 0, counter.length);
+            MessageDigest sha256 = null;
+            // Signature keys are used once for each counter value, prepare them when more values are tried
+            PreparedHmacKey[] preparedSignatureKeys = null;
+            if (lookAhead > 1) {
+                preparedSignatureKeys = new PreparedHmacKey[factorCount];
+                for (int i = 0; i < factorCount; i++) {
+                    preparedSignatureKeys[i] = PreparedHmacKey.prepare(signatureKeys.get(i));
+                }
+            }
+            for (int offset = 0; offset < lookAhead; offset++) {
+                if (offset > 0) {
+                    if (sha256 == null) {
+                        sha256 = CryptoEngineCache.getMessageDigest("SHA-256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName(CryptoPrimitiveFamily.DIGEST));
+                    }
+                    nextCounter(sha256, counter, buffers.counterHash);
+                }
+                computePowerAuthSignatureComponents(mac, data, signatureKeys, preparedSignatureKeys, counter, format, buffers);
+                if (constantTimeEquals(buffers.computedComponents, buffers.decodedComponents, factorCount * format.getComponentLength())) {
+                    return offset;
+                }
+            }
+            return -1;
+        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new CryptoProviderException(ex.getMessage(), ex);
+        } catch (InvalidKeyException | ShortBufferException | DigestException ex) {
+            logger.warn(ex.getMessage(), ex);
+            throw new GenericCryptoException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Compute all components of PowerAuth signature into {@code buffers.computedComponents}, in the binary form
+     * of given signature format. The computation is equivalent to {@link #computePowerAuthSignatureComponents(byte[], List, byte[])},
+     * but the keys derived from the counter are computed only once for each factor and only the provided working
+     * buffers are used for intermediate results.
+     *
+     * @param mac MAC engine for HMAC-SHA256.
+     * @param data Data to be signed, the buffer position is preserved.
+     * @param signatureKeys Keys for computing the signature.
+     * @param preparedSignatureKeys Prepared keys for computing the signature, or null if the keys are not prepared.
+     * @param ctrData Counter byte array / derived key index.
+     * @param format Signature format.
+     * @param buffers Working buffers.
+     * @throws InvalidKeyException In case a key is invalid.
+     * @throws ShortBufferException In case MAC output does not fit into the working buffer.
+     * @throws GenericCryptoException In case HMAC computation with prepared keys fails.
+     */
+    private void computePowerAuthSignatureComponents(Mac mac, ByteBuffer data, List<SecretKey> signatureKeys, PreparedHmacKey[] preparedSignatureKeys, byte[] ctrData, PowerAuthSignatureFormat format, VerificationBuffers buffers) throws InvalidKeyException, ShortBufferException, GenericCryptoException {
+        final byte[] derivedKey = buffers.derivedKey;
+        final byte[][] counterKeys = buffers.counterKeys;
+        final int factorCount = signatureKeys.size();
+
+        // Keys derived from the counter, KEY_i = HMAC(signatureKey_i, ctrData)
+        for (int i = 0; i < factorCount; i++) {
+            if (preparedSignatureKeys != null) {
+                preparedSignatureKeys[i].hash(ctrData, counterKeys[i], 0);
+            } else {
+                mac.init(signatureKeys.get(i));
+                mac.update(ctrData);
+                mac.doFinal(counterKeys[i], 0);
+            }
+        }
+
+        for (int i = 0; i < factorCount; i++) {
+            System.arraycopy(counterKeys[i], 0, derivedKey, 0, derivedKey.length);
+            for (int j = 0; j < i; j++) {
+                mac.init(buffers.counterKeySpecs[j + 1]);
+                mac.update(derivedKey);
+                mac.doFinal(derivedKey, 0);
+            }
+            mac.init(buffers.derivedKeySpec);
+            final int position = data.position();
+            mac.update(data);
+            data.position(position);
+            mac.doFinal(buffers.signatureComponent, 0);
+            format.truncateSignatureComponent(buffers.signatureComponent, buffers.computedComponents, i);
+        }
+    }
+
+    /**
+     * Advance hash based counter in place, {@code ctrData = convert32Bto16B(SHA-256(ctrData))}.
+     *
+     * @param sha256 SHA-256 digest.
+     * @param ctrData Counter data to be advanced.
+     * @param hash Working buffer for the hash.
+     * @throws DigestException In case digest calculation fails.
+     */
+    private static void nextCounter(MessageDigest sha256, byte[] ctrData, byte[] hash) throws DigestException {
+        sha256.update(ctrData);
+        sha256.digest(hash, 0, hash.length);
+        for (int i = 0; i < ctrData.length; i++) {
+            ctrData[i] = (byte) (hash[i] ^ hash[i + ctrData.length]);
+        }
+    }
+
+    /**
+     * Compare first {@code length} bytes of two arrays. The time of comparison does not depend on the position
+     * of the first difference.
+     *
+     * @param a First array.
+     * @param b Second array.
+     * @param length Number of bytes to compare.
+     * @return True if the compared bytes are equal, false otherwise.
+     */
+    private static boolean constantTimeEquals(byte[] a, byte[] b, int length) {
+        int difference = 0;
+        for (int i = 0; i < length; i++) {
+            difference |= a[i] ^ b[i];
+        }
+        return difference == 0;
+    }
+
+    /**
+     * Working buffers used during signature verification.
+     */
+    private static final class VerificationBuffers {
+        private final byte[] derivedKey = new byte[32];
+        private final byte[][] counterKeys = new byte[PowerAuthConfiguration.MAX_SIGNATURE_KEYS_COUNT][32];
+        private final byte[] signatureComponent = new byte[32];
+        private final byte[] counter = new byte[PowerAuthConfiguration.SIGNATURE_COUNTER_LENGTH];
+        private final byte[] counterHash = new byte[32];
+        private final byte[] decodedComponents = new byte[PowerAuthConfiguration.MAX_SIGNATURE_KEYS_COUNT * PowerAuthConfiguration.SIGNATURE_BINARY_LENGTH];
+        private final byte[] computedComponents = new byte[PowerAuthConfiguration.MAX_SIGNATURE_KEYS_COUNT * PowerAuthConfiguration.SIGNATURE_BINARY_LENGTH];
+        private final WorkingBufferKey derivedKeySpec = new WorkingBufferKey(derivedKey);
+        private final WorkingBufferKey[] counterKeySpecs = new WorkingBufferKey[PowerAuthConfiguration.MAX_SIGNATURE_KEYS_COUNT];
+
+        private VerificationBuffers() {
+            for (int i = 0; i < counterKeySpecs.length; i++) {
+                counterKeySpecs[i] = new WorkingBufferKey(counterKeys[i]);
+            }
+        }
+    }
+
+    /**
+     * HMAC-SHA256 key backed by a working buffer, used instead of creating a new {@link SecretKeySpec} for each
+     * intermediate derived key. The current content of the buffer is copied into a reused array returned by
+     * {@link #getEncoded()}, because providers may clear that array once {@link Mac#init(java.security.Key)}
+     * consumes the key. The key is only valid for immediate use by {@link Mac#init(java.security.Key)}.
+     */
+    private static final class WorkingBufferKey implements SecretKey {
+
+        private static final long serialVersionUID = 6217362413843460742L;
+
+        private final byte[] buffer;
+        private final byte[] encoded;
+
+        private WorkingBufferKey(byte[] buffer) {
+            this.buffer = buffer;
+            this.encoded = new byte[buffer.length];
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return "HmacSHA256";
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            System.arraycopy(buffer, 0, encoded, 0, buffer.length);
+            return encoded;
+        }
     }
 
 }
@@ -16,12 +16,12 @@
  */
 package io.getlime.security.powerauth.crypto.lib.util;
 
-import com.google.common.primitives.Bytes;
 import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
 import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.UUID;
 
@@ -32,6 +32,11 @@ import java.util.UUID;
  */
 public class TokenUtils {
 
+    /**
+     * Separator of nonce and timestamp in token digest data.
+     */
+    private static final byte[] AMPERSAND = "&".getBytes(StandardCharsets.UTF_8);
+
     private final KeyGenerator keyGenerator = new KeyGenerator();
     private final HMACHashUtilities hmac = new HMACHashUtilities();
 
@@ -98,9 +103,8 @@ public class TokenUtils {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     public byte[] computeTokenDigest(byte[] nonce, byte[] timestamp, byte[] tokenSecret) throws GenericCryptoException, CryptoProviderException {
-        byte[] amp = "&".getBytes(StandardCharsets.UTF_8);
-        byte[] data = Bytes.concat(nonce, amp, timestamp);
-        return hmac.hash(tokenSecret, data);
+        // Digest data is "nonce & timestamp", passed to HMAC in parts without concatenation
+        return hmac.hash(tokenSecret, nonce, AMPERSAND, timestamp);
     }
 
     /**
@@ -117,4 +121,34 @@ public class TokenUtils {
         return Arrays.equals(computeTokenDigest(nonce, timestamp, tokenSecret), tokenDigest);
     }
 
+    /**
+     * Compute the digest of provided token information using given prepared token secret. The token secret
+     * can be prepared once using {@link PreparedHmacKey#prepare(byte[])} and reused for digests of multiple
+     * requests authorized by the same token.
+     * @param nonce Token nonce, 16 random bytes.
+     * @param timestamp Token timestamp, Unix timestamp format encoded as bytes (string representation).
+     * @param tokenSecret Prepared token secret.
+     * @return Token digest computed using provided data bytes with given token secret.
+     * @throws GenericCryptoException In case digest computation fails.
+     */
+    public byte[] computeTokenDigest(byte[] nonce, byte[] timestamp, PreparedHmacKey tokenSecret) throws GenericCryptoException {
+        if (tokenSecret == null) {
+            throw new GenericCryptoException("Missing token secret");
+        }
+        return tokenSecret.hash(nonce, AMPERSAND, timestamp);
+    }
+
+    /**
+     * Validate provided token digest for given input data and provided prepared token secret.
+     * @param nonce Token nonce, 16 random bytes.
+     * @param timestamp Token timestamp, Unix timestamp format encoded as bytes (string representation).
+     * @param tokenSecret Prepared token secret.
+     * @param tokenDigest Token digest, 32 bytes to be validated.
+     * @return Token digest computed using provided data bytes with given token secret.
+     * @throws GenericCryptoException In case digest computation fails.
+     */
+    public boolean validateTokenDigest(byte[] nonce, byte[] timestamp, PreparedHmacKey tokenSecret, byte[] tokenDigest) throws GenericCryptoException {
+        return MessageDigest.isEqual(computeTokenDigest(nonce, timestamp, tokenSecret), tokenDigest);
+    }
+
 }
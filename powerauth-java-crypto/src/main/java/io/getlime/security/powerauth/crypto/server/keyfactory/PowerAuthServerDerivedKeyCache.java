@@ -0,0 +1,151 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.server.keyfactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthDerivedKey;
+
+import javax.crypto.SecretKey;
+import java.security.MessageDigest;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of keys derived from KEY_MASTER_SECRET, used by {@link PowerAuthServerKeyFactory}. Entries are keyed
+ * by an opaque activation handle, typically the activation ID, and the derived key type. The cache evicts entries
+ * when it exceeds the maximum size and when the entries are older than the configured time to live.
+ * <p>
+ * Each entry also remembers the master secret key the derived key was computed from. When a different master
+ * secret key is provided for the same activation handle, the entry is ignored and replaced. Nevertheless, the
+ * cache should be explicitly invalidated using {@link #invalidate(String)} when the activation is removed,
+ * or when its keys are rotated, so that the derived keys are not kept in memory longer than necessary.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class PowerAuthServerDerivedKeyCache {
+
+    private final Cache<CacheKey, CacheEntry> cache;
+
+    /**
+     * Constructor with cache limits.
+     *
+     * @param maximumSize Maximum number of cached derived keys.
+     * @param timeToLive Time to live of the cached derived keys.
+     * @param timeUnit Unit of the time to live.
+     */
+    public PowerAuthServerDerivedKeyCache(long maximumSize, long timeToLive, TimeUnit timeUnit) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, timeUnit)
+                .build();
+    }
+
+    /**
+     * Get cached derived key.
+     *
+     * @param activationHandle Activation handle.
+     * @param derivedKey Type of the derived key.
+     * @param masterSecretKeyBytes Bytes of the master secret key the derived key should be computed from.
+     * @return Cached derived key, or null in case the key is not present in the cache.
+     */
+    SecretKey get(String activationHandle, PowerAuthDerivedKey derivedKey, byte[] masterSecretKeyBytes) {
+        final CacheEntry entry = cache.getIfPresent(new CacheKey(activationHandle, derivedKey));
+        if (entry == null || !MessageDigest.isEqual(entry.masterSecretKeyBytes, masterSecretKeyBytes)) {
+            return null;
+        }
+        return entry.secretKey;
+    }
+
+    /**
+     * Store derived key in the cache.
+     *
+     * @param activationHandle Activation handle.
+     * @param derivedKey Type of the derived key.
+     * @param masterSecretKeyBytes Bytes of the master secret key the derived key was computed from.
+     * @param secretKey Derived key.
+     */
+    void put(String activationHandle, PowerAuthDerivedKey derivedKey, byte[] masterSecretKeyBytes, SecretKey secretKey) {
+        cache.put(new CacheKey(activationHandle, derivedKey), new CacheEntry(masterSecretKeyBytes, secretKey));
+    }
+
+    /**
+     * Remove all derived keys of given activation from the cache. Call this method when the activation is removed,
+     * or when its master secret key changes.
+     *
+     * @param activationHandle Activation handle.
+     */
+    public void invalidate(String activationHandle) {
+        cache.asMap().keySet().removeIf(key -> key.activationHandle.equals(activationHandle));
+    }
+
+    /**
+     * Remove all derived keys from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Get approximate number of derived keys in the cache.
+     *
+     * @return Number of cached derived keys.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Key of the cache entry.
+     */
+    private static final class CacheKey {
+        private final String activationHandle;
+        private final PowerAuthDerivedKey derivedKey;
+
+        private CacheKey(String activationHandle, PowerAuthDerivedKey derivedKey) {
+            this.activationHandle = activationHandle;
+            this.derivedKey = derivedKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final CacheKey cacheKey = (CacheKey) o;
+            return activationHandle.equals(cacheKey.activationHandle) && derivedKey == cacheKey.derivedKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(activationHandle, derivedKey);
+        }
+    }
+
+    /**
+     * Cache entry with derived key and the master secret key it was derived from.
+     */
+    private static final class CacheEntry {
+        private final byte[] masterSecretKeyBytes;
+        private final SecretKey secretKey;
+
+        private CacheEntry(byte[] masterSecretKeyBytes, SecretKey secretKey) {
+            this.masterSecretKeyBytes = masterSecretKeyBytes;
+            this.secretKey = secretKey;
+        }
+    }
+
+}
@@ -16,6 +16,7 @@
  */
 package io.getlime.security.powerauth.crypto.server.keyfactory;
 
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthDerivedKey;
 import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureTypes;
 import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
@@ -32,6 +33,9 @@ import java.util.List;
 
 /**
  * Key factory used on server side to generate PowerAuth related keys.
+ * <p>
+ * The factory can be constructed with {@link PowerAuthServerDerivedKeyCache}. In such case, the methods accepting
+ * an activation handle return keys derived from the master secret key from the cache, when available.
  *
  * @author Petr Dvorak, petr@wultra.com
  *
@@ -40,6 +44,24 @@ public class PowerAuthServerKeyFactory {
 
     private final KeyGenerator keyGenerator = new KeyGenerator();
 
+    private final PowerAuthServerDerivedKeyCache derivedKeyCache;
+
+    /**
+     * Default constructor, derived keys are not cached.
+     */
+    public PowerAuthServerKeyFactory() {
+        this(null);
+    }
+
+    /**
+     * Constructor with cache of derived keys.
+     *
+     * @param derivedKeyCache Cache of derived keys, or null if derived keys should not be cached.
+     */
+    public PowerAuthServerKeyFactory(PowerAuthServerDerivedKeyCache derivedKeyCache) {
+        this.derivedKeyCache = derivedKeyCache;
+    }
+
     /**
      * Generate a list with signature keys for given signature type and master secret
      * @param signatureType Requested signature type
@@ -51,46 +73,54 @@ public class PowerAuthServerKeyFactory {
      * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
      */
     public List<SecretKey> keysForSignatureType(PowerAuthSignatureTypes signatureType, SecretKey masterSecretKey) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        return keysForSignatureType(null, signatureType, masterSecretKey);
+    }
+
+    /**
+     * Generate a list with signature keys for given signature type and master secret. The keys
+     * are taken from the derived key cache, if the factory was constructed with one.
+     *
+     * @param activationHandle Opaque activation handle used as a cache key, typically the activation ID.
+     *                         The cache is bypassed when the handle is null.
+     * @param signatureType Requested signature type
+     * @param masterSecretKey Master Key Secret
+     * @return List with keys constructed from master secret that are needed to get
+     * requested signature type.
+     * @throws InvalidKeyException In case master secret key is invalid.
+     * @throws GenericCryptoException In case key derivation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public List<SecretKey> keysForSignatureType(String activationHandle, PowerAuthSignatureTypes signatureType, SecretKey masterSecretKey) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
 
         List<SecretKey> signatureKeys = new ArrayList<>();
 
         if (signatureType.equals(PowerAuthSignatureTypes.POSSESSION)) {
 
-            SecretKey signatureKey = generateServerSignaturePossessionKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_POSSESSION));
 
         } else if (signatureType.equals(PowerAuthSignatureTypes.KNOWLEDGE)) {
 
-            SecretKey signatureKey = generateServerSignatureKnowledgeKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_KNOWLEDGE));
 
         } else if (signatureType.equals(PowerAuthSignatureTypes.BIOMETRY)) {
 
-            SecretKey signatureKey = generateServerSignatureBiometryKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_BIOMETRY));
 
         } else if (signatureType.equals(PowerAuthSignatureTypes.POSSESSION_KNOWLEDGE)) {
 
-            SecretKey signatureKey = generateServerSignaturePossessionKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
-            signatureKey = generateServerSignatureKnowledgeKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_POSSESSION));
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_KNOWLEDGE));
 
         } else if (signatureType.equals(PowerAuthSignatureTypes.POSSESSION_BIOMETRY)) {
 
-            SecretKey signatureKey = generateServerSignaturePossessionKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
-            signatureKey = generateServerSignatureBiometryKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_POSSESSION));
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_BIOMETRY));
 
         } else if (signatureType.equals(PowerAuthSignatureTypes.POSSESSION_KNOWLEDGE_BIOMETRY)) {
 
-            SecretKey signatureKey = generateServerSignaturePossessionKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
-            signatureKey = generateServerSignatureKnowledgeKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
-            signatureKey = generateServerSignatureBiometryKey(masterSecretKey);
-            signatureKeys.add(signatureKey);
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_POSSESSION));
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_KNOWLEDGE));
+            signatureKeys.add(deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.SIGNATURE_BIOMETRY));
 
         }
 
@@ -116,6 +146,23 @@ public class PowerAuthServerKeyFactory {
         );
     }
 
+    /**
+     * Generate a transport key KEY_ENCRYPTED_VAULT from master secret key
+     * KEY_MASTER_SECRET using KDF. The key is taken from the derived key cache,
+     * if the factory was constructed with one.
+     *
+     * @see KeyGenerator#deriveSecretKey(SecretKey, byte[])
+     * @param activationHandle Opaque activation handle used as a cache key, typically the activation ID.
+     * @param masterSecretKey Master secret key KEY_MASTER_SECRET.
+     * @return An instance of signature key KEY_ENCRYPTED_VAULT.
+     * @throws InvalidKeyException In case master secret key is invalid.
+     * @throws GenericCryptoException In case key derivation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public SecretKey generateServerEncryptedVaultKey(String activationHandle, SecretKey masterSecretKey) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        return deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.ENCRYPTED_VAULT);
+    }
+
     /**
      * Generate a master secret key KEY_MASTER_SECRET using the server private
      * key KEY_SERVER_PRIVATE and device public key KEY_DEVICE_PUBLIC.
@@ -204,6 +251,23 @@ public class PowerAuthServerKeyFactory {
         );
     }
 
+    /**
+     * Generate a transport key KEY_TRANSPORT from master secret key
+     * KEY_MASTER_SECRET using KDF. The key is taken from the derived key cache,
+     * if the factory was constructed with one.
+     *
+     * @see KeyGenerator#deriveSecretKey(SecretKey, byte[])
+     * @param activationHandle Opaque activation handle used as a cache key, typically the activation ID.
+     * @param masterSecretKey Master secret key KEY_MASTER_SECRET.
+     * @return An instance of signature key KEY_TRANSPORT.
+     * @throws InvalidKeyException In case master secret key is invalid.
+     * @throws GenericCryptoException In case key derivation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public SecretKey generateServerTransportKey(String activationHandle, SecretKey masterSecretKey) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        return deriveKey(activationHandle, masterSecretKey, PowerAuthDerivedKey.TRANSPORT);
+    }
+
     /**
      * Derive transport key KEY_TRANSPORT in two steps:
      * 1. Generate KEY_MASTER_SECRET using KEY_SERVER_PRIVATE and KEY_DEVICE_PUBLIC.
@@ -223,4 +287,28 @@ public class PowerAuthServerKeyFactory {
         return generateServerTransportKey(masterSecretKey);
     }
 
+    /**
+     * Derive a key from master secret key, using the derived key cache when available.
+     *
+     * @param activationHandle Activation handle, or null if the cache should be bypassed.
+     * @param masterSecretKey Master secret key KEY_MASTER_SECRET.
+     * @param derivedKey Type of the derived key.
+     * @return Derived key.
+     * @throws InvalidKeyException In case master secret key is invalid.
+     * @throws GenericCryptoException In case key derivation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    private SecretKey deriveKey(String activationHandle, SecretKey masterSecretKey, PowerAuthDerivedKey derivedKey) throws InvalidKeyException, GenericCryptoException, CryptoProviderException {
+        if (derivedKeyCache == null || activationHandle == null || masterSecretKey == null) {
+            return keyGenerator.deriveSecretKey(masterSecretKey, derivedKey.getIndex());
+        }
+        final byte[] masterSecretKeyBytes = PowerAuthConfiguration.INSTANCE.getKeyConvertor().convertSharedSecretKeyToBytes(masterSecretKey);
+        SecretKey secretKey = derivedKeyCache.get(activationHandle, derivedKey, masterSecretKeyBytes);
+        if (secretKey == null) {
+            secretKey = keyGenerator.deriveSecretKey(masterSecretKey, derivedKey.getIndex());
+            derivedKeyCache.put(activationHandle, derivedKey, masterSecretKeyBytes, secretKey);
+        }
+        return secretKey;
+    }
+
 }
@@ -18,10 +18,12 @@ package io.getlime.security.powerauth.crypto.server.signature;
 
 import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureDataFeeder;
 import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
 import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -52,4 +54,63 @@ public class PowerAuthServerSignature {
         return signatureUtils.validatePowerAuthSignature(data, signature, signatureKeys, ctrData, signatureFormat);
     }
 
+    /**
+     * Verify a PowerAuth signature against data using signature key list and
+     * counter. The method parses provided signature and compares it with the
+     * computed signature components in place, without constructing the expected
+     * signature string.
+     *
+     * @param data Signed data, the content between buffer position and limit is used.
+     * @param signature Signature for the data.
+     * @param signatureKeys Keys used for signature.
+     * @param ctrData Hash based counter / derived signing key index.
+     * @param signatureFormat Format of signature to verify.
+     * @return Returns "true" if the signature matches, "false" otherwise.
+     * @throws GenericCryptoException In case signature computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public boolean verifySignatureForData(ByteBuffer data, CharSequence signature, List<SecretKey> signatureKeys, byte[] ctrData, PowerAuthSignatureFormat signatureFormat) throws GenericCryptoException, CryptoProviderException {
+        return signatureUtils.verifyPowerAuthSignature(data, signature, signatureKeys, ctrData, signatureFormat);
+    }
+
+    /**
+     * Verify a PowerAuth signature against data provided by a data feeder using
+     * signature key list and counter. The data feeder updates MACs initialized
+     * with the keys derived for each signature factor, so that the signed data
+     * does not have to be constructed as a single byte array.
+     *
+     * @param dataFeeder Data feeder which updates the MACs with signed data.
+     * @param signature Signature for the data.
+     * @param signatureKeys Keys used for signature.
+     * @param ctrData Hash based counter / derived signing key index.
+     * @param signatureFormat Format of signature to verify.
+     * @return Returns "true" if the signature matches, "false" otherwise.
+     * @throws GenericCryptoException In case signature computation fails or signed data cannot be read.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public boolean verifySignatureForData(SignatureDataFeeder dataFeeder, CharSequence signature, List<SecretKey> signatureKeys, byte[] ctrData, PowerAuthSignatureFormat signatureFormat) throws GenericCryptoException, CryptoProviderException {
+        return signatureUtils.verifyPowerAuthSignature(dataFeeder, signature, signatureKeys, ctrData, signatureFormat);
+    }
+
+    /**
+     * Verify a PowerAuth signature against data using signature key list, trying
+     * several consecutive values of the hash based counter. The first tried value
+     * is {@code ctrData}, following values are obtained by advancing the hash chain,
+     * see {@link io.getlime.security.powerauth.crypto.lib.generator.HashBasedCounter#next(byte[])}.
+     *
+     * @param data Signed data, the content between buffer position and limit is used.
+     * @param signature Signature for the data.
+     * @param signatureKeys Keys used for signature.
+     * @param ctrData Hash based counter / derived signing key index expected by the server.
+     * @param lookAhead Number of counter values to try, at least 1.
+     * @param signatureFormat Format of signature to verify.
+     * @return Returns offset of the counter value for which the signature matches, or -1 if the signature
+     * does not match any counter value within the look ahead window.
+     * @throws GenericCryptoException In case signature computation fails.
+     * @throws CryptoProviderException In case cryptography provider is incorrectly initialized.
+     */
+    public int verifySignatureForDataWithLookAhead(ByteBuffer data, CharSequence signature, List<SecretKey> signatureKeys, byte[] ctrData, int lookAhead, PowerAuthSignatureFormat signatureFormat) throws GenericCryptoException, CryptoProviderException {
+        return signatureUtils.verifyPowerAuthSignatureWithLookAhead(data, signature, signatureKeys, ctrData, lookAhead, signatureFormat);
+    }
+
 }
@@ -17,6 +17,7 @@
 package io.getlime.security.powerauth.crypto.activation;
 
 import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.kdf.KdfX9_63;
 import io.getlime.security.powerauth.crypto.lib.generator.IdentifierGenerator;
 import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
 import io.getlime.security.powerauth.crypto.lib.model.RecoveryInfo;
@@ -29,8 +30,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.security.*;
-import java.util.HashSet;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.*;
 
@@ -92,4 +96,55 @@ public class PowerAuthRecoveryCodeTest {
         }
     }
 
+    @Test
+    public void testBulkRecoveryCodeGeneration() throws Exception {
+        final int codeCount = 300;
+        final int pukCount = 5;
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        final List<SecretKey> secretKeys = new ArrayList<>();
+        for (int i = 0; i < codeCount; i++) {
+            secretKeys.add(keyGenerator.generateRandomSecretKey());
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<RecoveryInfo> recoveryInfos = new ArrayList<>();
+            identifierGenerator.generateRecoveryCodes(secretKeys, pukCount, true, executor, recoveryInfos::add);
+            assertEquals(codeCount, recoveryInfos.size());
+
+            for (int i = 0; i < codeCount; i++) {
+                final RecoveryInfo recoveryInfo = recoveryInfos.get(i);
+                assertTrue(identifierGenerator.validateActivationCode(recoveryInfo.getRecoveryCode()));
+                assertEquals(pukCount, recoveryInfo.getPuks().size());
+                assertEquals(pukCount, new HashSet<>(recoveryInfo.getPuks().values()).size());
+
+                // Recovery codes are passed to the consumer in the order of secret keys
+                final RecoveryInfo derivedRecoveryInfo = identifierGenerator.deriveRecoveryCode(secretKeys.get(i), recoveryInfo.getSeed());
+                assertEquals(recoveryInfo.getRecoveryCode(), derivedRecoveryInfo.getRecoveryCode());
+                assertEquals(recoveryInfo.getPuks(), derivedRecoveryInfo.getPuks());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPukDerivationMatchesKeyDerivation() throws Exception {
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        final SecretKey secretKey = keyGenerator.generateRandomSecretKey();
+        final RecoveryInfo recoveryInfo = identifierGenerator.generateRecoveryCode(secretKey, 20, true);
+
+        // Compute PUKs using the reference derivation from the specification
+        final byte[] secretKeyBytes = PowerAuthConfiguration.INSTANCE.getKeyConvertor().convertSharedSecretKeyToBytes(secretKey);
+        final byte[] derivedKeyBytes = KdfX9_63.derive(secretKeyBytes, recoveryInfo.getSeed().getNonce(), 26);
+        final SecretKey pukBaseKey = PowerAuthConfiguration.INSTANCE.getKeyConvertor().convertBytesToSharedSecretKey(Arrays.copyOfRange(derivedKeyBytes, 10, 26));
+        for (Map.Entry<Integer, Long> entry : recoveryInfo.getSeed().getPukDerivationIndexes().entrySet()) {
+            final byte[] indexBytes = ByteBuffer.allocate(8).putLong(entry.getValue()).array();
+            final SecretKey pukKey = keyGenerator.deriveSecretKey(pukBaseKey, indexBytes);
+            final byte[] pukKeyBytes = PowerAuthConfiguration.INSTANCE.getKeyConvertor().convertSharedSecretKeyToBytes(pukKey);
+            final long puk = (ByteBuffer.wrap(pukKeyBytes, 8, 8).getLong() & 0xFFFFFFFFFFL) % (long) (Math.pow(10, 10));
+            assertEquals(String.format("%010d", puk), recoveryInfo.getPuks().get(entry.getKey()));
+        }
+    }
+
 }
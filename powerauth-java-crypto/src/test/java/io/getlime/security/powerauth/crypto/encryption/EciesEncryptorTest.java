@@ -17,15 +17,22 @@
 package io.getlime.security.powerauth.crypto.encryption;
 
 import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteSource;
 import com.google.common.primitives.Bytes;
 import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesDecryptor;
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEncryptor;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesEnvelopeKeyCache;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesFactory;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.EciesServerContext;
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.exception.EciesException;
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.kdf.KdfX9_63;
 import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesCryptogram;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesScope;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.model.EciesSharedInfo1;
 import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
+import io.getlime.security.powerauth.crypto.lib.util.AESEncryptionUtils;
 import io.getlime.security.powerauth.crypto.lib.util.Hash;
 import io.getlime.security.powerauth.provider.CryptoProviderUtil;
 import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
@@ -35,6 +42,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
@@ -43,6 +52,8 @@ import java.security.PublicKey;
 import java.security.Security;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -113,6 +124,298 @@ public class EciesEncryptorTest {
         }
     }
 
+    /**
+     * Test that decryptors created by a factory with envelope key cache reuse the envelope key
+     * for a repeated ephemeral public key.
+     * @throws Exception When test fails.
+     */
+    @Test
+    public void testEnvelopeKeyCache() throws Exception {
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        final ECPrivateKey privateKey = (ECPrivateKey) keyPair.getPrivate();
+        final ECPublicKey publicKey = (ECPublicKey) keyPair.getPublic();
+        final byte[] applicationSecret = keyGenerator.generateRandomBytes(16);
+        final byte[] request = "Hello Alice.".getBytes(StandardCharsets.UTF_8);
+        final byte[] response = "Hello Bob".getBytes(StandardCharsets.UTF_8);
+
+        final EciesEnvelopeKeyCache cache = new EciesEnvelopeKeyCache(100, 1, TimeUnit.MINUTES);
+        final EciesFactory cachedFactory = new EciesFactory(cache);
+        final EciesFactory factory = new EciesFactory();
+
+        final EciesEncryptor encryptor = factory.getEciesEncryptorForApplication(publicKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        final EciesCryptogram cryptogram = encryptor.encryptRequest(request, true);
+
+        // Repeated decryption of the same request derives the envelope key only once
+        for (int i = 0; i < 3; i++) {
+            final EciesDecryptor decryptor = cachedFactory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+            assertArrayEquals(request, decryptor.decryptRequest(cryptogram));
+            final EciesDecryptor uncachedDecryptor = factory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+            uncachedDecryptor.decryptRequest(cryptogram);
+            assertArrayEquals(uncachedDecryptor.getEnvelopeKey().getSecretKey(), decryptor.getEnvelopeKey().getSecretKey());
+            if (i == 0) {
+                assertArrayEquals(response, encryptor.decryptResponse(decryptor.encryptResponse(response)));
+            }
+        }
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2.0 / 3.0, cache.getHitRatio(), 0.001);
+
+        // Different sharedInfo1 must not reuse the envelope key
+        final EciesEncryptor otherEncryptor = factory.getEciesEncryptorForApplication(publicKey, applicationSecret, EciesSharedInfo1.ACTIVATION_LAYER_2);
+        final EciesCryptogram otherCryptogram = otherEncryptor.encryptRequest(request, true);
+        final EciesCryptogram sameEphemeralKeyCryptogram = new EciesCryptogram(cryptogram.getEphemeralPublicKey(), otherCryptogram.getMac(), otherCryptogram.getEncryptedData(), otherCryptogram.getNonce());
+        final EciesDecryptor otherDecryptor = cachedFactory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.ACTIVATION_LAYER_2);
+        try {
+            otherDecryptor.decryptRequest(sameEphemeralKeyCryptogram);
+            fail("Decryption with envelope key for different sharedInfo1 must fail");
+        } catch (EciesException ex) {
+            // Expected
+        }
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+
+        // Private key is identified by its value, an equal key instance reuses the envelope key
+        final CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+        final ECPrivateKey samePrivateKey = (ECPrivateKey) keyConvertor.convertBytesToPrivateKey(keyConvertor.convertPrivateKeyToBytes(privateKey));
+        assertArrayEquals(request, cachedFactory.getEciesDecryptorForApplication(samePrivateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC).decryptRequest(cryptogram));
+        assertEquals(3, cache.getHitCount());
+
+        // Other private key does not reuse the envelope key
+        final ECPrivateKey otherPrivateKey = (ECPrivateKey) keyGenerator.generateKeyPair().getPrivate();
+        try {
+            cachedFactory.getEciesDecryptorForApplication(otherPrivateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC).decryptRequest(cryptogram);
+            fail("Decryption with envelope key for different private key must fail");
+        } catch (EciesException ex) {
+            // Expected
+        }
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.size());
+
+        // Disabled cache derives the envelope key for each request
+        cache.setEnabled(false);
+        assertEquals(0, cache.size());
+        final EciesDecryptor decryptor = cachedFactory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        assertArrayEquals(request, decryptor.decryptRequest(cryptogram));
+        assertEquals(0, cache.size());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.getHitCount());
+    }
+
+    /**
+     * Test that decryptors created by a shared server context for application and activation scope are compatible
+     * with the decryptors created by the factory.
+     * @throws Exception When test fails.
+     */
+    @Test
+    public void testServerContext() throws Exception {
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        final ECPrivateKey privateKey = (ECPrivateKey) keyPair.getPrivate();
+        final ECPublicKey publicKey = (ECPublicKey) keyPair.getPublic();
+        final byte[] applicationSecret = keyGenerator.generateRandomBytes(16);
+        final byte[] transportKey = keyGenerator.generateRandomBytes(16);
+        final byte[] response = "Hello Bob".getBytes(StandardCharsets.UTF_8);
+        final EciesFactory factory = new EciesFactory();
+
+        final EciesServerContext applicationContext = factory.getEciesServerContextForApplication(privateKey, applicationSecret);
+        final EciesServerContext activationContext = factory.getEciesServerContextForActivation(privateKey, applicationSecret, transportKey);
+        assertEquals(EciesScope.APPLICATION_SCOPE, applicationContext.getEciesScope());
+        assertEquals(EciesScope.ACTIVATION_SCOPE, activationContext.getEciesScope());
+        assertArrayEquals(factory.getEciesDecryptorForApplication(privateKey, applicationSecret, null).getSharedInfo2(), applicationContext.getSharedInfo2());
+        assertArrayEquals(factory.getEciesDecryptorForActivation(privateKey, applicationSecret, transportKey, null).getSharedInfo2(), activationContext.getSharedInfo2());
+
+        for (int i = 0; i < 3; i++) {
+            final byte[] request = keyGenerator.generateRandomBytes(100 + i);
+
+            // Application scope with generic sharedInfo1
+            final EciesEncryptor applicationEncryptor = factory.getEciesEncryptorForApplication(publicKey, applicationSecret, null);
+            final EciesCryptogram applicationCryptogram = applicationEncryptor.encryptRequest(request, true);
+            final EciesDecryptor applicationDecryptor = applicationContext.createDecryptor();
+            assertArrayEquals(request, applicationDecryptor.decryptRequest(applicationCryptogram));
+            assertArrayEquals(response, applicationEncryptor.decryptResponse(applicationDecryptor.encryptResponse(response)));
+
+            // Activation scope with specific sharedInfo1
+            final EciesEncryptor activationEncryptor = factory.getEciesEncryptorForActivation(publicKey, applicationSecret, transportKey, EciesSharedInfo1.VAULT_UNLOCK);
+            final EciesCryptogram activationCryptogram = activationEncryptor.encryptRequest(request, true);
+            final EciesDecryptor activationDecryptor = activationContext.createDecryptor(EciesSharedInfo1.VAULT_UNLOCK);
+            assertArrayEquals(request, activationDecryptor.decryptRequest(activationCryptogram));
+            assertArrayEquals(response, activationEncryptor.decryptResponse(activationDecryptor.encryptResponse(response)));
+
+            // The decryptor must match both scope and sharedInfo1
+            try {
+                activationContext.createDecryptor().decryptRequest(activationCryptogram);
+                fail("Decryption with different sharedInfo1 must fail");
+            } catch (EciesException ex) {
+                // Expected
+            }
+            try {
+                applicationContext.createDecryptor(EciesSharedInfo1.VAULT_UNLOCK).decryptRequest(activationCryptogram);
+                fail("Decryption with different sharedInfo2 must fail");
+            } catch (EciesException ex) {
+                // Expected
+            }
+        }
+
+        // Modification of the returned sharedInfo2 does not affect the context
+        applicationContext.createDecryptor().getSharedInfo2()[0] ^= 1;
+        applicationContext.getSharedInfo2()[0] ^= 1;
+        assertArrayEquals(Hash.sha256(applicationSecret), applicationContext.getSharedInfo2());
+    }
+
+    /**
+     * Test that streaming encryption and decryption is compatible with encryption and decryption of byte arrays.
+     * @throws Exception When test fails.
+     */
+    @Test
+    public void testStreamingEncryptDecrypt() throws Exception {
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        final ECPrivateKey privateKey = (ECPrivateKey) keyPair.getPrivate();
+        final ECPublicKey publicKey = (ECPublicKey) keyPair.getPublic();
+        final byte[] applicationSecret = keyGenerator.generateRandomBytes(16);
+        final EciesFactory factory = new EciesFactory();
+
+        for (int size : new int[] {0, 1, 15, 16, 17, 8191, 8192, 8193, 8208, 100_000}) {
+            final byte[] request = keyGenerator.generateRandomBytes(size);
+            final byte[] response = keyGenerator.generateRandomBytes(size);
+            final boolean useIv = (size & 1) == 0;
+
+            // Streaming request encryption, decryption of byte array
+            final EciesEncryptor encryptor = factory.getEciesEncryptorForApplication(publicKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+            final ByteArrayOutputStream encryptedRequest = new ByteArrayOutputStream();
+            final EciesCryptogram requestHeader = encryptor.encryptRequest(new ByteArrayInputStream(request), encryptedRequest, useIv);
+            assertNull(requestHeader.getEncryptedData());
+            final EciesCryptogram requestCryptogram = new EciesCryptogram(requestHeader.getEphemeralPublicKey(), requestHeader.getMac(), encryptedRequest.toByteArray(), requestHeader.getNonce());
+            final EciesDecryptor decryptor = factory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+            assertArrayEquals(request, decryptor.decryptRequest(requestCryptogram, useIv));
+
+            // Encryption of byte array, streaming response decryption
+            final EciesCryptogram responseCryptogram = decryptor.encryptResponse(response);
+            final ByteArrayOutputStream decryptedResponse = new ByteArrayOutputStream();
+            encryptor.decryptResponse(responseCryptogram, ByteSource.wrap(responseCryptogram.getEncryptedData()), decryptedResponse);
+            assertArrayEquals(response, decryptedResponse.toByteArray());
+
+            // Streaming request decryption and response encryption
+            final EciesDecryptor streamingDecryptor = factory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+            final ByteArrayOutputStream decryptedRequest = new ByteArrayOutputStream();
+            streamingDecryptor.decryptRequest(requestHeader, ByteSource.wrap(encryptedRequest.toByteArray()), decryptedRequest, useIv);
+            assertArrayEquals(request, decryptedRequest.toByteArray());
+            final ByteArrayOutputStream encryptedResponse = new ByteArrayOutputStream();
+            final EciesCryptogram responseHeader = streamingDecryptor.encryptResponse(new ByteArrayInputStream(response), encryptedResponse);
+            assertArrayEquals(responseCryptogram.getMac(), responseHeader.getMac());
+            assertArrayEquals(responseCryptogram.getEncryptedData(), encryptedResponse.toByteArray());
+        }
+
+        // Modified encrypted data is rejected by streaming decryption before any decrypted data is written
+        final EciesEncryptor encryptor = factory.getEciesEncryptorForApplication(publicKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        final EciesCryptogram cryptogram = encryptor.encryptRequest(keyGenerator.generateRandomBytes(100_000), true);
+        final byte[] modifiedData = cryptogram.getEncryptedData().clone();
+        modifiedData[modifiedData.length - 1] ^= 1;
+        final EciesDecryptor decryptor = factory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        final ByteArrayOutputStream decryptedData = new ByteArrayOutputStream();
+        try {
+            decryptor.decryptRequest(cryptogram, ByteSource.wrap(modifiedData), decryptedData, true);
+            fail("Decryption of modified data must fail");
+        } catch (EciesException ex) {
+            assertEquals("Invalid MAC", ex.getMessage());
+        }
+        assertEquals(0, decryptedData.size());
+    }
+
+    /**
+     * Test that encryption and decryption of heap and direct byte buffers is compatible with encryption
+     * and decryption of byte arrays.
+     * @throws Exception When test fails.
+     */
+    @Test
+    public void testByteBufferEncryptDecrypt() throws Exception {
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        final ECPrivateKey privateKey = (ECPrivateKey) keyPair.getPrivate();
+        final ECPublicKey publicKey = (ECPublicKey) keyPair.getPublic();
+        final byte[] applicationSecret = keyGenerator.generateRandomBytes(16);
+        final EciesFactory factory = new EciesFactory();
+
+        for (boolean direct : new boolean[] {false, true}) {
+            for (int size : new int[] {0, 1, 16, 17, 1024, 65536}) {
+                final byte[] request = keyGenerator.generateRandomBytes(size);
+                final byte[] response = keyGenerator.generateRandomBytes(size);
+                final boolean useIv = (size & 1) == 0;
+
+                // Request encryption from buffer, decryption of byte array
+                final EciesEncryptor encryptor = factory.getEciesEncryptorForApplication(publicKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+                final ByteBuffer requestBuffer = allocate(size, direct).put(request);
+                requestBuffer.flip();
+                // Output buffers have the exact size of encrypted data, block aligned data gets a full padding block
+                final int encryptedSize = (size / 16 + 1) * 16;
+                final ByteBuffer encryptedRequest = allocate(encryptedSize, direct);
+                final EciesCryptogram requestHeader = encryptor.encryptRequest(requestBuffer, encryptedRequest, useIv);
+                assertFalse(requestBuffer.hasRemaining());
+                assertFalse(encryptedRequest.hasRemaining());
+                encryptedRequest.flip();
+                final byte[] encryptedRequestBytes = new byte[encryptedRequest.remaining()];
+                encryptedRequest.duplicate().get(encryptedRequestBytes);
+                final EciesCryptogram requestCryptogram = new EciesCryptogram(requestHeader.getEphemeralPublicKey(), requestHeader.getMac(), encryptedRequestBytes, requestHeader.getNonce());
+                final EciesDecryptor decryptor = factory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+                assertArrayEquals(request, decryptor.decryptRequest(requestCryptogram, useIv));
+
+                // Encryption of byte array, response decryption into buffer
+                final EciesCryptogram responseCryptogram = decryptor.encryptResponse(response);
+                final ByteBuffer decryptedResponse = allocate(responseCryptogram.getEncryptedData().length, direct);
+                final ByteBuffer encryptedResponse = allocate(responseCryptogram.getEncryptedData().length, direct).put(responseCryptogram.getEncryptedData());
+                encryptedResponse.flip();
+                assertEquals(size, encryptor.decryptResponse(responseCryptogram, encryptedResponse, decryptedResponse));
+                assertArrayEquals(response, toByteArray(decryptedResponse));
+
+                // Request decryption and response encryption with buffers
+                final EciesDecryptor bufferDecryptor = factory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+                final ByteBuffer decryptedRequest = allocate(encryptedRequestBytes.length, direct);
+                assertEquals(size, bufferDecryptor.decryptRequest(requestHeader, encryptedRequest, decryptedRequest, useIv));
+                assertArrayEquals(request, toByteArray(decryptedRequest));
+                final ByteBuffer responseBuffer = allocate(size, direct).put(response);
+                responseBuffer.flip();
+                final ByteBuffer encryptedResponseBuffer = allocate(encryptedSize, direct);
+                final EciesCryptogram responseHeader = bufferDecryptor.encryptResponse(responseBuffer, encryptedResponseBuffer);
+                assertFalse(encryptedResponseBuffer.hasRemaining());
+                assertArrayEquals(responseCryptogram.getMac(), responseHeader.getMac());
+                assertArrayEquals(responseCryptogram.getEncryptedData(), toByteArray(encryptedResponseBuffer));
+            }
+        }
+
+        // AES encryption of block aligned data into exactly sized buffer
+        final AESEncryptionUtils aes = new AESEncryptionUtils();
+        final SecretKey aesKey = keyGenerator.generateRandomSecretKey();
+        final byte[] iv = keyGenerator.generateRandomBytes(16);
+        final byte[] alignedData = keyGenerator.generateRandomBytes(64);
+        final ByteBuffer alignedOutput = ByteBuffer.allocate((alignedData.length / 16 + 1) * 16);
+        assertEquals(80, aes.encrypt(ByteBuffer.wrap(alignedData), alignedOutput, iv, aesKey));
+        assertFalse(alignedOutput.hasRemaining());
+        assertArrayEquals(aes.encrypt(alignedData, iv, aesKey), alignedOutput.array());
+
+        // Modified encrypted data is rejected before decryption
+        final EciesEncryptor encryptor = factory.getEciesEncryptorForApplication(publicKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        final EciesCryptogram cryptogram = encryptor.encryptRequest(keyGenerator.generateRandomBytes(100), true);
+        final ByteBuffer modifiedData = ByteBuffer.allocateDirect(cryptogram.getEncryptedData().length).put(cryptogram.getEncryptedData());
+        modifiedData.put(0, (byte) (modifiedData.get(0) ^ 1));
+        modifiedData.flip();
+        final EciesDecryptor decryptor = factory.getEciesDecryptorForApplication(privateKey, applicationSecret, EciesSharedInfo1.APPLICATION_SCOPE_GENERIC);
+        try {
+            decryptor.decryptRequest(cryptogram, modifiedData, ByteBuffer.allocateDirect(modifiedData.remaining()), true);
+            fail("Decryption of modified data must fail");
+        } catch (EciesException ex) {
+            assertEquals("Invalid MAC", ex.getMessage());
+            assertEquals(0, modifiedData.position());
+        }
+    }
+
+    private ByteBuffer allocate(int size, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    private byte[] toByteArray(ByteBuffer buffer) {
+        buffer.flip();
+        final byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
     /**
      * Test that invalid MAC causes message rejection.
      * @throws Exception When test fails.
@@ -246,6 +549,19 @@ public class EciesEncryptorTest {
         keyData = Hex.decode("c0bd9e38a8f9de14c2acd35b2f3410c6988cf02400543631e0d6a4c1d030365acbf398115e51aaddebdc9590664210f9aa9fed770d4c57edeafa0b8c14f93300865251218c262d63dadc47dfa0e0284826793985137e0a544ec80abf2fdf5ab90bdaea66204012efe34971dc431d625cd9a329b8217cc8fd0d9f02b13f2f6b0b");
         kdfRef  = KdfX9_63.derive(secretBytes, sharedInfo, 128);
         assertArrayEquals(keyData, kdfRef);
+
+        // Derivation into an existing array at given offset, including a partial last round
+        final byte[] out = new byte[110];
+        KdfX9_63.derive(secretBytes, sharedInfo, 100, out, 5);
+        assertArrayEquals(Arrays.copyOf(keyData, 100), Arrays.copyOfRange(out, 5, 105));
+        assertArrayEquals(new byte[5], Arrays.copyOfRange(out, 105, 110));
+        assertArrayEquals(Arrays.copyOf(keyData, 20), KdfX9_63.derive(secretBytes, sharedInfo, 20));
+        try {
+            KdfX9_63.derive(secretBytes, sharedInfo, 100, out, 11);
+            fail("Derivation into a too small array must fail");
+        } catch (GenericCryptoException ex) {
+            // Expected
+        }
     }
 
     /**
@@ -0,0 +1,128 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.keyfactory;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureTypes;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.server.keyfactory.PowerAuthServerDerivedKeyCache;
+import io.getlime.security.powerauth.crypto.server.keyfactory.PowerAuthServerKeyFactory;
+import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.SecretKey;
+import java.security.Security;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for cache of keys derived by {@link PowerAuthServerKeyFactory}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class PowerAuthServerDerivedKeyCacheTest {
+
+    private final KeyGenerator keyGenerator = new KeyGenerator();
+
+    /**
+     * Register crypto providers.
+     */
+    @Before
+    public void setUp() {
+        // Add Bouncy Castle Security Provider
+        Security.addProvider(new BouncyCastleProvider());
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+    }
+
+    /**
+     * Test that cached keys are equal to derived keys and that cached instances are reused.
+     *
+     * @throws Exception In case test fails.
+     */
+    @Test
+    public void testCachedKeys() throws Exception {
+        final PowerAuthServerDerivedKeyCache cache = new PowerAuthServerDerivedKeyCache(100, 1, TimeUnit.HOURS);
+        final PowerAuthServerKeyFactory cachedKeyFactory = new PowerAuthServerKeyFactory(cache);
+        final PowerAuthServerKeyFactory keyFactory = new PowerAuthServerKeyFactory();
+        final SecretKey masterSecretKey = keyGenerator.generateRandomSecretKey();
+
+        for (PowerAuthSignatureTypes signatureType : PowerAuthSignatureTypes.values()) {
+            final List<SecretKey> expectedKeys = keyFactory.keysForSignatureType(signatureType, masterSecretKey);
+            final List<SecretKey> keys = cachedKeyFactory.keysForSignatureType("activation-1", signatureType, masterSecretKey);
+            assertEquals(expectedKeys, keys);
+            final List<SecretKey> cachedKeys = cachedKeyFactory.keysForSignatureType("activation-1", signatureType, masterSecretKey);
+            for (int i = 0; i < keys.size(); i++) {
+                assertSame(keys.get(i), cachedKeys.get(i));
+            }
+        }
+        assertEquals(keyFactory.generateServerTransportKey(masterSecretKey), cachedKeyFactory.generateServerTransportKey("activation-1", masterSecretKey));
+        assertSame(cachedKeyFactory.generateServerTransportKey("activation-1", masterSecretKey), cachedKeyFactory.generateServerTransportKey("activation-1", masterSecretKey));
+        assertEquals(keyFactory.generateServerEncryptedVaultKey(masterSecretKey), cachedKeyFactory.generateServerEncryptedVaultKey("activation-1", masterSecretKey));
+        assertEquals(5, cache.size());
+    }
+
+    /**
+     * Test that cached keys are not returned for a different master secret key.
+     *
+     * @throws Exception In case test fails.
+     */
+    @Test
+    public void testChangedMasterSecretKey() throws Exception {
+        final PowerAuthServerDerivedKeyCache cache = new PowerAuthServerDerivedKeyCache(100, 1, TimeUnit.HOURS);
+        final PowerAuthServerKeyFactory cachedKeyFactory = new PowerAuthServerKeyFactory(cache);
+        final PowerAuthServerKeyFactory keyFactory = new PowerAuthServerKeyFactory();
+        final SecretKey masterSecretKey1 = keyGenerator.generateRandomSecretKey();
+        final SecretKey masterSecretKey2 = keyGenerator.generateRandomSecretKey();
+
+        final SecretKey transportKey1 = cachedKeyFactory.generateServerTransportKey("activation-1", masterSecretKey1);
+        final SecretKey transportKey2 = cachedKeyFactory.generateServerTransportKey("activation-1", masterSecretKey2);
+        assertEquals(keyFactory.generateServerTransportKey(masterSecretKey1), transportKey1);
+        assertEquals(keyFactory.generateServerTransportKey(masterSecretKey2), transportKey2);
+        assertNotEquals(transportKey1, transportKey2);
+    }
+
+    /**
+     * Test invalidation and size limit of the cache.
+     *
+     * @throws Exception In case test fails.
+     */
+    @Test
+    public void testInvalidation() throws Exception {
+        final PowerAuthServerDerivedKeyCache cache = new PowerAuthServerDerivedKeyCache(10, 1, TimeUnit.HOURS);
+        final PowerAuthServerKeyFactory cachedKeyFactory = new PowerAuthServerKeyFactory(cache);
+        final SecretKey masterSecretKey = keyGenerator.generateRandomSecretKey();
+
+        final SecretKey transportKey = cachedKeyFactory.generateServerTransportKey("activation-1", masterSecretKey);
+        cachedKeyFactory.generateServerTransportKey("activation-2", masterSecretKey);
+        assertEquals(2, cache.size());
+        cache.invalidate("activation-1");
+        assertEquals(1, cache.size());
+        assertNotSame(transportKey, cachedKeyFactory.generateServerTransportKey("activation-1", masterSecretKey));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+
+        for (int i = 0; i < 50; i++) {
+            cachedKeyFactory.generateServerTransportKey("activation-" + i, masterSecretKey);
+        }
+        assertTrue(cache.size() <= 10);
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.util;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.encryptor.ecies.kdf.KdfX9_63;
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.provider.*;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of crypto backend selection for families of primitives.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class CryptoBackendTest {
+
+    private final KeyGenerator keyGenerator = new KeyGenerator();
+
+    /**
+     * Set up crypto providers
+     */
+    @Before
+    public void setUp() {
+        // Add Bouncy Castle Security Provider
+        Security.addProvider(new BouncyCastleProvider());
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+    }
+
+    /**
+     * Restore default configuration.
+     */
+    @After
+    public void tearDown() {
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+    }
+
+    @Test
+    public void testBackendSelfTest() {
+        final Map<String, CryptoBackend> backends = new HashMap<>();
+        for (CryptoBackend backend : CryptoProviderUtilFactory.getCryptoBackends()) {
+            backends.put(backend.getName(), backend);
+        }
+        // Spongy Castle provider is not installed
+        assertEquals(new HashSet<>(Arrays.asList("BC", "JDK")), backends.keySet());
+        for (CryptoPrimitiveFamily primitive : CryptoPrimitiveFamily.values()) {
+            assertTrue(CryptoBackendSelfTest.selfTest(backends.get("BC"), primitive));
+        }
+        assertFalse(CryptoBackendSelfTest.selfTest(backends.get("JDK"), CryptoPrimitiveFamily.EC));
+        assertTrue(CryptoBackendSelfTest.selfTest(backends.get("JDK"), CryptoPrimitiveFamily.AES));
+        assertTrue(CryptoBackendSelfTest.selfTest(backends.get("JDK"), CryptoPrimitiveFamily.HMAC));
+        assertTrue(CryptoBackendSelfTest.selfTest(backends.get("JDK"), CryptoPrimitiveFamily.DIGEST));
+    }
+
+    @Test
+    public void testMixedBackends() throws Exception {
+        final KeyPair keyPair = keyGenerator.generateKeyPair();
+        final byte[] data = keyGenerator.generateRandomBytes(100);
+        final byte[] ctrData = keyGenerator.generateRandomBytes(16);
+        final List<SecretKey> signatureKeys = Arrays.asList(keyGenerator.generateRandomSecretKey(), keyGenerator.generateRandomSecretKey(), keyGenerator.generateRandomSecretKey());
+        final byte[] hmacKey = keyGenerator.generateRandomBytes(16);
+        final SignatureUtils signatureUtils = new SignatureUtils();
+
+        // Compute reference values using Bouncy Castle for all primitives
+        final String signature = signatureUtils.computePowerAuthSignature(data, signatureKeys, ctrData, PowerAuthSignatureFormat.BASE64);
+        final byte[] hmac = new HMACHashUtilities().hash(hmacKey, data);
+        final byte[] kdf = KdfX9_63.derive(hmacKey, data, 48);
+        final byte[] ecdsaSignature = signatureUtils.computeECDSASignature(data, keyPair.getPrivate());
+
+        final Map<CryptoPrimitiveFamily, String> backendNames = new EnumMap<>(CryptoPrimitiveFamily.class);
+        backendNames.put(CryptoPrimitiveFamily.EC, "BC");
+        backendNames.put(CryptoPrimitiveFamily.HMAC, "JDK");
+        backendNames.put(CryptoPrimitiveFamily.DIGEST, "JDK");
+        final CryptoProviderUtil keyConvertor = CryptoProviderUtilFactory.getCryptoProviderUtils(backendNames);
+        assertEquals("BC", keyConvertor.getProviderName());
+        assertEquals("BC", keyConvertor.getProviderName(CryptoPrimitiveFamily.AES));
+        assertEquals("SunJCE", keyConvertor.getProviderName(CryptoPrimitiveFamily.HMAC));
+        assertEquals("SUN", keyConvertor.getProviderName(CryptoPrimitiveFamily.DIGEST));
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(keyConvertor);
+
+        assertEquals(signature, signatureUtils.computePowerAuthSignature(data, signatureKeys, ctrData, PowerAuthSignatureFormat.BASE64));
+        assertTrue(signatureUtils.validatePowerAuthSignature(data, signature, signatureKeys, ctrData, PowerAuthSignatureFormat.BASE64));
+        assertArrayEquals(hmac, new HMACHashUtilities().hash(hmacKey, data));
+        assertArrayEquals(hmac, PreparedHmacKey.prepare(hmacKey).hash(data));
+        assertArrayEquals(kdf, KdfX9_63.derive(hmacKey, data, 48));
+        assertTrue(signatureUtils.validateECDSASignature(data, ecdsaSignature, keyPair.getPublic()));
+    }
+
+    @Test
+    public void testDefaultBackends() {
+        final CryptoProviderUtil keyConvertor = CryptoProviderUtilFactory.getCryptoProviderUtils();
+        assertEquals("BC", keyConvertor.getProviderName());
+        assertEquals("BC", keyConvertor.getProviderName(CryptoPrimitiveFamily.EC));
+        assertEquals("SunJCE", keyConvertor.getProviderName(CryptoPrimitiveFamily.AES));
+        assertEquals("SunJCE", keyConvertor.getProviderName(CryptoPrimitiveFamily.HMAC));
+        assertEquals("SUN", keyConvertor.getProviderName(CryptoPrimitiveFamily.DIGEST));
+        assertEquals("AES/CBC/PKCS5Padding", keyConvertor.getCipherTransformation("AES/CBC/PKCS7Padding"));
+        assertEquals("AES/CBC/NoPadding", keyConvertor.getCipherTransformation("AES/CBC/NoPadding"));
+    }
+
+    @Test
+    public void testConcurrentDefaultBackends() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            final List<Future<CryptoProviderUtil>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                results.add(executor.submit(() -> {
+                    PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+                    return PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+                }));
+            }
+            // All threads observe the same published instance
+            final CryptoProviderUtil keyConvertor = CryptoProviderUtilFactory.getCryptoProviderUtils();
+            for (Future<CryptoProviderUtil> result : results) {
+                assertSame(keyConvertor, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnsupportedBackend() {
+        final Map<CryptoPrimitiveFamily, String> backendNames = new EnumMap<>(CryptoPrimitiveFamily.class);
+        backendNames.put(CryptoPrimitiveFamily.EC, "JDK");
+        try {
+            CryptoProviderUtilFactory.getCryptoProviderUtils(backendNames);
+            fail("JDK backend does not support EC primitives");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+        backendNames.put(CryptoPrimitiveFamily.EC, "SC");
+        try {
+            CryptoProviderUtilFactory.getCryptoProviderUtils(backendNames);
+            fail("Spongy Castle backend is not available");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testSelectFastestBackends() {
+        final Map<CryptoPrimitiveFamily, String> backendNames = CryptoProviderUtilFactory.selectFastestBackends(5);
+        assertEquals(CryptoPrimitiveFamily.values().length, backendNames.size());
+        // Only Bouncy Castle backend supports EC primitives
+        assertEquals("BC", backendNames.get(CryptoPrimitiveFamily.EC));
+        assertNotNull(CryptoProviderUtilFactory.getCryptoProviderUtils(backendNames));
+    }
+
+}
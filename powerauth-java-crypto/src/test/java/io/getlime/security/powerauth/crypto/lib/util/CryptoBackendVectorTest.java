@@ -0,0 +1,248 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.BaseEncoding;
+import io.getlime.security.powerauth.crypto.client.activation.PowerAuthClientActivation;
+import io.getlime.security.powerauth.crypto.client.keyfactory.PowerAuthClientKeyFactory;
+import io.getlime.security.powerauth.crypto.client.signature.PowerAuthClientSignature;
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.model.ActivationStatusBlobInfo;
+import io.getlime.security.powerauth.crypto.server.activation.PowerAuthServerActivation;
+import io.getlime.security.powerauth.provider.CryptoPrimitiveFamily;
+import io.getlime.security.powerauth.provider.CryptoProviderUtil;
+import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.SecretKey;
+import java.io.File;
+import java.io.IOException;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test that the published test vectors are reproduced both with Bouncy Castle used for all primitives,
+ * and with the JDK providers used for AES, HMAC and SHA-256 primitives.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class CryptoBackendVectorTest {
+
+    private static final File TEST_VECTOR_FOLDER = new File("../powerauth-docs/test-vectors");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BaseEncoding b64 = BaseEncoding.base64();
+    private final List<CryptoProviderUtil> keyConvertors = new ArrayList<>();
+
+    /**
+     * Set up crypto providers and crypto provider utilities of both configurations.
+     */
+    @Before
+    public void setUp() {
+        // Add Bouncy Castle Security Provider
+        Security.addProvider(new BouncyCastleProvider());
+        final CryptoProviderUtil defaultKeyConvertor = CryptoProviderUtilFactory.getCryptoProviderUtils();
+        assertEquals("SunJCE", defaultKeyConvertor.getProviderName(CryptoPrimitiveFamily.AES));
+        assertEquals("SunJCE", defaultKeyConvertor.getProviderName(CryptoPrimitiveFamily.HMAC));
+        keyConvertors.add(CryptoProviderUtilFactory.getCryptoProviderUtils(Collections.singletonMap(CryptoPrimitiveFamily.EC, "BC")));
+        keyConvertors.add(defaultKeyConvertor);
+    }
+
+    /**
+     * Restore default configuration.
+     */
+    @After
+    public void tearDown() {
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+    }
+
+    @Test
+    public void testActivationStatusBlob() throws Exception {
+        final PowerAuthClientActivation activation = new PowerAuthClientActivation();
+        final PowerAuthServerActivation serverActivation = new PowerAuthServerActivation();
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        for (CryptoProviderUtil keyConvertor : keyConvertors) {
+            PowerAuthConfiguration.INSTANCE.setKeyConvertor(keyConvertor);
+            for (JsonNode vector : readTestVectors("activation-status-blob-data.json")) {
+                final JsonNode input = vector.get("input");
+                final JsonNode output = vector.get("output");
+                final SecretKey transportKey = keyConvertor.convertBytesToSharedSecretKey(decode(input, "transportKey"));
+                final ActivationStatusBlobInfo info = activation.getStatusFromEncryptedBlob(decode(input, "encryptedStatusBlob"), decode(input, "challenge"), decode(input, "nonce"), transportKey);
+                assertTrue(info.isValid());
+                assertEquals(output.get("activationStatus").asInt(), info.getActivationStatus());
+                assertEquals(output.get("currentVersion").asInt(), info.getCurrentVersion());
+                assertEquals(output.get("upgradeVersion").asInt(), info.getUpgradeVersion());
+                assertEquals(output.get("failedAttempts").asInt(), info.getFailedAttempts());
+                assertEquals(output.get("maxFailedAttempts").asInt(), info.getMaxFailedAttempts());
+                assertEquals(output.get("ctrLookAhead").asInt(), info.getCtrLookAhead());
+                assertEquals(output.get("ctrByte").asInt(), info.getCtrByte() & 0xFF);
+                assertArrayEquals(decode(output, "ctrDataHash"), info.getCtrDataHash());
+
+                // Counter data hash is computed from the counter data moved forward by the counter distance
+                byte[] ctrData = decode(input, "ctrData");
+                for (int i = 0; i < output.get("counterDistance").asInt(); i++) {
+                    ctrData = keyGenerator.convert32Bto16B(Hash.sha256(ctrData));
+                }
+                assertArrayEquals(info.getCtrDataHash(), serverActivation.calculateHashFromHashBasedCounter(ctrData, transportKey));
+            }
+        }
+    }
+
+    @Test
+    public void testActivationStatusBlobIv() throws Exception {
+        final KeyDerivationUtils keyDerivationUtils = new KeyDerivationUtils();
+        for (CryptoProviderUtil keyConvertor : keyConvertors) {
+            PowerAuthConfiguration.INSTANCE.setKeyConvertor(keyConvertor);
+            for (JsonNode vector : readTestVectors("activation-status-blob-iv.json")) {
+                final JsonNode input = vector.get("input");
+                final SecretKey transportKey = keyConvertor.convertBytesToSharedSecretKey(decode(input, "transportKey"));
+                final byte[] iv = keyDerivationUtils.deriveIvForStatusBlobEncryption(decode(input, "challenge"), decode(input, "nonce"), transportKey);
+                assertArrayEquals(decode(vector.get("output"), "iv"), iv);
+            }
+        }
+    }
+
+    @Test
+    public void testDerivedKeys() throws Exception {
+        final PowerAuthClientKeyFactory keyFactory = new PowerAuthClientKeyFactory();
+        for (CryptoProviderUtil keyConvertor : keyConvertors) {
+            PowerAuthConfiguration.INSTANCE.setKeyConvertor(keyConvertor);
+            for (JsonNode vector : readTestVectors("compute-derived-keys.json")) {
+                final JsonNode output = vector.get("output");
+                final SecretKey masterSecretKey = keyConvertor.convertBytesToSharedSecretKey(decode(vector.get("input"), "masterSecretKey"));
+                assertArrayEquals(decode(output, "signaturePossessionKey"), keyConvertor.convertSharedSecretKeyToBytes(keyFactory.generateClientSignaturePossessionKey(masterSecretKey)));
+                assertArrayEquals(decode(output, "signatureKnowledgeKey"), keyConvertor.convertSharedSecretKeyToBytes(keyFactory.generateClientSignatureKnowledgeKey(masterSecretKey)));
+                assertArrayEquals(decode(output, "signatureBiometryKey"), keyConvertor.convertSharedSecretKeyToBytes(keyFactory.generateClientSignatureBiometryKey(masterSecretKey)));
+                assertArrayEquals(decode(output, "transportKey"), keyConvertor.convertSharedSecretKeyToBytes(keyFactory.generateServerTransportKey(masterSecretKey)));
+                assertArrayEquals(decode(output, "vaultEncryptionKey"), keyConvertor.convertSharedSecretKeyToBytes(keyFactory.generateServerEncryptedVaultKey(masterSecretKey)));
+            }
+        }
+    }
+
+    @Test
+    public void testEncryptDevicePublicKeyV2() throws Exception {
+        final PowerAuthClientActivation activation = new PowerAuthClientActivation();
+        for (CryptoProviderUtil keyConvertor : keyConvertors) {
+            PowerAuthConfiguration.INSTANCE.setKeyConvertor(keyConvertor);
+            for (JsonNode vector : readTestVectors("encrypt-device-public-key-v2.json")) {
+                final JsonNode input = vector.get("input");
+                final JsonNode output = vector.get("output");
+                final String activationIdShort = input.get("activationIdShort").asText();
+                final byte[] activationNonce = decode(input, "activationNonce");
+                final byte[] cDevicePublicKey = activation.encryptDevicePublicKey(
+                        keyConvertor.convertBytesToPublicKey(decode(input, "devicePublicKey")),
+                        keyConvertor.convertBytesToPrivateKey(decode(input, "ephemeralPrivateKey")),
+                        keyConvertor.convertBytesToPublicKey(decode(input, "masterPublicKey")),
+                        input.get("activationOtp").asText(), activationIdShort, activationNonce);
+                assertArrayEquals(decode(output, "cDevicePublicKey"), cDevicePublicKey);
+                final byte[] applicationSignature = activation.computeApplicationSignature(activationIdShort, activationNonce, cDevicePublicKey, decode(input, "applicationKey"), decode(input, "applicationSecret"));
+                assertArrayEquals(decode(output, "applicationSignature"), applicationSignature);
+            }
+        }
+    }
+
+    @Test
+    public void testDecryptServerPublicKeyV2() throws Exception {
+        final PowerAuthClientActivation activation = new PowerAuthClientActivation();
+        for (CryptoProviderUtil keyConvertor : keyConvertors) {
+            PowerAuthConfiguration.INSTANCE.setKeyConvertor(keyConvertor);
+            for (JsonNode vector : readTestVectors("decrypt-server-public-key-v2.json")) {
+                final JsonNode input = vector.get("input");
+                final byte[] serverPublicKey = keyConvertor.convertPublicKeyToBytes(activation.decryptServerPublicKey(
+                        decode(input, "encryptedServerPublicKey"),
+                        keyConvertor.convertBytesToPrivateKey(decode(input, "devicePrivateKey")),
+                        keyConvertor.convertBytesToPublicKey(decode(input, "ephemeralPublicKey")),
+                        input.get("activationOtp").asText(), input.get("activationIdShort").asText(), decode(input, "activationNonce")));
+                assertArrayEquals(decode(vector.get("output"), "serverPublicKey"), serverPublicKey);
+            }
+        }
+    }
+
+    @Test
+    public void testSignaturesV3() throws Exception {
+        testSignatures("signatures-v3.json", "3.0");
+    }
+
+    @Test
+    public void testSignaturesV31() throws Exception {
+        testSignatures("signatures-v31.json", "3.1");
+    }
+
+    /**
+     * Verify that PowerAuth signatures from given test vectors are computed and validated with all configurations.
+     *
+     * @param fileName Name of the test vector file.
+     * @param signatureVersion Signature version.
+     * @throws Exception In case the test fails with an exception.
+     */
+    private void testSignatures(String fileName, String signatureVersion) throws Exception {
+        final PowerAuthClientSignature clientSignature = new PowerAuthClientSignature();
+        final SignatureUtils signatureUtils = new SignatureUtils();
+        final PowerAuthSignatureFormat signatureFormat = PowerAuthSignatureFormat.getFormatForSignatureVersion(signatureVersion);
+        for (CryptoProviderUtil keyConvertor : keyConvertors) {
+            PowerAuthConfiguration.INSTANCE.setKeyConvertor(keyConvertor);
+            for (JsonNode vector : readTestVectors(fileName)) {
+                final JsonNode input = vector.get("input");
+                final List<SecretKey> signatureKeys = new ArrayList<>();
+                for (String factor : input.get("signatureType").asText().split("_")) {
+                    signatureKeys.add(keyConvertor.convertBytesToSharedSecretKey(decode(input, "signature" + Character.toUpperCase(factor.charAt(0)) + factor.substring(1) + "Key")));
+                }
+                final byte[] data = decode(input, "data");
+                final byte[] ctrData = decode(input, "counterData");
+                final String signature = vector.get("output").get("signature").asText();
+                assertEquals(signature, clientSignature.signatureForData(data, signatureKeys, ctrData, signatureFormat));
+                assertTrue(signatureUtils.validatePowerAuthSignature(data, signature, signatureKeys, ctrData, signatureFormat));
+            }
+        }
+    }
+
+    /**
+     * Read test vectors from a JSON file.
+     *
+     * @param fileName Name of the test vector file.
+     * @return Test vectors.
+     * @throws IOException In case the file cannot be read.
+     */
+    private JsonNode readTestVectors(String fileName) throws IOException {
+        final JsonNode data = objectMapper.readTree(new File(TEST_VECTOR_FOLDER, fileName)).get("data");
+        assertTrue(data.size() > 0);
+        return data;
+    }
+
+    /**
+     * Decode Base64 encoded field of a test vector.
+     *
+     * @param node Test vector input or output.
+     * @param fieldName Field name.
+     * @return Decoded bytes.
+     */
+    private byte[] decode(JsonNode node, String fieldName) {
+        return b64.decode(node.get(fieldName).asText());
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.util;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.security.Security;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of the thread local JCE engine cache.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class CryptoEngineCacheTest {
+
+    private final KeyGenerator keyGenerator = new KeyGenerator();
+
+    /**
+     * Set up crypto providers
+     */
+    @Before
+    public void setUp() {
+        // Add Bouncy Castle Security Provider
+        Security.addProvider(new BouncyCastleProvider());
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+        PowerAuthConfiguration.INSTANCE.setCryptoEngineCacheEnabled(true);
+    }
+
+    /**
+     * Restore default configuration.
+     */
+    @After
+    public void tearDown() {
+        PowerAuthConfiguration.INSTANCE.setCryptoEngineCacheEnabled(true);
+        CryptoEngineCache.clear();
+    }
+
+    @Test
+    public void testEnginesAreReusedWithinThread() throws Exception {
+        assertSame(CryptoEngineCache.getMac("HmacSHA256", "BC"), CryptoEngineCache.getMac("HmacSHA256", "BC"));
+        assertSame(CryptoEngineCache.getCipher("AES/CBC/PKCS7Padding", "BC"), CryptoEngineCache.getCipher("AES/CBC/PKCS7Padding", "BC"));
+        assertSame(CryptoEngineCache.getSignature("SHA256withECDSA", "BC"), CryptoEngineCache.getSignature("SHA256withECDSA", "BC"));
+        assertSame(CryptoEngineCache.getMessageDigest("SHA-256"), CryptoEngineCache.getMessageDigest("SHA-256"));
+        assertNotSame(CryptoEngineCache.getCipher("AES/CBC/PKCS7Padding", "BC"), CryptoEngineCache.getCipher("AES/CBC/NoPadding", "BC"));
+    }
+
+    @Test
+    public void testEnginesAreNotSharedBetweenThreads() throws Exception {
+        final Mac mac = CryptoEngineCache.getMac("HmacSHA256", "BC");
+        final AtomicReference<Mac> otherThreadMac = new AtomicReference<>();
+        final Thread thread = new Thread(() -> {
+            try {
+                otherThreadMac.set(CryptoEngineCache.getMac("HmacSHA256", "BC"));
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotNull(otherThreadMac.get());
+        assertNotSame(mac, otherThreadMac.get());
+    }
+
+    @Test
+    public void testDisabledCache() throws Exception {
+        PowerAuthConfiguration.INSTANCE.setCryptoEngineCacheEnabled(false);
+        assertNotSame(CryptoEngineCache.getMac("HmacSHA256", "BC"), CryptoEngineCache.getMac("HmacSHA256", "BC"));
+        assertNotSame(CryptoEngineCache.getMessageDigest("SHA-256"), CryptoEngineCache.getMessageDigest("SHA-256"));
+    }
+
+    @Test
+    public void testResultsMatchWithAndWithoutCache() throws Exception {
+        final HMACHashUtilities hmac = new HMACHashUtilities();
+        final AESEncryptionUtils aes = new AESEncryptionUtils();
+        for (int i = 0; i < 20; i++) {
+            final byte[] key = keyGenerator.generateRandomBytes(16);
+            final byte[] iv = keyGenerator.generateRandomBytes(16);
+            final byte[] data = keyGenerator.generateRandomBytes(i * 7);
+            final SecretKey secretKey = PowerAuthConfiguration.INSTANCE.getKeyConvertor().convertBytesToSharedSecretKey(key);
+
+            PowerAuthConfiguration.INSTANCE.setCryptoEngineCacheEnabled(true);
+            final byte[] macCached = hmac.hash(key, data);
+            final byte[] encryptedCached = aes.encrypt(data, iv, secretKey);
+            assertArrayEquals(data, aes.decrypt(encryptedCached, iv, secretKey));
+
+            PowerAuthConfiguration.INSTANCE.setCryptoEngineCacheEnabled(false);
+            assertArrayEquals(macCached, hmac.hash(key, data));
+            assertArrayEquals(encryptedCached, aes.encrypt(data, iv, secretKey));
+        }
+    }
+
+}
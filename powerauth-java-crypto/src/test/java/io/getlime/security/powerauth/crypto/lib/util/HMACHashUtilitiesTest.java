@@ -0,0 +1,157 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.util;
+
+import com.google.common.primitives.Bytes;
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
+import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Security;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of HMAC computation over multiple data parts.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class HMACHashUtilitiesTest {
+
+    private final KeyGenerator keyGenerator = new KeyGenerator();
+    private final HMACHashUtilities hmac = new HMACHashUtilities();
+
+    /**
+     * Add crypto providers.
+     */
+    @Before
+    public void setUp() {
+        // Add Bouncy Castle Security Provider
+        Security.addProvider(new BouncyCastleProvider());
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+    }
+
+    @Test
+    public void testHashOfDataParts() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            final byte[] key = keyGenerator.generateRandomBytes(16);
+            final byte[] data1 = keyGenerator.generateRandomBytes(i * 7);
+            final byte[] data2 = keyGenerator.generateRandomBytes(i);
+            final byte[] expected = hmac.hash(key, Bytes.concat(data1, data2));
+            assertArrayEquals(expected, hmac.hash(key, data1, data2));
+
+            final ByteBuffer buffer1 = ByteBuffer.allocateDirect(data1.length).put(data1);
+            buffer1.flip();
+            assertArrayEquals(expected, hmac.hashBuffers(key, buffer1, ByteBuffer.wrap(data2)));
+            // Buffer positions are not modified
+            assertEquals(0, buffer1.position());
+        }
+    }
+
+    @Test
+    public void testMissingDataParts() throws Exception {
+        final byte[] key = keyGenerator.generateRandomBytes(16);
+        final byte[] data = keyGenerator.generateRandomBytes(16);
+        assertMissingData(() -> hmac.hash(key, data, null, data));
+        assertMissingData(() -> hmac.hash(key, data, (byte[]) null));
+        assertMissingData(() -> hmac.hash(key, null, data));
+        assertMissingData(() -> hmac.hash(null, data, data));
+        assertMissingData(() -> hmac.hashBuffers(key, ByteBuffer.wrap(data), null));
+        assertMissingData(() -> hmac.hashBuffers(null, ByteBuffer.wrap(data)));
+
+        final TokenUtils tokenUtils = new TokenUtils();
+        final byte[] tokenSecret = tokenUtils.generateTokenSecret();
+        final byte[] timestamp = tokenUtils.generateTokenTimestamp();
+        assertMissingData(() -> tokenUtils.computeTokenDigest(null, timestamp, tokenSecret));
+        assertMissingData(() -> tokenUtils.computeTokenDigest(tokenUtils.generateTokenNonce(), null, tokenSecret));
+
+        final PreparedHmacKey preparedKey = PreparedHmacKey.prepare(key);
+        assertMissingData(() -> preparedKey.hash(data, null, data));
+        assertMissingData(() -> preparedKey.hash(null));
+        assertMissingData(() -> tokenUtils.computeTokenDigest(null, timestamp, PreparedHmacKey.prepare(tokenSecret)));
+    }
+
+    @Test
+    public void testTokenDigest() throws Exception {
+        final TokenUtils tokenUtils = new TokenUtils();
+        final byte[] tokenSecret = tokenUtils.generateTokenSecret();
+        final byte[] nonce = tokenUtils.generateTokenNonce();
+        final byte[] timestamp = tokenUtils.generateTokenTimestamp();
+        final byte[] digest = tokenUtils.computeTokenDigest(nonce, timestamp, tokenSecret);
+        assertArrayEquals(hmac.hash(tokenSecret, Bytes.concat(nonce, "&".getBytes(StandardCharsets.UTF_8), timestamp)), digest);
+        assertTrue(tokenUtils.validateTokenDigest(nonce, timestamp, tokenSecret, digest));
+
+        final PreparedHmacKey preparedTokenSecret = PreparedHmacKey.prepare(tokenSecret);
+        assertArrayEquals(digest, tokenUtils.computeTokenDigest(nonce, timestamp, preparedTokenSecret));
+        assertTrue(tokenUtils.validateTokenDigest(nonce, timestamp, preparedTokenSecret, digest));
+        assertFalse(tokenUtils.validateTokenDigest(tokenUtils.generateTokenNonce(), timestamp, preparedTokenSecret, digest));
+    }
+
+    @Test
+    public void testPreparedHmacKey() throws Exception {
+        // Include key of block size and keys longer than block size
+        final int[] keySizes = {1, 16, 32, 63, 64, 65, 128};
+        for (int keySize : keySizes) {
+            final byte[] key = keyGenerator.generateRandomBytes(keySize);
+            final PreparedHmacKey preparedKey = PreparedHmacKey.prepare(key);
+            for (int i = 0; i < 10; i++) {
+                final byte[] data1 = keyGenerator.generateRandomBytes(i * 13);
+                final byte[] data2 = keyGenerator.generateRandomBytes(i);
+                final byte[] expected = hmac.hash(key, Bytes.concat(data1, data2));
+                // Prepared key can be used repeatedly
+                assertArrayEquals(expected, preparedKey.hash(data1, data2));
+                assertArrayEquals(hmac.hash(key, data1), preparedKey.hash(data1));
+
+                final byte[] output = new byte[40];
+                preparedKey.hash(ByteBuffer.wrap(Bytes.concat(data1, data2)), output, 8);
+                assertArrayEquals(expected, Arrays.copyOfRange(output, 8, 40));
+
+                // Output may overlap with the input
+                final byte[] inPlace = Bytes.concat(data1, data2);
+                if (inPlace.length >= 32) {
+                    preparedKey.hash(inPlace, inPlace, 0);
+                    assertArrayEquals(expected, Arrays.copyOf(inPlace, 32));
+                }
+            }
+        }
+        final SecretKey secretKey = keyGenerator.generateRandomSecretKey();
+        final byte[] data = keyGenerator.generateRandomBytes(100);
+        assertArrayEquals(hmac.hash(secretKey, data), PreparedHmacKey.prepare(secretKey).hash(data));
+    }
+
+    private interface HashComputation {
+        void compute() throws Exception;
+    }
+
+    private static void assertMissingData(HashComputation computation) throws Exception {
+        try {
+            computation.compute();
+            fail("Missing HMAC input was accepted");
+        } catch (GenericCryptoException ex) {
+            // Expected
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.util;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.provider.CryptoProviderUtil;
+import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.security.*;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPrivateKeySpec;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.InvalidKeySpecException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of EC key conversions provided by the crypto provider utilities.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class KeyConversionTest {
+
+    private final KeyGenerator keyGenerator = new KeyGenerator();
+    private CryptoProviderUtil keyConvertor;
+
+    /**
+     * Set up crypto providers
+     */
+    @Before
+    public void setUp() {
+        // Add Bouncy Castle Security Provider
+        Security.addProvider(new BouncyCastleProvider());
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+        keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+    }
+
+    /**
+     * Test that converted keys are equal to keys constructed by the provider KeyFactory.
+     *
+     * @throws Exception In case test fails.
+     */
+    @Test
+    public void testKeyConversion() throws Exception {
+        final AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC", keyConvertor.getProviderName());
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        final ECParameterSpec ecParameterSpec = parameters.getParameterSpec(ECParameterSpec.class);
+        final KeyFactory keyFactory = KeyFactory.getInstance("EC", keyConvertor.getProviderName());
+
+        for (int i = 0; i < 20; i++) {
+            final KeyPair keyPair = keyGenerator.generateKeyPair();
+            final ECPublicKey publicKey = (ECPublicKey) keyPair.getPublic();
+            final ECPrivateKey privateKey = (ECPrivateKey) keyPair.getPrivate();
+
+            final byte[] publicKeyBytes = keyConvertor.convertPublicKeyToBytes(publicKey);
+            final PublicKey convertedPublicKey = keyConvertor.convertBytesToPublicKey(publicKeyBytes);
+            assertEquals(keyFactory.generatePublic(new ECPublicKeySpec(publicKey.getW(), ecParameterSpec)), convertedPublicKey);
+            assertEquals(publicKey, convertedPublicKey);
+            assertArrayEquals(publicKeyBytes, keyConvertor.convertPublicKeyToBytes(convertedPublicKey));
+
+            final byte[] privateKeyBytes = keyConvertor.convertPrivateKeyToBytes(privateKey);
+            final PrivateKey convertedPrivateKey = keyConvertor.convertBytesToPrivateKey(privateKeyBytes);
+            assertEquals(keyFactory.generatePrivate(new ECPrivateKeySpec(new BigInteger(privateKeyBytes), ecParameterSpec)), convertedPrivateKey);
+            assertArrayEquals(privateKeyBytes, keyConvertor.convertPrivateKeyToBytes(convertedPrivateKey));
+
+            // Converted keys are usable for key agreement
+            final KeyPair otherKeyPair = keyGenerator.generateKeyPair();
+            assertEquals(
+                    keyGenerator.computeSharedKey(otherKeyPair.getPrivate(), publicKey, true),
+                    keyGenerator.computeSharedKey(otherKeyPair.getPrivate(), convertedPublicKey, true));
+            assertEquals(
+                    keyGenerator.computeSharedKey(privateKey, otherKeyPair.getPublic(), true),
+                    keyGenerator.computeSharedKey(convertedPrivateKey, otherKeyPair.getPublic(), true));
+        }
+    }
+
+    /**
+     * Test that point at infinity is rejected.
+     *
+     * @throws Exception In case test fails.
+     */
+    @Test(expected = InvalidKeySpecException.class)
+    public void testInfinityPublicKey() throws Exception {
+        keyConvertor.convertBytesToPublicKey(new byte[] { 0x00 });
+    }
+
+    /**
+     * Test that point which is not on the curve is rejected.
+     *
+     * @throws Exception In case test fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPublicKey() throws Exception {
+        final byte[] publicKeyBytes = keyConvertor.convertPublicKeyToBytes(keyGenerator.generateKeyPair().getPublic());
+        publicKeyBytes[publicKeyBytes.length - 1] ^= 1;
+        keyConvertor.convertBytesToPublicKey(publicKeyBytes);
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.crypto.lib.util;
+
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.model.ECDSASignedData;
+import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of batch ECDSA signature validation in {@link SignatureUtils}.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class SignatureUtilsTest {
+
+    private final KeyGenerator keyGenerator = new KeyGenerator();
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+
+    /**
+     * Set up crypto providers
+     */
+    @Before
+    public void setUp() {
+        // Add Bouncy Castle Security Provider
+        Security.addProvider(new BouncyCastleProvider());
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+    }
+
+    /**
+     * Test that batch validation gives the same results as validation of individual signatures.
+     *
+     * @throws Exception In case test fails.
+     */
+    @Test
+    public void testBatchECDSASignatureValidation() throws Exception {
+        final List<KeyPair> keyPairs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            keyPairs.add(keyGenerator.generateKeyPair());
+        }
+        final List<ECDSASignedData> signedDataList = new ArrayList<>();
+        final BitSet expected = new BitSet();
+        for (int i = 0; i < 400; i++) {
+            final KeyPair keyPair = keyPairs.get(i % keyPairs.size());
+            final byte[] data = keyGenerator.generateRandomBytes(1 + i % 50);
+            final byte[] signature = signatureUtils.computeECDSASignature(data, keyPair.getPrivate());
+            switch (i % 5) {
+                case 0:
+                    // Wrong data
+                    signedDataList.add(new ECDSASignedData(keyGenerator.generateRandomBytes(data.length), signature, keyPair.getPublic()));
+                    break;
+                case 1:
+                    // Wrong public key
+                    signedDataList.add(new ECDSASignedData(data, signature, keyPairs.get((i + 1) % keyPairs.size()).getPublic()));
+                    break;
+                case 2:
+                    // Malformed signature
+                    signedDataList.add(new ECDSASignedData(data, new byte[] { 1, 2, 3 }, keyPair.getPublic()));
+                    break;
+                case 3:
+                    // Missing signature
+                    signedDataList.add(new ECDSASignedData(data, null, keyPair.getPublic()));
+                    break;
+                default:
+                    signedDataList.add(new ECDSASignedData(data, signature, keyPair.getPublic()));
+                    expected.set(i);
+            }
+        }
+
+        assertEquals(expected, signatureUtils.validateECDSASignatures(signedDataList));
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(expected, signatureUtils.validateECDSASignatures(signedDataList, executor));
+        } finally {
+            executor.shutdown();
+        }
+        for (int i = 0; i < signedDataList.size(); i++) {
+            final ECDSASignedData signedData = signedDataList.get(i);
+            if (i % 5 != 2 && i % 5 != 3) {
+                assertEquals(expected.get(i), signatureUtils.validateECDSASignature(signedData.getData(), signedData.getSignature(), signedData.getPublicKey()));
+            }
+        }
+        assertTrue(signatureUtils.validateECDSASignatures(new ArrayList<>()).isEmpty());
+    }
+
+}
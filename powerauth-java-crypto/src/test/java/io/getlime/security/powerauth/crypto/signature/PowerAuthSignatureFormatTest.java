@@ -21,8 +21,9 @@ import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
 import io.getlime.security.powerauth.crypto.lib.model.exception.GenericCryptoException;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
 
 /**
  * Test that validates whether signature version to signature format works properly.
@@ -85,4 +86,38 @@ public class PowerAuthSignatureFormatTest {
         assertEquals("DECIMAL", PowerAuthSignatureFormat.DECIMAL.toString());
         assertEquals("BASE64", PowerAuthSignatureFormat.BASE64.toString());
     }
+
+    @Test
+    public void testDecodeDecimalSignature() {
+        final byte[] components = new byte[12];
+        assertTrue(PowerAuthSignatureFormat.DECIMAL.decodeSignature("00000001-88457234-99999999", 3, components));
+        assertArrayEquals(new byte[] {0, 0, 0, 1, 0x05, 0x45, (byte) 0xC0, 0x12, 0x05, (byte) 0xF5, (byte) 0xE0, (byte) 0xFF}, components);
+        // Malformed signatures
+        assertFalse(PowerAuthSignatureFormat.DECIMAL.decodeSignature(null, 1, components));
+        assertFalse(PowerAuthSignatureFormat.DECIMAL.decodeSignature("", 1, components));
+        assertFalse(PowerAuthSignatureFormat.DECIMAL.decodeSignature("8845723", 1, components));
+        assertFalse(PowerAuthSignatureFormat.DECIMAL.decodeSignature("884572341", 1, components));
+        assertFalse(PowerAuthSignatureFormat.DECIMAL.decodeSignature("8845723a", 1, components));
+        assertFalse(PowerAuthSignatureFormat.DECIMAL.decodeSignature("88457234", 2, components));
+        assertFalse(PowerAuthSignatureFormat.DECIMAL.decodeSignature("88457234+00630125", 2, components));
+        assertFalse(PowerAuthSignatureFormat.DECIMAL.decodeSignature("88457234-0063012-", 2, components));
+    }
+
+    @Test
+    public void testDecodeBase64Signature() {
+        final byte[] components = new byte[32];
+        assertTrue(PowerAuthSignatureFormat.BASE64.decodeSignature("MDEyMzQ1Njc4OWFiY2RlZg==", 1, components));
+        assertArrayEquals("0123456789abcdef".getBytes(), Arrays.copyOf(components, 16));
+        assertTrue(PowerAuthSignatureFormat.BASE64.decodeSignature("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=", 2, components));
+        assertArrayEquals("0123456789abcdef0123456789abcdef".getBytes(), components);
+        // Malformed signatures
+        assertFalse(PowerAuthSignatureFormat.BASE64.decodeSignature(null, 1, components));
+        assertFalse(PowerAuthSignatureFormat.BASE64.decodeSignature("", 1, components));
+        assertFalse(PowerAuthSignatureFormat.BASE64.decodeSignature("MDEyMzQ1Njc4OWFiY2RlZg=", 1, components));
+        assertFalse(PowerAuthSignatureFormat.BASE64.decodeSignature("MDEyMzQ1Njc4OWFiY2RlZg", 1, components));
+        assertFalse(PowerAuthSignatureFormat.BASE64.decodeSignature("MDEyMzQ1Njc4OWFiY2RlZh==", 1, components));
+        assertFalse(PowerAuthSignatureFormat.BASE64.decodeSignature("MDEyMzQ1Njc4OWFiY2Rl*g==", 1, components));
+        assertFalse(PowerAuthSignatureFormat.BASE64.decodeSignature("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=", 1, components));
+        assertFalse(PowerAuthSignatureFormat.BASE64.decodeSignature("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWZ=", 2, components));
+    }
 }
@@ -23,6 +23,7 @@ import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
 import io.getlime.security.powerauth.crypto.lib.generator.HashBasedCounter;
 import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.lib.util.SignatureUtils;
 import io.getlime.security.powerauth.crypto.server.keyfactory.PowerAuthServerKeyFactory;
 import io.getlime.security.powerauth.crypto.server.signature.PowerAuthServerSignature;
 import io.getlime.security.powerauth.provider.CryptoProviderUtil;
@@ -37,10 +38,13 @@ import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Security;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -463,4 +467,94 @@ public class PowerAuthSignatureTest {
         }
     }
 
+    /**
+     * Test that in place signature verification gives the same results as the signature computation.
+     *
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testVerifySignatureInPlace() throws Exception {
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        final SignatureUtils signatureUtils = new SignatureUtils();
+        for (PowerAuthSignatureFormat format : PowerAuthSignatureFormat.values()) {
+            for (int factors = 1; factors <= 3; factors++) {
+                for (int i = 0; i < 20; i++) {
+                    final List<SecretKey> signatureKeys = new ArrayList<>();
+                    for (int j = 0; j < factors; j++) {
+                        signatureKeys.add(keyGenerator.generateRandomSecretKey());
+                    }
+                    final byte[] data = keyGenerator.generateRandomBytes(i * 17);
+                    final byte[] ctrData = keyGenerator.generateRandomBytes(16);
+                    final String signature = signatureUtils.computePowerAuthSignature(data, signatureKeys, ctrData, format);
+
+                    // Heap buffer
+                    final ByteBuffer heapBuffer = ByteBuffer.wrap(data);
+                    assertTrue(signatureUtils.verifyPowerAuthSignature(heapBuffer, signature, signatureKeys, ctrData, format));
+                    assertEquals(0, heapBuffer.position());
+
+                    // Direct buffer with non-zero position
+                    final ByteBuffer directBuffer = ByteBuffer.allocateDirect(data.length + 3);
+                    directBuffer.put(new byte[3]).put(data).flip().position(3);
+                    assertTrue(signatureUtils.verifyPowerAuthSignature(directBuffer, new StringBuilder(signature), signatureKeys, ctrData, format));
+                    assertEquals(3, directBuffer.position());
+
+                    // Modified signature
+                    final char[] modified = signature.toCharArray();
+                    final int index = (i * 7) % modified.length;
+                    if (modified[index] != '-' && modified[index] != '=') {
+                        modified[index] = modified[index] == '1' ? '2' : '1';
+                        assertFalse(signatureUtils.verifyPowerAuthSignature(ByteBuffer.wrap(data), new String(modified), signatureKeys, ctrData, format));
+                    }
+
+                    // Malformed signatures
+                    assertFalse(signatureUtils.verifyPowerAuthSignature(ByteBuffer.wrap(data), "", signatureKeys, ctrData, format));
+                    assertFalse(signatureUtils.verifyPowerAuthSignature(ByteBuffer.wrap(data), signature + "0", signatureKeys, ctrData, format));
+                    assertFalse(signatureUtils.verifyPowerAuthSignature(ByteBuffer.wrap(data), signature.substring(1), signatureKeys, ctrData, format));
+
+                    // Wrong data
+                    if (data.length > 0) {
+                        assertFalse(signatureUtils.verifyPowerAuthSignature(ByteBuffer.wrap(data, 1, data.length - 1), signature, signatureKeys, ctrData, format));
+                    }
+
+                    // Legacy validation
+                    assertTrue(signatureUtils.validatePowerAuthSignature(data, signature, signatureKeys, ctrData, format));
+                    assertFalse(signatureUtils.validatePowerAuthSignature(data, signature.substring(1), signatureKeys, ctrData, format));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test signature verification with counter look ahead window.
+     *
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testVerifySignatureWithLookAhead() throws Exception {
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        final HashBasedCounter ctrGenerator = new HashBasedCounter();
+        final SignatureUtils signatureUtils = new SignatureUtils();
+        final PowerAuthServerSignature serverSignature = new PowerAuthServerSignature();
+        for (PowerAuthSignatureFormat format : PowerAuthSignatureFormat.values()) {
+            for (int factors = 1; factors <= 3; factors++) {
+                final List<SecretKey> signatureKeys = new ArrayList<>();
+                for (int j = 0; j < factors; j++) {
+                    signatureKeys.add(keyGenerator.generateRandomSecretKey());
+                }
+                final byte[] data = keyGenerator.generateRandomBytes(100);
+                final byte[] ctrData = ctrGenerator.init();
+                byte[] clientCtrData = ctrData;
+                for (int offset = 0; offset < 25; offset++) {
+                    final String signature = signatureUtils.computePowerAuthSignature(data, signatureKeys, clientCtrData, format);
+                    final int expectedOffset = offset < 20 ? offset : -1;
+                    assertEquals(expectedOffset, serverSignature.verifySignatureForDataWithLookAhead(ByteBuffer.wrap(data), signature, signatureKeys, ctrData, 20, format));
+                    assertEquals(0, serverSignature.verifySignatureForDataWithLookAhead(ByteBuffer.wrap(data), signature, signatureKeys, clientCtrData, 20, format));
+                    clientCtrData = ctrGenerator.next(clientCtrData);
+                }
+                // Malformed signature
+                assertEquals(-1, serverSignature.verifySignatureForDataWithLookAhead(ByteBuffer.wrap(data), "", signatureKeys, ctrData, 20, format));
+            }
+        }
+    }
+
 }
@@ -16,8 +16,6 @@
  */
 package io.getlime.security.powerauth.http;
 
-import java.util.Map;
-
 /**
  * Class representing the PowerAuth HTTP encryption header "X-PowerAuth-Encryption".
  *
@@ -34,17 +32,17 @@ public class PowerAuthEncryptionHttpHeader extends PowerAuthHttpHeader {
         /**
          * Key representing the "application_key" in the PowerAuth encryption header.
          */
-        private static final String APPLICATION_KEY = "application_key";
+        public static final String APPLICATION_KEY = "application_key";
 
         /**
          * Key representing the "activation_id" in the PowerAuth encryption header.
          */
-        private static final String ACTIVATION_ID = "activation_id";
+        public static final String ACTIVATION_ID = "activation_id";
 
         /**
          * Key representing the "version" in the PowerAuth encryption header.
          */
-        private static final String VERSION = "version";
+        public static final String VERSION = "version";
 
     }
 
@@ -106,10 +104,10 @@ public class PowerAuthEncryptionHttpHeader extends PowerAuthHttpHeader {
      */
     @Override
     public PowerAuthEncryptionHttpHeader fromValue(String headerValue) {
-        Map<String, String> map = parseHttpHeader(headerValue);
-        this.applicationKey = map.get(Key.APPLICATION_KEY);
-        this.activationId = map.get(Key.ACTIVATION_ID);
-        this.version = map.get(Key.VERSION);
+        final String[] values = parseHttpHeader(headerValue, Key.APPLICATION_KEY, Key.ACTIVATION_ID, Key.VERSION);
+        this.applicationKey = values[0];
+        this.activationId = values[1];
+        this.version = values[2];
         return this;
     }
 
@@ -18,6 +18,9 @@ package io.getlime.security.powerauth.http;
 
 import com.google.common.io.BaseEncoding;
 
+import javax.crypto.Mac;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -28,6 +31,13 @@ import java.nio.charset.StandardCharsets;
  */
 public class PowerAuthHttpBody {
 
+    private static final byte[] BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Number of request data bytes encoded at once, multiple of 3 so that only the last chunk is padded.
+     */
+    private static final int DATA_CHUNK_LENGTH = 3 * 1024;
+
     /**
      * Prepare signature base string ("data to be signed") using request parameters.
      * @param httpMethod HTTP Method (for example "GET", "POST", "PUT", "DELETE", ...)
@@ -60,4 +70,116 @@ public class PowerAuthHttpBody {
                 + "&" + dataBase64;
     }
 
+    /**
+     * Feed signature base string ("data to be signed") into provided MACs, without constructing the signature base string.
+     * The MACs are updated with the same bytes as UTF-8 encoded {@link #getSignatureBaseString(String, String, byte[], byte[])},
+     * the request data is Base64 encoded in chunks using a small fixed buffer.
+     * <p>
+     * To compute or verify a PowerAuth signature, call this method from a {@code SignatureDataFeeder} passed to
+     * {@code PowerAuthServerSignature.verifySignatureForData()} or {@code PowerAuthClientSignature.signatureForData()},
+     * which initialize the MACs with the keys derived for each signature factor.
+     * @param httpMethod HTTP Method (for example "GET", "POST", "PUT", "DELETE", ...)
+     * @param requestUri Request URI identifier (for example "/secure/payment", or "SEC_PAYM" - structure of URI ID is lose, but the first approach is suggested)
+     * @param nonce Random 16B nonce value.
+     * @param data Request data.
+     * @param macs Initialized MACs to be updated, for example one MAC for each signature factor.
+     */
+    public static void updateSignatureBaseString(String httpMethod, String requestUri, byte[] nonce, byte[] data, Mac... macs) {
+        update(macs, getSignatureBaseStringPrefix(httpMethod, requestUri, nonce));
+        if (data == null) {
+            return;
+        }
+        final byte[] buffer = new byte[DATA_CHUNK_LENGTH / 3 * 4];
+        for (int offset = 0; offset < data.length; offset += DATA_CHUNK_LENGTH) {
+            final int length = encodeBase64(data, offset, Math.min(DATA_CHUNK_LENGTH, data.length - offset), buffer);
+            update(macs, buffer, length);
+        }
+    }
+
+    /**
+     * Feed signature base string ("data to be signed") into provided MACs, without constructing the signature base string
+     * and without reading the whole request data into memory, see {@link #updateSignatureBaseString(String, String, byte[], byte[], Mac...)}.
+     * The stream is read until its end, it is not closed.
+     * @param httpMethod HTTP Method (for example "GET", "POST", "PUT", "DELETE", ...)
+     * @param requestUri Request URI identifier (for example "/secure/payment", or "SEC_PAYM" - structure of URI ID is lose, but the first approach is suggested)
+     * @param nonce Random 16B nonce value.
+     * @param data Stream with request data.
+     * @param macs Initialized MACs to be updated, for example one MAC for each signature factor.
+     * @throws IOException In case reading of request data fails.
+     */
+    public static void updateSignatureBaseString(String httpMethod, String requestUri, byte[] nonce, InputStream data, Mac... macs) throws IOException {
+        update(macs, getSignatureBaseStringPrefix(httpMethod, requestUri, nonce));
+        if (data == null) {
+            return;
+        }
+        final byte[] chunk = new byte[DATA_CHUNK_LENGTH];
+        final byte[] buffer = new byte[DATA_CHUNK_LENGTH / 3 * 4];
+        while (true) {
+            // Fill the whole chunk, so that padding can only appear in the last one
+            int chunkLength = 0;
+            int count;
+            while (chunkLength < chunk.length && (count = data.read(chunk, chunkLength, chunk.length - chunkLength)) != -1) {
+                chunkLength += count;
+            }
+            if (chunkLength == 0) {
+                return;
+            }
+            update(macs, buffer, encodeBase64(chunk, 0, chunkLength, buffer));
+            if (chunkLength < chunk.length) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get UTF-8 encoded part of the signature base string which precedes the Base64 encoded request data.
+     * @param httpMethod HTTP Method.
+     * @param requestUri Request URI identifier.
+     * @param nonce Random 16B nonce value.
+     * @return Bytes of the signature base string prefix, including the last '&amp;' separator.
+     */
+    private static byte[] getSignatureBaseStringPrefix(String httpMethod, String requestUri, byte[] nonce) {
+        return getSignatureBaseString(httpMethod, requestUri, nonce, null).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void update(Mac[] macs, byte[] bytes) {
+        update(macs, bytes, bytes.length);
+    }
+
+    private static void update(Mac[] macs, byte[] bytes, int length) {
+        for (Mac mac : macs) {
+            mac.update(bytes, 0, length);
+        }
+    }
+
+    /**
+     * Encode bytes into Base64 with padding.
+     * @param input Input bytes.
+     * @param offset Offset of the encoded bytes in input.
+     * @param length Number of encoded bytes.
+     * @param output Output buffer for encoded bytes.
+     * @return Number of bytes written into the output buffer.
+     */
+    private static int encodeBase64(byte[] input, int offset, int length, byte[] output) {
+        final int end = offset + length;
+        int i = offset;
+        int o = 0;
+        for (; i + 2 < end; i += 3) {
+            final int bits = (input[i] & 0xFF) << 16 | (input[i + 1] & 0xFF) << 8 | (input[i + 2] & 0xFF);
+            output[o++] = BASE64_ALPHABET[bits >>> 18];
+            output[o++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+            output[o++] = BASE64_ALPHABET[(bits >>> 6) & 0x3F];
+            output[o++] = BASE64_ALPHABET[bits & 0x3F];
+        }
+        final int remaining = end - i;
+        if (remaining > 0) {
+            final int bits = (input[i] & 0xFF) << 16 | (remaining == 2 ? (input[i + 1] & 0xFF) << 8 : 0);
+            output[o++] = BASE64_ALPHABET[bits >>> 18];
+            output[o++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+            output[o++] = remaining == 2 ? BASE64_ALPHABET[(bits >>> 6) & 0x3F] : (byte) '=';
+            output[o++] = '=';
+        }
+        return o;
+    }
+
 }
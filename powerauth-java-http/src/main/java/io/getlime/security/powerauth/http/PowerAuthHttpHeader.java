@@ -18,8 +18,6 @@ package io.getlime.security.powerauth.http;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Base class for processing any PowerAuth related HTTP headers.
@@ -36,24 +34,147 @@ public abstract class PowerAuthHttpHeader {
      * @return Map with parsed header values.
      */
     protected Map<String, String> parseHttpHeader(String header) {
+        final Map<String, String> result = new HashMap<>(); // invalid map with empty values works better than null here
+        tokenizeHttpHeader(header, (keyStart, keyEnd, valueStart, valueEnd) ->
+                result.put(header.substring(keyStart, keyEnd), header.substring(valueStart, valueEnd)));
+        return result;
+    }
+
+    /**
+     * Parse the PowerAuth authorization header and return values of the requested keys. Values of keys
+     * which are not present in the header are null, unknown keys in the header are ignored. In case a key
+     * is present multiple times, the last value wins.
+     * @param header HTTP header with PowerAuth authorization.
+     * @param keys Keys whose values should be returned.
+     * @return Array with values of the requested keys, in the order of the keys.
+     */
+    protected String[] parseHttpHeader(String header, String... keys) {
+        final String[] values = new String[keys.length];
+        tokenizeHttpHeader(header, (keyStart, keyEnd, valueStart, valueEnd) -> {
+            final int keyLength = keyEnd - keyStart;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].length() == keyLength && header.regionMatches(keyStart, keys[i], 0, keyLength)) {
+                    values[i] = header.substring(valueStart, valueEnd);
+                    return;
+                }
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Handler of fields found while tokenizing the header, positions refer to the original header value.
+     */
+    public interface FieldHandler {
+
+        /**
+         * Handle a field found in the header.
+         * @param keyStart Start index of the key, inclusive.
+         * @param keyEnd End index of the key, exclusive.
+         * @param valueStart Start index of the value, inclusive.
+         * @param valueEnd End index of the value, exclusive.
+         */
+        void handleField(int keyStart, int keyEnd, int valueStart, int valueEnd);
+
+    }
+
+    /**
+     * Tokenize the PowerAuth authorization header in a single pass. The tokenizer accepts exactly
+     * the same inputs and produces exactly the same fields as the original regular expression
+     * <code>(\w+)="*((?&lt;=")[^"]+(?=")|([^\s]+)),*"*</code> applied repeatedly on the header
+     * value with the prefix stripped.
+     * @param header HTTP header with PowerAuth authorization.
+     * @param handler Handler receiving positions of parsed keys and values.
+     */
+    public static void tokenizeHttpHeader(String header, FieldHandler handler) {
         if (header == null) {
-            return new HashMap<>(); // invalid map with empty values works better than null here
+            return;
+        }
+        // Equivalent of trim(), startsWith(POWERAUTH_PREFIX), substring() and trim() without copying the header
+        int start = 0;
+        int end = header.length();
+        while (start < end && header.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && header.charAt(end - 1) <= ' ') {
+            end--;
         }
-        header = header.trim();
-        if (!header.startsWith(POWERAUTH_PREFIX)) {
-            return new HashMap<>(); // invalid map with empty values works better than null here
+        if (!header.startsWith(POWERAUTH_PREFIX, start) || end - start < POWERAUTH_PREFIX.length()) {
+            return;
         }
-        header = header.substring(POWERAUTH_PREFIX.length()).trim();
-
-        // Parse the key / value pairs
-        Map<String, String> result = new HashMap<>();
-        Pattern p = Pattern.compile("(\\w+)=\"*((?<=\")[^\"]+(?=\")|([^\\s]+)),*\"*");
-        Matcher m = p.matcher(header);
-        while (m.find()) {
-            result.put(m.group(1), m.group(2));
+        start += POWERAUTH_PREFIX.length();
+        while (start < end && header.charAt(start) <= ' ') {
+            start++;
         }
 
-        return result;
+        int pos = start;
+        while (pos < end) {
+            // Key is the complete run of word characters followed by '='
+            if (!isWordChar(header.charAt(pos))) {
+                pos++;
+                continue;
+            }
+            final int keyStart = pos;
+            while (pos < end && isWordChar(header.charAt(pos))) {
+                pos++;
+            }
+            final int keyEnd = pos;
+            if (pos == end || header.charAt(pos) != '=') {
+                continue;
+            }
+            final int valueOffset = pos + 1;
+            int valueStart = valueOffset;
+            while (valueStart < end && header.charAt(valueStart) == '"') {
+                valueStart++;
+            }
+            // Quoted value, requires at least one non-quote character followed by a closing quote
+            if (valueStart > valueOffset && valueStart < end) {
+                int valueEnd = valueStart;
+                while (valueEnd < end && header.charAt(valueEnd) != '"') {
+                    valueEnd++;
+                }
+                if (valueEnd < end) {
+                    handler.handleField(keyStart, keyEnd, valueStart, valueEnd);
+                    pos = valueEnd;
+                    while (pos < end && header.charAt(pos) == '"') {
+                        pos++;
+                    }
+                    continue;
+                }
+            }
+            // Unquoted value, runs until whitespace and may include quotes and commas
+            if (valueStart < end && !isWhitespace(header.charAt(valueStart))) {
+                int valueEnd = valueStart;
+                while (valueEnd < end && !isWhitespace(header.charAt(valueEnd))) {
+                    valueEnd++;
+                }
+                handler.handleField(keyStart, keyEnd, valueStart, valueEnd);
+                pos = valueEnd;
+                continue;
+            }
+            // Quotes without any value, the last quote becomes the value
+            if (valueStart > valueOffset) {
+                handler.handleField(keyStart, keyEnd, valueStart - 1, valueStart);
+                pos = valueStart;
+                continue;
+            }
+            // Missing value, continue after '='
+            pos = valueOffset;
+        }
+    }
+
+    /**
+     * Check whether the character is a word character, equivalent of <code>\w</code> in regular expressions.
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Check whether the character is a whitespace, equivalent of <code>\s</code> in regular expressions.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     /**
@@ -20,28 +20,19 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 public class PowerAuthRequestCanonizationUtils {
 
-    /**
-     * Utility variable, used for the purpose of GET query attribute sorting (query attribute key).
-     */
-    private static final String KEY = "key";
-
-    /**
-     * Utility variable, used for the purpose of GET query attribute sorting (query attribute value).
-     */
-    private static final String VAL = "val";
-
     /**
      * Take the GET request query string (for example, "param1=key1&amp;param2=key2") and convert it to the
      * canonized form by sorting the key value pairs primarily by keys and by values in case the keys are
      * equal.
      *
+     * <p>The query string is parsed in a single pass into slices of keys and values. Only keys and values
+     * which contain escaped characters are decoded into new strings, and only keys and values which contain
+     * characters that require encoding are encoded again. The result is the same as decoding and encoding
+     * each key and value using {@link URLDecoder} and {@link URLEncoder}.
+     *
      * @param queryString The original get query string, obtained for example by 'request.getQueryString();'.
      * @return Canonized query string.
      */
@@ -50,55 +41,169 @@ public class PowerAuthRequestCanonizationUtils {
             if (queryString == null) {
                 return "";
             }
-            List<Map<String, String>> items = new ArrayList<>();
-            String[] keyValuePairs = queryString.split("&"); // ... get the key value pairs
-            for (String keyValue : keyValuePairs) {
-                String[] tmp = keyValue.split("=", 2);
-                if (tmp.length != 2) { // ... skip invalid values (this will likely fail signature verification)
-                    continue;
+            final int length = queryString.length();
+            int capacity = 1;
+            for (int i = 0; i < length; i++) {
+                if (queryString.charAt(i) == '&') {
+                    capacity++;
                 }
-                String key = URLDecoder.decode(tmp[0], StandardCharsets.UTF_8.name()); // decoded GET query attribute key
-                String val = URLDecoder.decode(tmp[1], StandardCharsets.UTF_8.name()); // decoded GET query attribute value
-                Map<String, String> pair = new HashMap<>();
-                pair.put(KEY, key);
-                pair.put(VAL, val);
-                items.add(pair);
             }
 
-            // Sort the query key pair collection
-            items.sort((left, right) -> {
-                String leftKey = left.get(KEY);
-                String leftVal = left.get(VAL);
-                String rightKey = right.get(KEY);
-                String rightVal = right.get(VAL);
-                if (leftKey != null && leftKey.equals(rightKey)) {
-                    return leftVal != null ? leftVal.compareTo(rightVal) : -1;
-                } else {
-                    return leftKey != null ? leftKey.compareTo(rightKey) : -1;
+            // Bounds of key and value of each item, the key of item i is part 2 * i, the value is part 2 * i + 1.
+            // Part bounds are stored at index 2 * part. Decoded parts are stored only when decoding changes the part.
+            final int[] bounds = new int[capacity * 4];
+            final String[] decoded = new String[capacity * 2];
+            int count = 0;
+            int start = 0;
+            while (start <= length) {
+                // Find the end of the key value pair, the first '=' and check whether key and value need decoding
+                int separator = -1;
+                boolean keyEscaped = false;
+                boolean valueEscaped = false;
+                int end = start;
+                for (; end < length; end++) {
+                    final char c = queryString.charAt(end);
+                    if (c == '&') {
+                        break;
+                    }
+                    if (c == '=' && separator < 0) {
+                        separator = end;
+                    } else if (c == '%' || c == '+') {
+                        if (separator < 0) {
+                            keyEscaped = true;
+                        } else {
+                            valueEscaped = true;
+                        }
+                    }
+                }
+                if (separator >= 0) { // ... skip invalid values (this will likely fail signature verification)
+                    final int key = count * 2;
+                    bounds[key * 2] = start;
+                    bounds[key * 2 + 1] = separator;
+                    bounds[key * 2 + 2] = separator + 1;
+                    bounds[key * 2 + 3] = end;
+                    if (keyEscaped) {
+                        decoded[key] = URLDecoder.decode(queryString.substring(start, separator), StandardCharsets.UTF_8.name());
+                    }
+                    if (valueEscaped) {
+                        decoded[key + 1] = URLDecoder.decode(queryString.substring(separator + 1, end), StandardCharsets.UTF_8.name());
+                    }
+                    count++;
                 }
-            });
+                start = end + 1;
+            }
+            if (count == 0) {
+                return null;
+            }
+
+            // Sort the query key pair collection
+            final int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            sort(queryString, bounds, decoded, order, new int[count], 0, count);
 
             // Serialize the sorted items back to the signature base string
-            StringBuilder signatureBaseString = new StringBuilder();
-            boolean firstSkipped = false;
-            for (Map<String, String> pair : items) {
-                String key = pair.get(KEY);
-                String val = pair.get(VAL);
-                if (firstSkipped) { // ... for all items except for the first one, prepend "&"
-                    signatureBaseString.append("&");
-                } else {
-                    firstSkipped = true;
+            final StringBuilder signatureBaseString = new StringBuilder(length + 16);
+            for (int i = 0; i < count; i++) {
+                if (i > 0) { // ... for all items except for the first one, prepend "&"
+                    signatureBaseString.append('&');
                 }
-                signatureBaseString.append(URLEncoder.encode(key, StandardCharsets.UTF_8.name()));
-                signatureBaseString.append("=");
-                signatureBaseString.append(URLEncoder.encode(val, StandardCharsets.UTF_8.name()));
+                final int key = order[i] * 2;
+                appendEncoded(signatureBaseString, queryString, bounds, decoded, key);
+                signatureBaseString.append('=');
+                appendEncoded(signatureBaseString, queryString, bounds, decoded, key + 1);
             }
-
-            return signatureBaseString.length() > 0 ? signatureBaseString.toString() : null;
+            return signatureBaseString.toString();
         } catch (UnsupportedEncodingException e) {
             // Ignore, UTF-8 can be assumed to exist
         }
         return null;
     }
 
+    /**
+     * Sort items by keys and by values in case the keys are equal, using merge sort.
+     * @param queryString Query string.
+     * @param bounds Bounds of parts.
+     * @param decoded Decoded parts.
+     * @param order Indexes of items to be sorted.
+     * @param buffer Temporary buffer of the same size as order.
+     * @param from Start index of the sorted range, inclusive.
+     * @param to End index of the sorted range, exclusive.
+     */
+    private static void sort(String queryString, int[] bounds, String[] decoded, int[] order, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        sort(queryString, bounds, decoded, order, buffer, from, middle);
+        sort(queryString, bounds, decoded, order, buffer, middle, to);
+        if (compareItems(queryString, bounds, decoded, order[middle - 1], order[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compareItems(queryString, bounds, decoded, buffer[left], buffer[right]) <= 0)) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Compare items primarily by keys and by values in case the keys are equal.
+     */
+    private static int compareItems(String queryString, int[] bounds, String[] decoded, int left, int right) {
+        final int result = compareParts(queryString, bounds, decoded, left * 2, right * 2);
+        return result != 0 ? result : compareParts(queryString, bounds, decoded, left * 2 + 1, right * 2 + 1);
+    }
+
+    /**
+     * Compare parts lexicographically, in the same way as {@link String#compareTo(String)}.
+     */
+    private static int compareParts(String queryString, int[] bounds, String[] decoded, int left, int right) {
+        final String leftSource = decoded[left] != null ? decoded[left] : queryString;
+        final int leftStart = decoded[left] != null ? 0 : bounds[left * 2];
+        final int leftLength = decoded[left] != null ? decoded[left].length() : bounds[left * 2 + 1] - leftStart;
+        final String rightSource = decoded[right] != null ? decoded[right] : queryString;
+        final int rightStart = decoded[right] != null ? 0 : bounds[right * 2];
+        final int rightLength = decoded[right] != null ? decoded[right].length() : bounds[right * 2 + 1] - rightStart;
+        final int length = Math.min(leftLength, rightLength);
+        for (int i = 0; i < length; i++) {
+            final char l = leftSource.charAt(leftStart + i);
+            final char r = rightSource.charAt(rightStart + i);
+            if (l != r) {
+                return l - r;
+            }
+        }
+        return leftLength - rightLength;
+    }
+
+    /**
+     * Append URL encoded part to the string builder.
+     */
+    private static void appendEncoded(StringBuilder builder, String queryString, int[] bounds, String[] decoded, int part) throws UnsupportedEncodingException {
+        final String source = decoded[part] != null ? decoded[part] : queryString;
+        final int start = decoded[part] != null ? 0 : bounds[part * 2];
+        final int end = decoded[part] != null ? decoded[part].length() : bounds[part * 2 + 1];
+        for (int i = start; i < end; i++) {
+            if (!isUnreserved(source.charAt(i))) {
+                builder.append(URLEncoder.encode(source.substring(start, end), StandardCharsets.UTF_8.name()));
+                return;
+            }
+        }
+        builder.append(source, start, end);
+    }
+
+    /**
+     * Check whether the character is kept as is by {@link URLEncoder}.
+     */
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == '*';
+    }
+
 }
@@ -16,8 +16,6 @@
  */
 package io.getlime.security.powerauth.http;
 
-import java.util.Map;
-
 /**
  * Class representing the PowerAuth HTTP Authorization header "X-PowerAuth-Authorization".
  *
@@ -34,32 +32,32 @@ public class PowerAuthSignatureHttpHeader extends PowerAuthHttpHeader {
         /**
          * Key representing the "pa_activation_id" in the PowerAuth authorization header.
          */
-        private static final String ACTIVATION_ID = "pa_activation_id";
+        public static final String ACTIVATION_ID = "pa_activation_id";
 
         /**
          * Key representing the "pa_application_key" in the PowerAuth authorization header.
          */
-        private static final String APPLICATION_ID = "pa_application_key";
+        public static final String APPLICATION_ID = "pa_application_key";
 
         /**
          * Key representing the "pa_signature" in the PowerAuth authorization header.
          */
-        private static final String SIGNATURE = "pa_signature";
+        public static final String SIGNATURE = "pa_signature";
 
         /**
          * Key representing the "pa_signature_type" in the PowerAuth authorization header.
          */
-        private static final String SIGNATURE_TYPE = "pa_signature_type";
+        public static final String SIGNATURE_TYPE = "pa_signature_type";
 
         /**
          * Key representing the "pa_nonce" in the PowerAuth authorization header.
          */
-        private static final String NONCE = "pa_nonce";
+        public static final String NONCE = "pa_nonce";
 
         /**
          * Key representing the "pa_version" in the PowerAuth authorization header.
          */
-        private static final String VERSION = "pa_version";
+        public static final String VERSION = "pa_version";
 
     }
 
@@ -129,13 +127,13 @@ public class PowerAuthSignatureHttpHeader extends PowerAuthHttpHeader {
      */
     @Override
     public PowerAuthSignatureHttpHeader fromValue(String headerValue) {
-        Map<String, String> map = parseHttpHeader(headerValue);
-        this.activationId         = map.get(Key.ACTIVATION_ID);
-        this.applicationKey       = map.get(Key.APPLICATION_ID);
-        this.nonce                = map.get(Key.NONCE);
-        this.signatureType        = map.get(Key.SIGNATURE_TYPE);
-        this.signature            = map.get(Key.SIGNATURE);
-        this.version              = map.get(Key.VERSION);
+        final String[] values = parseHttpHeader(headerValue, Key.ACTIVATION_ID, Key.APPLICATION_ID, Key.NONCE, Key.SIGNATURE_TYPE, Key.SIGNATURE, Key.VERSION);
+        this.activationId         = values[0];
+        this.applicationKey       = values[1];
+        this.nonce                = values[2];
+        this.signatureType        = values[3];
+        this.signature            = values[4];
+        this.version              = values[5];
         return this;
     }
 
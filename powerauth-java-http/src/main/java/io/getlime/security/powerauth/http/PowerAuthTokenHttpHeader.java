@@ -16,8 +16,6 @@
  */
 package io.getlime.security.powerauth.http;
 
-import java.util.Map;
-
 /**
  * Class representing the PowerAuth HTTP Token header "X-PowerAuth-Token".
  *
@@ -34,27 +32,27 @@ public class PowerAuthTokenHttpHeader extends PowerAuthHttpHeader {
         /**
          * Key representing the "token_id" in the PowerAuth token header.
          */
-        private static final String TOKEN_ID = "token_id";
+        public static final String TOKEN_ID = "token_id";
 
         /**
          * Key representing the "token_digest" in the PowerAuth token header.
          */
-        private static final String TOKEN_DIGEST = "token_digest";
+        public static final String TOKEN_DIGEST = "token_digest";
 
         /**
          * Key representing the "token_nonce" in the PowerAuth token header.
          */
-        private static final String NONCE = "nonce";
+        public static final String NONCE = "nonce";
 
         /**
          * Key representing the "timestamp" in the PowerAuth token header.
          */
-        private static final String TIMESTAMP = "timestamp";
+        public static final String TIMESTAMP = "timestamp";
 
         /**
          * Key representing the "version" in the PowerAuth token header.
          */
-        private static final String VERSION = "version";
+        public static final String VERSION = "version";
 
     }
 
@@ -117,12 +115,12 @@ public class PowerAuthTokenHttpHeader extends PowerAuthHttpHeader {
      */
     @Override
     public PowerAuthTokenHttpHeader fromValue(String headerValue) {
-        Map<String, String> map = parseHttpHeader(headerValue);
-        this.tokenId          = map.get(Key.TOKEN_ID);
-        this.tokenDigest      = map.get(Key.TOKEN_DIGEST);
-        this.nonce            = map.get(Key.NONCE);
-        this.timestamp        = map.get(Key.TIMESTAMP);
-        this.version          = map.get(Key.VERSION);
+        final String[] values = parseHttpHeader(headerValue, Key.TOKEN_ID, Key.TOKEN_DIGEST, Key.NONCE, Key.TIMESTAMP, Key.VERSION);
+        this.tokenId          = values[0];
+        this.tokenDigest      = values[1];
+        this.nonce            = values[2];
+        this.timestamp        = values[3];
+        this.version          = values[4];
         return this;
     }
 
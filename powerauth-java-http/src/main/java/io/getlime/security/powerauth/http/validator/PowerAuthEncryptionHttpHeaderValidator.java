@@ -17,6 +17,7 @@
 package io.getlime.security.powerauth.http.validator;
 
 import io.getlime.security.powerauth.http.PowerAuthEncryptionHttpHeader;
+import io.getlime.security.powerauth.http.validator.ValidatingFieldHandler.ValueValidator;
 
 /**
  * Validator class for {@link PowerAuthEncryptionHttpHeader}.
@@ -25,6 +26,35 @@ import io.getlime.security.powerauth.http.PowerAuthEncryptionHttpHeader;
  */
 public class PowerAuthEncryptionHttpHeaderValidator {
 
+    private static final String[] ENCRYPTION_HEADER_KEYS = {
+            PowerAuthEncryptionHttpHeader.Key.APPLICATION_KEY,
+            PowerAuthEncryptionHttpHeader.Key.ACTIVATION_ID,
+            PowerAuthEncryptionHttpHeader.Key.VERSION
+    };
+
+    private static final ValueValidator[] ENCRYPTION_HEADER_VALIDATORS = {
+            (header, start, end) -> ValueTypeValidator.isValidBase64OfLengthRange(header, start, end, 16, 16),
+            ValueTypeValidator::isValidUuid,
+            null
+    };
+
+    /**
+     * Parse and validate the PowerAuth encryption header in a single pass. Each value is validated while
+     * the header is tokenized, values are checked in the same order and with the same errors as in
+     * {@link #validate(PowerAuthEncryptionHttpHeader)}.
+     * @param headerValue Value of the HTTP header.
+     * @return Valid PowerAuth encryption header.
+     * @throws InvalidPowerAuthHttpHeaderException In case the header is not valid.
+     */
+    public static PowerAuthEncryptionHttpHeader parseAndValidate(String headerValue) throws InvalidPowerAuthHttpHeaderException {
+        final ValidatingFieldHandler fields = new ValidatingFieldHandler(headerValue, ENCRYPTION_HEADER_KEYS, ENCRYPTION_HEADER_VALIDATORS).parse();
+        final String applicationKey = fields.getValidValue(0, "POWER_AUTH_ENCRYPTION_APPLICATION_KEY_EMPTY", "POWER_AUTH_ENCRYPTION_APPLICATION_KEY_INVALID");
+        // Activation ID is null in application scope, thus null value is allowed
+        final String activationId = fields.getOptionalValue(1, "POWER_AUTH_ENCRYPTION_ACTIVATION_ID_INVALID");
+        final String version = fields.getValidValue(2, "POWER_AUTH_ENCRYPTION_VERSION_EMPTY", null);
+        return new PowerAuthEncryptionHttpHeader(applicationKey, activationId, version);
+    }
+
     public static void validate(PowerAuthEncryptionHttpHeader header) throws InvalidPowerAuthHttpHeaderException {
 
         // Check if the parsing was successful
@@ -17,6 +17,7 @@
 package io.getlime.security.powerauth.http.validator;
 
 import io.getlime.security.powerauth.http.PowerAuthSignatureHttpHeader;
+import io.getlime.security.powerauth.http.validator.ValidatingFieldHandler.ValueValidator;
 
 /**
  * Validator class for {@link io.getlime.security.powerauth.http.PowerAuthSignatureHttpHeader}.
@@ -25,6 +26,43 @@ import io.getlime.security.powerauth.http.PowerAuthSignatureHttpHeader;
  */
 public class PowerAuthSignatureHttpHeaderValidator {
 
+    private static final String[] SIGNATURE_HEADER_KEYS = {
+            PowerAuthSignatureHttpHeader.Key.ACTIVATION_ID,
+            PowerAuthSignatureHttpHeader.Key.NONCE,
+            PowerAuthSignatureHttpHeader.Key.SIGNATURE_TYPE,
+            PowerAuthSignatureHttpHeader.Key.SIGNATURE,
+            PowerAuthSignatureHttpHeader.Key.APPLICATION_ID,
+            PowerAuthSignatureHttpHeader.Key.VERSION
+    };
+
+    private static final ValueValidator[] SIGNATURE_HEADER_VALIDATORS = {
+            ValueTypeValidator::isValidUuid,
+            (header, start, end) -> ValueTypeValidator.isValidBase64OfLengthRange(header, start, end, 16, 16),
+            (header, start, end) -> ValueTypeValidator.isValidSignatureType(header.substring(start, end)),
+            ValueTypeValidator::isValidSignatureValue,
+            (header, start, end) -> ValueTypeValidator.isValidBase64OfLengthRange(header, start, end, 16, 16),
+            null
+    };
+
+    /**
+     * Parse and validate the PowerAuth signature header in a single pass. Each value is validated while
+     * the header is tokenized, values are checked in the same order and with the same errors as in
+     * {@link #validate(PowerAuthSignatureHttpHeader)}.
+     * @param headerValue Value of the HTTP header.
+     * @return Valid PowerAuth signature header.
+     * @throws InvalidPowerAuthHttpHeaderException In case the header is not valid.
+     */
+    public static PowerAuthSignatureHttpHeader parseAndValidate(String headerValue) throws InvalidPowerAuthHttpHeaderException {
+        final ValidatingFieldHandler fields = new ValidatingFieldHandler(headerValue, SIGNATURE_HEADER_KEYS, SIGNATURE_HEADER_VALIDATORS).parse();
+        final String activationId = fields.getValidValue(0, "POWER_AUTH_ACTIVATION_ID_EMPTY", "POWER_AUTH_ACTIVATION_ID_INVALID");
+        final String nonce = fields.getValidValue(1, "POWER_AUTH_NONCE_EMPTY", "POWER_AUTH_NONCE_INVALID");
+        final String signatureType = fields.getValidValue(2, "POWER_AUTH_SIGNATURE_TYPE_EMPTY", "POWER_AUTH_SIGNATURE_TYPE_INVALID");
+        final String signature = fields.getValidValue(3, "POWER_AUTH_SIGNATURE_EMPTY", "POWER_AUTH_SIGNATURE_INVALID");
+        final String applicationKey = fields.getValidValue(4, "POWER_AUTH_APPLICATION_EMPTY", "POWER_AUTH_APPLICATION_INVALID");
+        final String version = fields.getOptionalValue(5, null);
+        return new PowerAuthSignatureHttpHeader(activationId, applicationKey, signature, signatureType, nonce, version);
+    }
+
     public static void validate(PowerAuthSignatureHttpHeader header) throws InvalidPowerAuthHttpHeaderException {
 
         // Check if the parsing was successful
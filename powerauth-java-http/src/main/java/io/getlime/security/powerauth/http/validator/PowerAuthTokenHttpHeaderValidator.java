@@ -17,6 +17,7 @@
 package io.getlime.security.powerauth.http.validator;
 
 import io.getlime.security.powerauth.http.PowerAuthTokenHttpHeader;
+import io.getlime.security.powerauth.http.validator.ValidatingFieldHandler.ValueValidator;
 
 /**
  * Validator class for {@link io.getlime.security.powerauth.http.PowerAuthTokenHttpHeader}.
@@ -25,6 +26,40 @@ import io.getlime.security.powerauth.http.PowerAuthTokenHttpHeader;
  */
 public class PowerAuthTokenHttpHeaderValidator {
 
+    private static final String[] TOKEN_HEADER_KEYS = {
+            PowerAuthTokenHttpHeader.Key.TOKEN_ID,
+            PowerAuthTokenHttpHeader.Key.TOKEN_DIGEST,
+            PowerAuthTokenHttpHeader.Key.NONCE,
+            PowerAuthTokenHttpHeader.Key.TIMESTAMP,
+            PowerAuthTokenHttpHeader.Key.VERSION
+    };
+
+    private static final ValueValidator[] TOKEN_HEADER_VALIDATORS = {
+            ValueTypeValidator::isValidUuid,
+            (header, start, end) -> ValueTypeValidator.isValidBase64OfLengthRange(header, start, end, 32, 32),
+            (header, start, end) -> ValueTypeValidator.isValidBase64OfLengthRange(header, start, end, 16, 16),
+            (header, start, end) -> ValueTypeValidator.isDecimalString(header, start, end, 9, 15),
+            null
+    };
+
+    /**
+     * Parse and validate the PowerAuth token header in a single pass. Each value is validated while
+     * the header is tokenized, values are checked in the same order and with the same errors as in
+     * {@link #validate(PowerAuthTokenHttpHeader)}.
+     * @param headerValue Value of the HTTP header.
+     * @return Valid PowerAuth token header.
+     * @throws InvalidPowerAuthHttpHeaderException In case the header is not valid.
+     */
+    public static PowerAuthTokenHttpHeader parseAndValidate(String headerValue) throws InvalidPowerAuthHttpHeaderException {
+        final ValidatingFieldHandler fields = new ValidatingFieldHandler(headerValue, TOKEN_HEADER_KEYS, TOKEN_HEADER_VALIDATORS).parse();
+        final String tokenId = fields.getValidValue(0, "POWER_AUTH_TOKEN_ID_EMPTY", "POWER_AUTH_TOKEN_ID_INVALID");
+        final String tokenDigest = fields.getValidValue(1, "POWER_AUTH_TOKEN_DIGEST_EMPTY", "POWER_AUTH_TOKEN_DIGEST_INVALID");
+        final String nonce = fields.getValidValue(2, "POWER_AUTH_TOKEN_NONCE_EMPTY", "POWER_AUTH_TOKEN_NONCE_INVALID");
+        final String timestamp = fields.getValidValue(3, "POWER_AUTH_TOKEN_TIMESTAMP_EMPTY", "POWER_AUTH_TOKEN_TIMESTAMP_INVALID");
+        final String version = fields.getOptionalValue(4, null);
+        return new PowerAuthTokenHttpHeader(tokenId, tokenDigest, nonce, timestamp, version);
+    }
+
     public static void validate(PowerAuthTokenHttpHeader header) throws InvalidPowerAuthHttpHeaderException {
 
         // Check if the parsing was successful
@@ -0,0 +1,115 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.http.validator;
+
+import io.getlime.security.powerauth.http.PowerAuthHttpHeader;
+
+/**
+ * Field handler which validates header values in place while the header is tokenized. Only values
+ * which pass the validation are copied out of the header. In case a key is present multiple times,
+ * the last value wins, including its validation result.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+final class ValidatingFieldHandler implements PowerAuthHttpHeader.FieldHandler {
+
+    /**
+     * Validator of a value stored in the header between start and end index.
+     */
+    interface ValueValidator {
+        boolean isValid(String header, int start, int end);
+    }
+
+    private final String header;
+    private final String[] keys;
+    private final ValueValidator[] validators;
+    private final String[] values;
+    private final boolean[] invalid;
+
+    /**
+     * Constructor with header value, expected keys and validators of their values.
+     * @param header HTTP header value.
+     * @param keys Expected keys.
+     * @param validators Validators of values of the expected keys, null for values which are not validated.
+     */
+    ValidatingFieldHandler(String header, String[] keys, ValueValidator[] validators) {
+        this.header = header;
+        this.keys = keys;
+        this.validators = validators;
+        this.values = new String[keys.length];
+        this.invalid = new boolean[keys.length];
+    }
+
+    @Override
+    public void handleField(int keyStart, int keyEnd, int valueStart, int valueEnd) {
+        final int keyLength = keyEnd - keyStart;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].length() == keyLength && header.regionMatches(keyStart, keys[i], 0, keyLength)) {
+                if (validators[i] == null || validators[i].isValid(header, valueStart, valueEnd)) {
+                    values[i] = header.substring(valueStart, valueEnd);
+                    invalid[i] = false;
+                } else {
+                    values[i] = null;
+                    invalid[i] = true;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tokenize the header and validate values of the expected keys.
+     * @return This handler.
+     */
+    ValidatingFieldHandler parse() {
+        PowerAuthHttpHeader.tokenizeHttpHeader(header, this);
+        return this;
+    }
+
+    /**
+     * Get valid value of the key at given index.
+     * @param index Index of the key.
+     * @param emptyError Error reported in case the key is missing.
+     * @param invalidError Error reported in case the value is invalid.
+     * @return Valid value.
+     * @throws InvalidPowerAuthHttpHeaderException In case the key is missing or its value is invalid.
+     */
+    String getValidValue(int index, String emptyError, String invalidError) throws InvalidPowerAuthHttpHeaderException {
+        if (invalid[index]) {
+            throw new InvalidPowerAuthHttpHeaderException(invalidError);
+        }
+        if (values[index] == null) {
+            throw new InvalidPowerAuthHttpHeaderException(emptyError);
+        }
+        return values[index];
+    }
+
+    /**
+     * Get value of the key at given index, the value is null in case the key is missing.
+     * @param index Index of the key.
+     * @param invalidError Error reported in case the value is invalid.
+     * @return Valid value or null.
+     * @throws InvalidPowerAuthHttpHeaderException In case the value is invalid.
+     */
+    String getOptionalValue(int index, String invalidError) throws InvalidPowerAuthHttpHeaderException {
+        if (invalid[index]) {
+            throw new InvalidPowerAuthHttpHeaderException(invalidError);
+        }
+        return values[index];
+    }
+
+}
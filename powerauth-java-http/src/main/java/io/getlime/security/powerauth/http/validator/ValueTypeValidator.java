@@ -16,10 +16,10 @@
  */
 package io.getlime.security.powerauth.http.validator;
 
-import com.google.common.io.BaseEncoding;
-
 import java.util.Arrays;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Utility class to validate various value types, such as UUID, base64 encoded data, etc.
@@ -28,8 +28,71 @@ import java.util.List;
  */
 public class ValueTypeValidator {
 
-    private static final String uuidRegex = "^[0-9a-f]{8}-[0-9a-f]{4}-[1-5][0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}$";
-    private static final String signatureRegex = "^[0-9]{8}(-[0-9]{8}){0,2}$";
+    // Character classes, a character may belong to multiple classes
+    private static final int DIGIT = 1;
+    private static final int HEX = 1 << 1;
+    private static final int BASE64 = 1 << 2;
+    private static final int DASH = 1 << 3;
+    private static final int UUID_VERSION = 1 << 4;
+    private static final int UUID_VARIANT = 1 << 5;
+
+    /**
+     * Lookup table with character classes of ASCII characters.
+     */
+    private static final byte[] CHARACTER_CLASSES = new byte[128];
+
+    /**
+     * Expected character class at each position of UUID in format xxxxxxxx-xxxx-Vxxx-Wxxx-xxxxxxxxxxxx.
+     */
+    private static final byte[] UUID_TEMPLATE = new byte[36];
+
+    private static final Set<String> SIGNATURE_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "possession", "knowledge", "biometry",
+            "possession_knowledge", "possession_biometry",
+            "possession_knowledge_biometry"
+    )));
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            CHARACTER_CLASSES[c] |= DIGIT | HEX | BASE64;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHARACTER_CLASSES[c] |= BASE64;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CHARACTER_CLASSES[c] |= BASE64;
+        }
+        for (char c : "abcdefABCDEF".toCharArray()) {
+            CHARACTER_CLASSES[c] |= HEX;
+        }
+        for (char c : "12345".toCharArray()) {
+            CHARACTER_CLASSES[c] |= UUID_VERSION;
+        }
+        for (char c : "89abAB".toCharArray()) {
+            CHARACTER_CLASSES[c] |= UUID_VARIANT;
+        }
+        CHARACTER_CLASSES['+'] |= BASE64;
+        CHARACTER_CLASSES['/'] |= BASE64;
+        CHARACTER_CLASSES['-'] |= DASH;
+
+        Arrays.fill(UUID_TEMPLATE, (byte) HEX);
+        UUID_TEMPLATE[8] = DASH;
+        UUID_TEMPLATE[13] = DASH;
+        UUID_TEMPLATE[14] = UUID_VERSION;
+        UUID_TEMPLATE[18] = DASH;
+        UUID_TEMPLATE[19] = UUID_VARIANT;
+        UUID_TEMPLATE[23] = DASH;
+    }
+
+    /**
+     * Check whether the character belongs to given character class.
+     * @param c Character.
+     * @param characterClass Character class.
+     * @return True if the character belongs to the character class.
+     */
+    private static boolean isInClass(char c, int characterClass) {
+        return c < 128 && (CHARACTER_CLASSES[c] & characterClass) != 0;
+    }
 
     /**
      * Check if provided string is a valid UUID.
@@ -37,7 +100,7 @@ public class ValueTypeValidator {
      * @return True in case provided string is a valid UUID, false otherwise.
      */
     public static boolean isValidUuid(String uuidCandidate) {
-        return uuidCandidate != null && uuidCandidate.toLowerCase().matches(uuidRegex);
+        return uuidCandidate != null && isValidUuid(uuidCandidate, 0, uuidCandidate.length());
     }
 
     /**
@@ -49,13 +112,7 @@ public class ValueTypeValidator {
      * false otherwise.
      */
     public static boolean isValidBase64OfLength(String base64candidate, int expectedLength) {
-        final BaseEncoding base64 = BaseEncoding.base64();
-        if (base64candidate != null && base64.canDecode(base64candidate)) {
-            byte[] bytes = base64.decode(base64candidate);
-            return bytes.length == expectedLength;
-        } else {
-            return false;
-        }
+        return base64candidate != null && isValidBase64OfLengthRange(base64candidate, 0, base64candidate.length(), expectedLength, expectedLength);
     }
 
     /**
@@ -68,13 +125,7 @@ public class ValueTypeValidator {
      * false otherwise.
      */
     public static boolean isValidBase64OfLengthRange(String base64candidate, int from, int to) {
-        final BaseEncoding base64 = BaseEncoding.base64();
-        if (base64candidate != null && base64.canDecode(base64candidate)) {
-            byte[] bytes = base64.decode(base64candidate);
-            return bytes.length >= from && bytes.length <= to;
-        } else {
-            return false;
-        }
+        return base64candidate != null && isValidBase64OfLengthRange(base64candidate, 0, base64candidate.length(), from, to);
     }
 
     /**
@@ -83,12 +134,7 @@ public class ValueTypeValidator {
      * @return True if the provided signature type is valid.
      */
     public static boolean isValidSignatureType(String signatureType) {
-        List<String> expectedSignatureTypes = Arrays.asList(
-                "possession", "knowledge", "biometry",
-                "possession_knowledge", "possession_biometry",
-                "possession_knowledge_biometry"
-        );
-        return signatureType != null && expectedSignatureTypes.contains(signatureType.toLowerCase());
+        return signatureType != null && SIGNATURE_TYPES.contains(signatureType.toLowerCase());
     }
 
     /**
@@ -97,26 +143,7 @@ public class ValueTypeValidator {
      * @return True if signature candidate has correct format, false otherwise.
      */
     public static boolean isValidSignatureValue(String signature) {
-        if (signature != null) {
-            switch (signature.length()) {
-                case 8:
-                case 17:
-                case 26:
-                    // "2.0", "2.1", "3.0" signature version uses "DECIMAL" format
-                    return signature.matches(signatureRegex);
-                case 24:
-                case 44:
-                case 64:
-                    // "3.1" and later signatures uses "BASE64" format.
-                    // We don't need to validate an exact number of encoded bytes. This is due to fact,
-                    // that if input string length can only be 24, 44 or 64, then the encoded output length
-                    // must be 16, 32 or 48.
-                    return isValidBase64OfLengthRange(signature, 16, 48);
-                default:
-                    break;
-            }
-        }
-        return false;
+        return signature != null && isValidSignatureValue(signature, 0, signature.length());
     }
 
     /**
@@ -127,11 +154,116 @@ public class ValueTypeValidator {
      * @return True if provided string is decimal and has expected length range.
      */
     public static boolean isDecimalString(String decimalString, int from, int to) {
-        if (decimalString != null && decimalString.matches("^[0-9]*$")) {
-            return decimalString.length() >= from && decimalString.length() <= to;
-        } else {
+        return decimalString != null && isDecimalString(decimalString, 0, decimalString.length(), from, to);
+    }
+
+    // Validation of values in place, used while tokenizing HTTP headers
+
+    /**
+     * Check if the provided part of a string is a valid UUID, see {@link #isValidUuid(String)}.
+     * @param value String containing the UUID candidate.
+     * @param start Start index of the candidate, inclusive.
+     * @param end End index of the candidate, exclusive.
+     * @return True in case the candidate is a valid UUID, false otherwise.
+     */
+    static boolean isValidUuid(String value, int start, int end) {
+        if (end - start != UUID_TEMPLATE.length) {
             return false;
         }
+        for (int i = 0; i < UUID_TEMPLATE.length; i++) {
+            if (!isInClass(value.charAt(start + i), UUID_TEMPLATE[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if the provided part of a string is Base64 encoded data with decoded length in range from-to,
+     * see {@link #isValidBase64OfLengthRange(String, int, int)}. Trailing padding is ignored in the same
+     * way as in the Base64 decoder. The decoded length is computed from the length of the data, the data
+     * is not decoded.
+     * @param value String containing the Base64 candidate.
+     * @param start Start index of the candidate, inclusive.
+     * @param end End index of the candidate, exclusive.
+     * @param from Expected minimal length od decoded bytes.
+     * @param to Expected maximal length od decoded bytes.
+     * @return True in case the candidate is Base64 encoded data of expected byte length, false otherwise.
+     */
+    static boolean isValidBase64OfLengthRange(String value, int start, int end, int from, int to) {
+        while (end > start && value.charAt(end - 1) == '=') {
+            end--;
+        }
+        final int length = end - start;
+        final int remainder = length % 4;
+        if (remainder == 1) {
+            return false;
+        }
+        final int decodedLength = length / 4 * 3 + (remainder == 0 ? 0 : remainder - 1);
+        if (decodedLength < from || decodedLength > to) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (!isInClass(value.charAt(i), BASE64)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if the provided part of a string is a signature of a correct format, see {@link #isValidSignatureValue(String)}.
+     * @param value String containing the signature candidate.
+     * @param start Start index of the candidate, inclusive.
+     * @param end End index of the candidate, exclusive.
+     * @return True if signature candidate has correct format, false otherwise.
+     */
+    static boolean isValidSignatureValue(String value, int start, int end) {
+        final int length = end - start;
+        switch (length) {
+            case 8:
+            case 17:
+            case 26:
+                // "2.0", "2.1", "3.0" signature version uses "DECIMAL" format, components are separated by '-'
+                for (int i = 0; i < length; i++) {
+                    if (!isInClass(value.charAt(start + i), i % 9 == 8 ? DASH : DIGIT)) {
+                        return false;
+                    }
+                }
+                return true;
+            case 24:
+            case 44:
+            case 64:
+                // "3.1" and later signatures uses "BASE64" format.
+                // We don't need to validate an exact number of encoded bytes. This is due to fact,
+                // that if input string length can only be 24, 44 or 64, then the encoded output length
+                // must be 16, 32 or 48.
+                return isValidBase64OfLengthRange(value, start, end, 16, 48);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check if the provided part of a string is a decimal string of provided length range,
+     * see {@link #isDecimalString(String, int, int)}.
+     * @param value String containing the decimal string candidate.
+     * @param start Start index of the candidate, inclusive.
+     * @param end End index of the candidate, exclusive.
+     * @param from Minimal length.
+     * @param to Maximal length.
+     * @return True if the candidate is decimal and has expected length range.
+     */
+    static boolean isDecimalString(String value, int start, int end, int from, int to) {
+        if (end - start < from || end - start > to) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (!isInClass(value.charAt(i), DIGIT)) {
+                return false;
+            }
+        }
+        return true;
     }
 
 }
@@ -17,11 +17,29 @@
 package io.getlime.security.powerauth.http;
 
 import com.google.common.io.BaseEncoding;
+import io.getlime.security.powerauth.crypto.client.signature.PowerAuthClientSignature;
+import io.getlime.security.powerauth.crypto.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.crypto.lib.enums.PowerAuthSignatureFormat;
+import io.getlime.security.powerauth.crypto.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.crypto.server.signature.PowerAuthServerSignature;
+import io.getlime.security.powerauth.provider.CryptoProviderUtilFactory;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.junit.Test;
 
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for HTTP body normalization routine.
@@ -121,4 +139,80 @@ public class PowerAuthHttpBodyTest {
         assertEquals(signatureBaseString, "POST&L3BhL2xvZ2lu&AAAAAAAAAAAAAAAAAAAAAA==&");
 
     }
-}
\ No newline at end of file
+
+    private static Mac initMac(byte[] key) throws Exception {
+        final Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac;
+    }
+
+    @Test
+    public void testSignatureBaseStringMac() throws Exception {
+        final Random random = new Random(42);
+        final byte[] key1 = new byte[16];
+        final byte[] key2 = new byte[16];
+        random.nextBytes(key1);
+        random.nextBytes(key2);
+        final byte[] nonce = new byte[16];
+        random.nextBytes(nonce);
+        final int[] bodyLengths = {0, 1, 2, 3, 4, 5, 3071, 3072, 3073, 3074, 6144, 100_000};
+        final String[][] requests = {{"POST", "/pa/signature/validate"}, {"get", null}, {null, "/pa/ünicode"}};
+        for (String[] request : requests) {
+            for (int bodyLength : bodyLengths) {
+                final byte[] body = new byte[bodyLength];
+                random.nextBytes(body);
+                final byte[] expectedBytes = PowerAuthHttpBody.getSignatureBaseString(request[0], request[1], nonce, body).getBytes(StandardCharsets.UTF_8);
+                final byte[] expected1 = initMac(key1).doFinal(expectedBytes);
+                final byte[] expected2 = initMac(key2).doFinal(expectedBytes);
+
+                final Mac mac1 = initMac(key1);
+                final Mac mac2 = initMac(key2);
+                PowerAuthHttpBody.updateSignatureBaseString(request[0], request[1], nonce, body, mac1, mac2);
+                assertArrayEquals(expected1, mac1.doFinal());
+                assertArrayEquals(expected2, mac2.doFinal());
+
+                // Stream which returns data in short reads
+                final ByteArrayInputStream stream = new ByteArrayInputStream(body) {
+                    @Override
+                    public synchronized int read(byte[] b, int off, int len) {
+                        return super.read(b, off, Math.min(len, 1000));
+                    }
+                };
+                PowerAuthHttpBody.updateSignatureBaseString(request[0], request[1], nonce, stream, mac1);
+                assertArrayEquals(expected1, mac1.doFinal());
+            }
+        }
+
+        final byte[] expected = initMac(key1).doFinal(PowerAuthHttpBody.getSignatureBaseString("POST", "/pa/login", null, null).getBytes(StandardCharsets.UTF_8));
+        final Mac mac = initMac(key1);
+        PowerAuthHttpBody.updateSignatureBaseString("POST", "/pa/login", null, (byte[]) null, mac);
+        assertArrayEquals(expected, mac.doFinal());
+    }
+
+    @Test
+    public void testStreamedSignatureBaseStringSignature() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+        final KeyGenerator keyGenerator = new KeyGenerator();
+        final PowerAuthClientSignature clientSignature = new PowerAuthClientSignature();
+        final PowerAuthServerSignature serverSignature = new PowerAuthServerSignature();
+        final List<SecretKey> signatureKeys = Arrays.asList(keyGenerator.generateRandomSecretKey(), keyGenerator.generateRandomSecretKey(), keyGenerator.generateRandomSecretKey());
+        final byte[] nonce = keyGenerator.generateRandomBytes(16);
+        for (int bodyLength : new int[] {0, 1, 3072, 100_000}) {
+            final byte[] body = keyGenerator.generateRandomBytes(bodyLength);
+            final byte[] ctrData = keyGenerator.generateRandomBytes(16);
+            final byte[] signatureBaseString = PowerAuthHttpBody.getSignatureBaseString("POST", "/pa/signature/validate", nonce, body).getBytes(StandardCharsets.UTF_8);
+            for (int factorCount = 1; factorCount <= signatureKeys.size(); factorCount++) {
+                final List<SecretKey> keys = signatureKeys.subList(0, factorCount);
+                for (PowerAuthSignatureFormat format : PowerAuthSignatureFormat.values()) {
+                    final String expected = clientSignature.signatureForData(signatureBaseString, keys, ctrData, format);
+                    final String signature = clientSignature.signatureForData(macs -> PowerAuthHttpBody.updateSignatureBaseString("POST", "/pa/signature/validate", nonce, new ByteArrayInputStream(body), macs), keys, ctrData, format);
+                    assertEquals(expected, signature);
+                    assertTrue(serverSignature.verifySignatureForData(macs -> PowerAuthHttpBody.updateSignatureBaseString("POST", "/pa/signature/validate", nonce, new ByteArrayInputStream(body), macs), expected, keys, ctrData, format));
+                    assertFalse(serverSignature.verifySignatureForData(macs -> PowerAuthHttpBody.updateSignatureBaseString("POST", "/pa/signature/other", nonce, new ByteArrayInputStream(body), macs), expected, keys, ctrData, format));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.http;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for parsing of PowerAuth HTTP headers.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class PowerAuthHttpHeaderTest {
+
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("(\\w+)=\"*((?<=\")[^\"]+(?=\")|([^\\s]+)),*\"*");
+
+    private static final String[] FRAGMENTS = {
+            "PowerAuth ", "PowerAuth", "pa_version", "version", "nonce", "=", "=\"", "\"", "\"\"", ",", ", ", " ",
+            "\t", "\n", "\u000B", "\u0001", "a", "Z", "0", "_", "-", "+", "/", "é", " "
+    };
+
+    /**
+     * Original regular expression based implementation of the header parser, used as a reference.
+     */
+    private static Map<String, String> parseWithRegex(String header) {
+        if (header == null) {
+            return new HashMap<>();
+        }
+        header = header.trim();
+        if (!header.startsWith("PowerAuth ")) {
+            return new HashMap<>();
+        }
+        header = header.substring("PowerAuth ".length()).trim();
+        final Map<String, String> result = new HashMap<>();
+        final Matcher m = REFERENCE_PATTERN.matcher(header);
+        while (m.find()) {
+            result.put(m.group(1), m.group(2));
+        }
+        return result;
+    }
+
+    @Test
+    public void testSignatureHeader() {
+        final PowerAuthSignatureHttpHeader original = new PowerAuthSignatureHttpHeader("activation", "application", "12345678-12345678", "possession_knowledge", "bm9uY2U=", "3.1");
+        final PowerAuthSignatureHttpHeader parsed = new PowerAuthSignatureHttpHeader().fromValue(original.buildHttpHeader());
+        assertEquals("activation", parsed.getActivationId());
+        assertEquals("application", parsed.getApplicationKey());
+        assertEquals("12345678-12345678", parsed.getSignature());
+        assertEquals("possession_knowledge", parsed.getSignatureType());
+        assertEquals("bm9uY2U=", parsed.getNonce());
+        assertEquals("3.1", parsed.getVersion());
+    }
+
+    @Test
+    public void testTokenHeader() {
+        final PowerAuthTokenHttpHeader parsed = new PowerAuthTokenHttpHeader().fromValue(
+                "  PowerAuth token_id=\"token\", token_digest=\"ZGlnZXN0\", nonce=\"bm9uY2U=\", timestamp=\"1234\", version=\"3.1\", unknown=\"x\"");
+        assertEquals("token", parsed.getTokenId());
+        assertEquals("ZGlnZXN0", parsed.getTokenDigest());
+        assertEquals("bm9uY2U=", parsed.getNonce());
+        assertEquals("1234", parsed.getTimestamp());
+        assertEquals("3.1", parsed.getVersion());
+    }
+
+    @Test
+    public void testEncryptionHeader() {
+        final PowerAuthEncryptionHttpHeader parsed = new PowerAuthEncryptionHttpHeader().fromValue("PowerAuth version=\"3.0\", application_key=app, version=\"3.1\"");
+        // Unquoted values run until whitespace, including the separating comma
+        assertEquals("app,", parsed.getApplicationKey());
+        assertNull(parsed.getActivationId());
+        assertEquals("3.1", parsed.getVersion());
+    }
+
+    @Test
+    public void testInvalidHeaders() {
+        final PowerAuthEncryptionHttpHeader header = new PowerAuthEncryptionHttpHeader();
+        assertEquals(new HashMap<>(), header.parseHttpHeader(null));
+        assertEquals(new HashMap<>(), header.parseHttpHeader(""));
+        assertEquals(new HashMap<>(), header.parseHttpHeader("PowerAuth"));
+        assertEquals(new HashMap<>(), header.parseHttpHeader("Basic version=\"3.1\""));
+        assertNull(header.fromValue("Basic version=\"3.1\"").getVersion());
+    }
+
+    @Test
+    public void testParserMatchesRegex() {
+        final String[] samples = {
+                "PowerAuth a=\"", "PowerAuth a=\"\" ,b=1", "PowerAuth a=\"xyz", "PowerAuth a=\"\"b\"", "PowerAuth a=b,c=d",
+                "PowerAuth a= b=\"c\"", "PowerAuth a=\"x\"bc=1", "PowerAuth a-b=c", "PowerAuth a=\" x\"", "PowerAuth ab=\"\"\" ",
+                "PowerAuth version=\"3.1\",,nonce=\"a\"\"", "PowerAuth = =a ==\"b\""
+        };
+        final PowerAuthEncryptionHttpHeader header = new PowerAuthEncryptionHttpHeader();
+        for (String sample : samples) {
+            assertEquals(sample, parseWithRegex(sample), header.parseHttpHeader(sample));
+        }
+    }
+
+    @Test
+    public void testParserMatchesRegexFuzz() {
+        final Random random = new Random(42);
+        final PowerAuthTokenHttpHeader header = new PowerAuthTokenHttpHeader();
+        for (int i = 0; i < 100_000; i++) {
+            final StringBuilder sb = new StringBuilder();
+            if (random.nextInt(8) != 0) {
+                sb.append("PowerAuth ");
+            }
+            final int count = random.nextInt(24);
+            for (int j = 0; j < count; j++) {
+                sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            final String value = sb.toString();
+            final Map<String, String> expected = parseWithRegex(value);
+            assertEquals(value, expected, header.parseHttpHeader(value));
+            header.fromValue(value);
+            assertEquals(value, expected.get("nonce"), header.getNonce());
+            assertEquals(value, expected.get("version"), header.getVersion());
+        }
+    }
+
+}
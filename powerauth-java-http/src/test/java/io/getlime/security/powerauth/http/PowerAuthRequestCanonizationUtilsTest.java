@@ -0,0 +1,110 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.http;
+
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for canonization of GET request query strings.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class PowerAuthRequestCanonizationUtilsTest {
+
+    private static final String[] FRAGMENTS = {
+            "a", "b", "key", "B", "0", "=", "=", "&", "&", "%20", "%41", "%", "%4", "%zz", "%+1", "%-1", "+", " ",
+            "é", "%C3%A9", "%FF", "~", ".", "*", "_", "-", "/", "\uD800", "😀"
+    };
+
+    /**
+     * Original implementation of the canonization, used as a reference.
+     */
+    private static String canonizeReference(String queryString) throws UnsupportedEncodingException {
+        if (queryString == null) {
+            return "";
+        }
+        final List<String[]> items = new ArrayList<>();
+        for (String keyValue : queryString.split("&")) {
+            final String[] tmp = keyValue.split("=", 2);
+            if (tmp.length != 2) {
+                continue;
+            }
+            items.add(new String[]{
+                    URLDecoder.decode(tmp[0], StandardCharsets.UTF_8.name()),
+                    URLDecoder.decode(tmp[1], StandardCharsets.UTF_8.name())
+            });
+        }
+        items.sort((left, right) -> left[0].equals(right[0]) ? left[1].compareTo(right[1]) : left[0].compareTo(right[0]));
+        final StringBuilder result = new StringBuilder();
+        for (String[] item : items) {
+            if (result.length() > 0) {
+                result.append("&");
+            }
+            result.append(URLEncoder.encode(item[0], StandardCharsets.UTF_8.name()));
+            result.append("=");
+            result.append(URLEncoder.encode(item[1], StandardCharsets.UTF_8.name()));
+        }
+        return result.length() > 0 ? result.toString() : null;
+    }
+
+    private static String canonize(ThrowingSupplier supplier) {
+        try {
+            return supplier.get();
+        } catch (Exception ex) {
+            return ex.getClass().getName() + ": " + ex.getMessage();
+        }
+    }
+
+    private interface ThrowingSupplier {
+        String get() throws Exception;
+    }
+
+    @Test
+    public void testCanonizeGetParameters() {
+        assertEquals("", PowerAuthRequestCanonizationUtils.canonizeGetParameters(null));
+        assertNull(PowerAuthRequestCanonizationUtils.canonizeGetParameters(""));
+        assertNull(PowerAuthRequestCanonizationUtils.canonizeGetParameters("a&b"));
+        assertEquals("a=1&a=2&b=&c=x%3Dy", PowerAuthRequestCanonizationUtils.canonizeGetParameters("c=x=y&a=2&b=&a=1"));
+        assertEquals("key=hello+world&%C3%A9=%2F", PowerAuthRequestCanonizationUtils.canonizeGetParameters("%C3%A9=/&key=hello%20world"));
+    }
+
+    @Test
+    public void testCanonizeGetParametersMatchesReference() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int count = random.nextInt(40);
+            for (int j = 0; j < count; j++) {
+                sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            final String query = sb.toString();
+            assertEquals(query, canonize(() -> canonizeReference(query)), canonize(() -> PowerAuthRequestCanonizationUtils.canonizeGetParameters(query)));
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.http.validator;
+
+import io.getlime.security.powerauth.http.PowerAuthEncryptionHttpHeader;
+import io.getlime.security.powerauth.http.PowerAuthSignatureHttpHeader;
+import io.getlime.security.powerauth.http.PowerAuthTokenHttpHeader;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for validation of PowerAuth HTTP headers, compares the fused parse and validate methods
+ * with parsing followed by validation.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class PowerAuthHttpHeaderValidatorTest {
+
+    private static final String[] KEYS = {
+            "pa_activation_id", "pa_application_key", "pa_signature", "pa_signature_type", "pa_nonce", "pa_version",
+            "token_id", "token_digest", "nonce", "timestamp", "version", "application_key", "activation_id", "unknown"
+    };
+
+    private static final String[] VALUES = {
+            "d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a", "D5D7D5E2-C6D1-4B3C-9E8E-0B5A2B0C1F3A", "d5d7d5e2-c6d1-6b3c-9e8e-0b5a2b0c1f3a",
+            "d5d7d5e2-c6d1-4b3c-ce8e-0b5a2b0c1f3a", "d5d7d5e2c6d1-4b3c-9e8e-0b5a2b0c1f3a-", "d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3g",
+            "bm9uY2Ugbm9uY2Ugbm9uYw==", "bm9uY2Ugbm9uY2Ugbm9uYw", "bm9uY2Ugbm9uY2Ugbm9uYw=====", "bm9uY2Ugbm9uY2Ugbm9uY",
+            "bm9uY2Ugbm9uY2Ugbm9u!w==", "ZGlnZXN0IGRpZ2VzdCBkaWdlc3QgZGlnZXN0IGRpZ2U=", "ZGlnZXN0IGRpZ2VzdCBkaWdlc3QgZGlnZXN0IGRpZ2U",
+            "12345678", "12345678-12345678", "12345678-12345678-12345678", "12345678-1234567a", "1234567812345678",
+            "A=======================", "bm9uY2Ugbm9uY2Ugbm9uYw==bm9uY2Ugbm9uY2Ugbm9uYw==bm9uY2Ugbm9uY2U=",
+            "possession", "POSSESSION_knowledge", "possession_knowledge_biometry", "biometry_possession",
+            "1583332460123", "158333246", "15833324601234567", "15833324a", "3.1", "", "\""
+    };
+
+    private static final String[] SEPARATORS = {", ", ",", " ", "\", ", ""};
+
+    private static final String[] VALID_HEADERS = {
+            "PowerAuth pa_activation_id=\"d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a\", pa_application_key=\"bm9uY2Ugbm9uY2Ugbm9uYw==\", "
+                    + "pa_nonce=\"bm9uY2Ugbm9uY2Ugbm9uYw==\", pa_signature_type=\"possession\", pa_signature=\"12345678\", pa_version=\"3.0\", ",
+            "PowerAuth token_id=\"d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a\", token_digest=\"ZGlnZXN0IGRpZ2VzdCBkaWdlc3QgZGlnZXN0IGRpZ2U=\", "
+                    + "nonce=\"bm9uY2Ugbm9uY2Ugbm9uYw==\", timestamp=\"1583332460123\", version=\"3.1\", ",
+            "PowerAuth application_key=\"bm9uY2Ugbm9uY2Ugbm9uYw==\", version=\"3.1\", "
+    };
+
+    private String randomHeader(Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int count;
+        if (random.nextInt(4) == 0) {
+            // Valid header with a few random fields
+            sb.append(VALID_HEADERS[random.nextInt(VALID_HEADERS.length)]);
+            count = random.nextInt(3);
+        } else {
+            if (random.nextInt(16) != 0) {
+                sb.append("PowerAuth ");
+            }
+            count = random.nextInt(10);
+        }
+        for (int i = 0; i < count; i++) {
+            sb.append(KEYS[random.nextInt(KEYS.length)]).append('=');
+            final boolean quoted = random.nextBoolean();
+            if (quoted) {
+                sb.append('"');
+            }
+            sb.append(VALUES[random.nextInt(VALUES.length)]);
+            if (quoted) {
+                sb.append('"');
+            }
+            sb.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String error(ThrowingRunnable runnable) {
+        try {
+            runnable.run();
+            return null;
+        } catch (InvalidPowerAuthHttpHeaderException ex) {
+            return ex.getMessage();
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws InvalidPowerAuthHttpHeaderException;
+    }
+
+    @Test
+    public void testValidHeaders() throws InvalidPowerAuthHttpHeaderException {
+        final PowerAuthSignatureHttpHeader signatureHeader = PowerAuthSignatureHttpHeaderValidator.parseAndValidate(
+                new PowerAuthSignatureHttpHeader("d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a", "aGVsbG8gd29ybGQgYXBwIQ==",
+                        "12345678-12345678", "possession_knowledge", "bm9uY2Ugbm9uY2Ugbm9uYw==", "3.1").buildHttpHeader());
+        assertEquals("d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a", signatureHeader.getActivationId());
+        assertEquals("aGVsbG8gd29ybGQgYXBwIQ==", signatureHeader.getApplicationKey());
+        assertEquals("12345678-12345678", signatureHeader.getSignature());
+        assertEquals("possession_knowledge", signatureHeader.getSignatureType());
+        assertEquals("bm9uY2Ugbm9uY2Ugbm9uYw==", signatureHeader.getNonce());
+        assertEquals("3.1", signatureHeader.getVersion());
+
+        final PowerAuthTokenHttpHeader tokenHeader = PowerAuthTokenHttpHeaderValidator.parseAndValidate(
+                new PowerAuthTokenHttpHeader("d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a", "ZGlnZXN0IGRpZ2VzdCBkaWdlc3QgZGlnZXN0IGRpZ2U=",
+                        "bm9uY2Ugbm9uY2Ugbm9uYw==", "1583332460123", "3.1").buildHttpHeader());
+        assertEquals("d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a", tokenHeader.getTokenId());
+        assertEquals("1583332460123", tokenHeader.getTimestamp());
+
+        final PowerAuthEncryptionHttpHeader encryptionHeader = PowerAuthEncryptionHttpHeaderValidator.parseAndValidate(
+                new PowerAuthEncryptionHttpHeader("aGVsbG8gd29ybGQgYXBwIQ==", "3.1").buildHttpHeader());
+        assertEquals("aGVsbG8gd29ybGQgYXBwIQ==", encryptionHeader.getApplicationKey());
+        assertEquals("3.1", encryptionHeader.getVersion());
+    }
+
+    @Test
+    public void testInvalidHeaders() {
+        assertEquals("POWER_AUTH_ACTIVATION_ID_EMPTY", error(() -> PowerAuthSignatureHttpHeaderValidator.parseAndValidate(null)));
+        assertEquals("POWER_AUTH_ACTIVATION_ID_INVALID", error(() -> PowerAuthSignatureHttpHeaderValidator.parseAndValidate("PowerAuth pa_activation_id=\"x\"")));
+        assertEquals("POWER_AUTH_TOKEN_DIGEST_INVALID", error(() -> PowerAuthTokenHttpHeaderValidator.parseAndValidate(
+                "PowerAuth token_id=\"d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a\", token_digest=\"bm9uY2Ugbm9uY2Ugbm9uYw==\"")));
+        assertEquals("POWER_AUTH_ENCRYPTION_VERSION_EMPTY", error(() -> PowerAuthEncryptionHttpHeaderValidator.parseAndValidate(
+                "PowerAuth application_key=\"aGVsbG8gd29ybGQgYXBwIQ==\"")));
+    }
+
+    @Test
+    public void testParseAndValidateMatchesValidate() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            final String value = randomHeader(random);
+
+            final PowerAuthSignatureHttpHeader signatureHeader = new PowerAuthSignatureHttpHeader().fromValue(value);
+            final String signatureError = error(() -> PowerAuthSignatureHttpHeaderValidator.validate(signatureHeader));
+            try {
+                final PowerAuthSignatureHttpHeader fused = PowerAuthSignatureHttpHeaderValidator.parseAndValidate(value);
+                assertEquals(value, null, signatureError);
+                assertEquals(value, Arrays.asList(signatureHeader.getActivationId(), signatureHeader.getApplicationKey(), signatureHeader.getSignature(),
+                        signatureHeader.getSignatureType(), signatureHeader.getNonce(), signatureHeader.getVersion()),
+                        Arrays.asList(fused.getActivationId(), fused.getApplicationKey(), fused.getSignature(),
+                        fused.getSignatureType(), fused.getNonce(), fused.getVersion()));
+            } catch (InvalidPowerAuthHttpHeaderException ex) {
+                assertEquals(value, signatureError, ex.getMessage());
+            }
+
+            final PowerAuthTokenHttpHeader tokenHeader = new PowerAuthTokenHttpHeader().fromValue(value);
+            final String tokenError = error(() -> PowerAuthTokenHttpHeaderValidator.validate(tokenHeader));
+            try {
+                final PowerAuthTokenHttpHeader fused = PowerAuthTokenHttpHeaderValidator.parseAndValidate(value);
+                assertEquals(value, null, tokenError);
+                assertEquals(value, Arrays.asList(tokenHeader.getTokenId(), tokenHeader.getTokenDigest(), tokenHeader.getNonce(),
+                        tokenHeader.getTimestamp(), tokenHeader.getVersion()),
+                        Arrays.asList(fused.getTokenId(), fused.getTokenDigest(), fused.getNonce(), fused.getTimestamp(), fused.getVersion()));
+            } catch (InvalidPowerAuthHttpHeaderException ex) {
+                assertEquals(value, tokenError, ex.getMessage());
+            }
+
+            final PowerAuthEncryptionHttpHeader encryptionHeader = new PowerAuthEncryptionHttpHeader().fromValue(value);
+            final String encryptionError = error(() -> PowerAuthEncryptionHttpHeaderValidator.validate(encryptionHeader));
+            try {
+                final PowerAuthEncryptionHttpHeader fused = PowerAuthEncryptionHttpHeaderValidator.parseAndValidate(value);
+                assertEquals(value, null, encryptionError);
+                assertEquals(value, Arrays.asList(encryptionHeader.getApplicationKey(), encryptionHeader.getActivationId(), encryptionHeader.getVersion()),
+                        Arrays.asList(fused.getApplicationKey(), fused.getActivationId(), fused.getVersion()));
+            } catch (InvalidPowerAuthHttpHeaderException ex) {
+                assertEquals(value, encryptionError, ex.getMessage());
+            }
+        }
+    }
+
+}
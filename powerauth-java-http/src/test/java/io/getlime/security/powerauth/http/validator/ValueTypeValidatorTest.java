@@ -0,0 +1,142 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.http.validator;
+
+import com.google.common.io.BaseEncoding;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ValueTypeValidator}, compares the validators with the original regular expression
+ * and Base64 decoding based implementations.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class ValueTypeValidatorTest {
+
+    // Original implementations, used as a reference
+
+    private static boolean isValidUuidReference(String value) {
+        return value.toLowerCase().matches("^[0-9a-f]{8}-[0-9a-f]{4}-[1-5][0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}$");
+    }
+
+    private static boolean isValidBase64OfLengthRangeReference(String value, int from, int to) {
+        final BaseEncoding base64 = BaseEncoding.base64();
+        if (base64.canDecode(value)) {
+            final byte[] bytes = base64.decode(value);
+            return bytes.length >= from && bytes.length <= to;
+        }
+        return false;
+    }
+
+    private static boolean isValidSignatureValueReference(String value) {
+        switch (value.length()) {
+            case 8:
+            case 17:
+            case 26:
+                return value.matches("^[0-9]{8}(-[0-9]{8}){0,2}$");
+            case 24:
+            case 44:
+            case 64:
+                return isValidBase64OfLengthRangeReference(value, 16, 48);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isDecimalStringReference(String value, int from, int to) {
+        return value.matches("^[0-9]*$") && value.length() >= from && value.length() <= to;
+    }
+
+    @Test
+    public void testValidValues() {
+        assertTrue(ValueTypeValidator.isValidUuid("d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a"));
+        assertTrue(ValueTypeValidator.isValidUuid("D5D7D5E2-C6D1-1B3C-BE8E-0B5A2B0C1F3A"));
+        assertTrue(ValueTypeValidator.isValidBase64OfLength("bm9uY2Ugbm9uY2Ugbm9uYw==", 16));
+        assertTrue(ValueTypeValidator.isValidBase64OfLength("bm9uY2Ugbm9uY2Ugbm9uYw", 16));
+        assertTrue(ValueTypeValidator.isValidBase64OfLength("", 0));
+        assertTrue(ValueTypeValidator.isValidSignatureValue("12345678-12345678-12345678"));
+        assertTrue(ValueTypeValidator.isValidSignatureValue("ZGlnZXN0IGRpZ2VzdCBkaWdlc3QgZGlnZXN0IGRpZ2U="));
+        assertTrue(ValueTypeValidator.isValidSignatureType("Possession_Knowledge"));
+        assertTrue(ValueTypeValidator.isDecimalString("1583332460123", 9, 15));
+    }
+
+    @Test
+    public void testInvalidValues() {
+        assertFalse(ValueTypeValidator.isValidUuid(null));
+        assertFalse(ValueTypeValidator.isValidUuid("d5d7d5e2-c6d1-6b3c-9e8e-0b5a2b0c1f3a"));
+        assertFalse(ValueTypeValidator.isValidUuid("d5d7d5e2-c6d1-4b3c-ce8e-0b5a2b0c1f3a"));
+        assertFalse(ValueTypeValidator.isValidBase64OfLength(null, 16));
+        assertFalse(ValueTypeValidator.isValidBase64OfLength("bm9uY2Ugbm9uY2Ugbm9uY", 16));
+        assertFalse(ValueTypeValidator.isValidBase64OfLength("bm9uY2Ugbm9u=2Ugbm9uYw==", 16));
+        assertFalse(ValueTypeValidator.isValidSignatureValue(null));
+        assertFalse(ValueTypeValidator.isValidSignatureValue("12345678_12345678"));
+        assertFalse(ValueTypeValidator.isValidSignatureValue("A======================="));
+        assertFalse(ValueTypeValidator.isValidSignatureType(null));
+        assertFalse(ValueTypeValidator.isValidSignatureType("biometry_possession"));
+        assertFalse(ValueTypeValidator.isDecimalString(null, 0, 15));
+        assertFalse(ValueTypeValidator.isDecimalString("15833324a", 9, 15));
+    }
+
+    @Test
+    public void testValidatorsMatchReference() {
+        final Random random = new Random(42);
+        final char[] alphabet = "0123456789abcdefABCDEF-+/=xyzXYZ_ !éKİ".toCharArray();
+        final String uuid = "d5d7d5e2-c6d1-4b3c-9e8e-0b5a2b0c1f3a";
+        final String signature = "12345678-12345678-12345678";
+        for (int i = 0; i < 200_000; i++) {
+            final char[] chars;
+            switch (random.nextInt(4)) {
+                case 0:
+                    // Mutated UUID
+                    chars = uuid.toCharArray();
+                    chars[random.nextInt(chars.length)] = alphabet[random.nextInt(alphabet.length)];
+                    break;
+                case 1:
+                    // Mutated decimal signature
+                    chars = signature.substring(0, 9 * random.nextInt(3) + 8).toCharArray();
+                    chars[random.nextInt(chars.length)] = alphabet[random.nextInt(alphabet.length)];
+                    break;
+                default:
+                    chars = new char[random.nextInt(70)];
+                    for (int j = 0; j < chars.length; j++) {
+                        chars[j] = alphabet[random.nextInt(alphabet.length)];
+                    }
+            }
+            final String candidate = new String(chars);
+            final String value = "x=" + candidate + ";";
+            final int start = 2;
+            final int end = value.length() - 1;
+
+            assertEquals(candidate, isValidUuidReference(candidate), ValueTypeValidator.isValidUuid(candidate));
+            assertEquals(candidate, isValidUuidReference(candidate), ValueTypeValidator.isValidUuid(value, start, end));
+            assertEquals(candidate, isValidBase64OfLengthRangeReference(candidate, 16, 16), ValueTypeValidator.isValidBase64OfLength(candidate, 16));
+            assertEquals(candidate, isValidBase64OfLengthRangeReference(candidate, 1, 32), ValueTypeValidator.isValidBase64OfLengthRange(candidate, 1, 32));
+            assertEquals(candidate, isValidBase64OfLengthRangeReference(candidate, 1, 32), ValueTypeValidator.isValidBase64OfLengthRange(value, start, end, 1, 32));
+            assertEquals(candidate, isValidSignatureValueReference(candidate), ValueTypeValidator.isValidSignatureValue(candidate));
+            assertEquals(candidate, isValidSignatureValueReference(candidate), ValueTypeValidator.isValidSignatureValue(value, start, end));
+            assertEquals(candidate, isDecimalStringReference(candidate, 0, 15), ValueTypeValidator.isDecimalString(candidate, 0, 15));
+            assertEquals(candidate, isDecimalStringReference(candidate, 0, 15), ValueTypeValidator.isDecimalString(value, start, end, 0, 15));
+        }
+    }
+
+}
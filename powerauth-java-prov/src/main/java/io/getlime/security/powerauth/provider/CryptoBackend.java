@@ -0,0 +1,72 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.provider;
+
+/**
+ * Service provider interface of a crypto backend. A crypto backend maps families of cryptographic primitives
+ * to a crypto provider which implements them. Backends are discovered using {@link java.util.ServiceLoader},
+ * additional backends can be registered in {@code META-INF/services/io.getlime.security.powerauth.provider.CryptoBackend}.
+ * <p>
+ * Implementations must not require the crypto provider classes to be present on the class path until
+ * the backend is used, so that the backends can be listed even when the provider is not installed.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public interface CryptoBackend {
+
+    /**
+     * Get unique name of the backend, for example "BC" for Bouncy Castle.
+     *
+     * @return Name of the backend.
+     */
+    String getName();
+
+    /**
+     * Get whether the crypto providers used by the backend are installed.
+     *
+     * @return True if the backend can be used.
+     */
+    boolean isAvailable();
+
+    /**
+     * Get name of the crypto provider which implements given family of primitives.
+     *
+     * @param primitive Family of cryptographic primitives.
+     * @return Name of the crypto provider, or null in case the backend does not support the family.
+     */
+    String getProviderName(CryptoPrimitiveFamily primitive);
+
+    /**
+     * Get cipher transformation supported by the provider of {@link CryptoPrimitiveFamily#AES} primitives, which is
+     * equivalent to given transformation. By default, the transformation is used unchanged.
+     *
+     * @param transformation Cipher transformation, for example "AES/CBC/PKCS7Padding".
+     * @return Equivalent cipher transformation supported by the provider.
+     */
+    default String getCipherTransformation(String transformation) {
+        return transformation;
+    }
+
+    /**
+     * Get crypto provider utilities used for conversion of keys, which are created by the provider
+     * of {@link CryptoPrimitiveFamily#EC} primitives.
+     *
+     * @return Crypto provider utilities, or null in case the backend does not support EC primitives.
+     */
+    CryptoProviderUtil getCryptoProviderUtil();
+
+}
@@ -0,0 +1,69 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.provider;
+
+import java.security.Security;
+
+/**
+ * Crypto backend which uses the providers bundled with the JDK, which use hardware accelerated intrinsics
+ * for AES, HMAC and SHA-256 on supported platforms. EC primitives are not supported, because the EC key conversion
+ * is implemented using Bouncy Castle, or Spongy Castle key classes.
+ * <p>
+ * SunJCE does not support the PKCS7Padding transformation used by the library, the PKCS5Padding transformation
+ * is used instead. SunJCE applies PKCS5Padding to the 16 byte AES blocks, so the result is identical.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class CryptoBackendJdk implements CryptoBackend {
+
+    @Override
+    public String getName() {
+        return "JDK";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return Security.getProvider("SunJCE") != null && Security.getProvider("SUN") != null;
+    }
+
+    @Override
+    public String getProviderName(CryptoPrimitiveFamily primitive) {
+        switch (primitive) {
+            case AES:
+            case HMAC:
+                return "SunJCE";
+            case DIGEST:
+                return "SUN";
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String getCipherTransformation(String transformation) {
+        if (transformation.endsWith("/PKCS7Padding")) {
+            return transformation.substring(0, transformation.length() - "PKCS7Padding".length()) + "PKCS5Padding";
+        }
+        return transformation;
+    }
+
+    @Override
+    public CryptoProviderUtil getCryptoProviderUtil() {
+        return null;
+    }
+
+}
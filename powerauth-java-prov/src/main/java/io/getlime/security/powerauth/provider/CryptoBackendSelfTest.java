@@ -0,0 +1,349 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Self-test and micro benchmark of crypto backends. The self-test verifies the primitives used by the library
+ * with known answer tests, the benchmark measures the time of a typical operation of each family of primitives.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public final class CryptoBackendSelfTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CryptoBackendSelfTest.class);
+
+    private static final int BENCHMARK_DATA_SIZE = 1024;
+
+    // SHA-256 test vector from FIPS 180-2
+    private static final byte[] SHA256_DATA = "abc".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SHA256_HASH = fromHex("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+
+    // HMAC-SHA256 test case 2 from RFC 4231
+    private static final byte[] HMAC_KEY = "Jefe".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HMAC_DATA = "what do ya want for nothing?".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HMAC_RESULT = fromHex("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843");
+
+    // PBKDF2-HMAC-SHA1 test case 2 from RFC 6070, truncated to the 128-bit key length used by the library
+    private static final char[] PBKDF2_PASSWORD = "password".toCharArray();
+    private static final byte[] PBKDF2_SALT = "salt".getBytes(StandardCharsets.US_ASCII);
+    private static final int PBKDF2_ITERATIONS = 2;
+    private static final byte[] PBKDF2_KEY = fromHex("ea6c014dc72d6f8ccd1ed92ace1d41f0");
+
+    // AES-128 CBC test vector from NIST SP 800-38A, F.2.1
+    private static final byte[] AES_KEY = fromHex("2b7e151628aed2a6abf7158809cf4f3c");
+    private static final byte[] AES_IV = fromHex("000102030405060708090a0b0c0d0e0f");
+    private static final byte[] AES_PLAINTEXT = fromHex("6bc1bee22e409f96e93d7e117393172a");
+    private static final byte[] AES_CIPHERTEXT = fromHex("7649abac8119b246cee98e9b12e9197d");
+
+    private CryptoBackendSelfTest() {
+    }
+
+    /**
+     * Operation with a family of primitives.
+     */
+    private interface Operation {
+        void run() throws GeneralSecurityException;
+    }
+
+    /**
+     * Verify that the backend correctly implements given family of primitives.
+     *
+     * @param backend Crypto backend.
+     * @param primitive Family of cryptographic primitives.
+     * @return True if the backend supports the family of primitives and passes the known answer tests.
+     */
+    public static boolean selfTest(CryptoBackend backend, CryptoPrimitiveFamily primitive) {
+        final String providerName = backend.isAvailable() ? backend.getProviderName(primitive) : null;
+        if (providerName == null) {
+            return false;
+        }
+        try {
+            switch (primitive) {
+                case EC:
+                    return selfTestEc(providerName, backend.getCryptoProviderUtil());
+                case AES:
+                    return selfTestAes(providerName, backend.getCipherTransformation("AES/CBC/PKCS7Padding"));
+                case HMAC:
+                    return selfTestHmac(providerName);
+                case DIGEST:
+                    return selfTestDigest(providerName);
+                default:
+                    return false;
+            }
+        } catch (Exception ex) {
+            // Any failure means that the backend cannot be used
+            logger.warn("Self-test of crypto backend {} for {} failed: {}", backend.getName(), primitive, ex.getMessage());
+            logger.debug(ex.getMessage(), ex);
+            return false;
+        }
+    }
+
+    /**
+     * Measure average time of a typical operation with given family of primitives. The operation is repeated
+     * for the warm up time first, then it is repeated for the measurement time.
+     *
+     * @param backend Crypto backend.
+     * @param primitive Family of cryptographic primitives.
+     * @param durationMillis Warm up time and measurement time in milliseconds.
+     * @return Average time of the operation in nanoseconds.
+     * @throws GeneralSecurityException In case the backend does not support the family of primitives or the operation fails.
+     */
+    public static double measure(CryptoBackend backend, CryptoPrimitiveFamily primitive, long durationMillis) throws GeneralSecurityException {
+        final String providerName = backend.getProviderName(primitive);
+        if (providerName == null) {
+            throw new NoSuchProviderException("Crypto backend " + backend.getName() + " does not support " + primitive);
+        }
+        final Operation operation = prepareOperation(backend, providerName, primitive);
+        final long durationNanos = TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        // Warm up
+        final long warmupStart = System.nanoTime();
+        while (System.nanoTime() - warmupStart < durationNanos) {
+            operation.run();
+        }
+        // Measurement
+        long count = 0;
+        final long start = System.nanoTime();
+        long elapsed;
+        do {
+            operation.run();
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < durationNanos);
+        return (double) elapsed / count;
+    }
+
+    /**
+     * Prepare a typical operation with given family of primitives.
+     *
+     * @param backend Crypto backend.
+     * @param providerName Name of the crypto provider.
+     * @param primitive Family of cryptographic primitives.
+     * @return Operation.
+     * @throws GeneralSecurityException In case the operation cannot be prepared.
+     */
+    private static Operation prepareOperation(CryptoBackend backend, String providerName, CryptoPrimitiveFamily primitive) throws GeneralSecurityException {
+        final byte[] data = new byte[BENCHMARK_DATA_SIZE];
+        new SecureRandom().nextBytes(data);
+        switch (primitive) {
+            case EC: {
+                // Key agreement and signature verification
+                final KeyPair keyPair1 = generateKeyPair(providerName);
+                final KeyPair keyPair2 = generateKeyPair(providerName);
+                final Signature signature = Signature.getInstance("SHA256withECDSA", providerName);
+                signature.initSign(keyPair1.getPrivate());
+                signature.update(data);
+                final byte[] signatureBytes = signature.sign();
+                final KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH", providerName);
+                return () -> {
+                    keyAgreement.init(keyPair1.getPrivate());
+                    keyAgreement.doPhase(keyPair2.getPublic(), true);
+                    keyAgreement.generateSecret();
+                    signature.initVerify(keyPair1.getPublic());
+                    signature.update(data);
+                    signature.verify(signatureBytes);
+                };
+            }
+            case AES: {
+                final Cipher cipher = Cipher.getInstance(backend.getCipherTransformation("AES/CBC/PKCS7Padding"), providerName);
+                final SecretKeySpec key = new SecretKeySpec(AES_KEY, "AES");
+                final IvParameterSpec iv = new IvParameterSpec(AES_IV);
+                return () -> {
+                    cipher.init(Cipher.ENCRYPT_MODE, key, iv);
+                    cipher.doFinal(data);
+                };
+            }
+            case HMAC: {
+                final Mac mac = Mac.getInstance("HmacSHA256", providerName);
+                final SecretKeySpec key = new SecretKeySpec(HMAC_KEY, "HmacSHA256");
+                return () -> {
+                    mac.init(key);
+                    mac.doFinal(data);
+                };
+            }
+            case DIGEST: {
+                final MessageDigest digest = MessageDigest.getInstance("SHA-256", providerName);
+                return () -> digest.digest(data);
+            }
+            default:
+                throw new NoSuchAlgorithmException("Unsupported family of primitives: " + primitive);
+        }
+    }
+
+    /**
+     * Test EC key pair generation, key conversion, ECDH key agreement and ECDSA signatures.
+     *
+     * @param providerName Name of the crypto provider.
+     * @param keyConvertor Key conversion utilities.
+     * @return True if the test passed.
+     * @throws Exception In case the test failed with an exception.
+     */
+    private static boolean selfTestEc(String providerName, CryptoProviderUtil keyConvertor) throws Exception {
+        if (keyConvertor == null) {
+            return false;
+        }
+        final KeyPair keyPair1 = generateKeyPair(providerName);
+        final KeyPair keyPair2 = generateKeyPair(providerName);
+
+        // Key conversion round trip
+        final byte[] publicKeyBytes = keyConvertor.convertPublicKeyToBytes(keyPair2.getPublic());
+        final byte[] privateKeyBytes = keyConvertor.convertPrivateKeyToBytes(keyPair1.getPrivate());
+        final PublicKey publicKey = keyConvertor.convertBytesToPublicKey(publicKeyBytes);
+        final PrivateKey privateKey = keyConvertor.convertBytesToPrivateKey(privateKeyBytes);
+        if (!Arrays.equals(publicKeyBytes, keyConvertor.convertPublicKeyToBytes(publicKey))) {
+            return false;
+        }
+
+        // Both parties compute the same shared secret, also with converted keys
+        final byte[] secret1 = agree(providerName, keyPair1.getPrivate(), keyPair2.getPublic());
+        final byte[] secret2 = agree(providerName, keyPair2.getPrivate(), keyPair1.getPublic());
+        final byte[] secret3 = agree(providerName, privateKey, publicKey);
+        if (secret1.length != 32 || !Arrays.equals(secret1, secret2) || !Arrays.equals(secret1, secret3)) {
+            return false;
+        }
+
+        // Signature is valid for the signed data only
+        final Signature signature = Signature.getInstance("SHA256withECDSA", providerName);
+        signature.initSign(privateKey);
+        signature.update(SHA256_DATA);
+        final byte[] signatureBytes = signature.sign();
+        signature.initVerify(keyPair1.getPublic());
+        signature.update(SHA256_DATA);
+        if (!signature.verify(signatureBytes)) {
+            return false;
+        }
+        signature.initVerify(keyPair1.getPublic());
+        signature.update(HMAC_DATA);
+        return !signature.verify(signatureBytes);
+    }
+
+    /**
+     * Test AES encryption and decryption in CBC mode with PKCS #7 padding.
+     *
+     * @param providerName Name of the crypto provider.
+     * @param transformation Cipher transformation supported by the provider, equivalent to "AES/CBC/PKCS7Padding".
+     * @return True if the test passed.
+     * @throws GeneralSecurityException In case the test failed with an exception.
+     */
+    private static boolean selfTestAes(String providerName, String transformation) throws GeneralSecurityException {
+        final Cipher cipher = Cipher.getInstance(transformation, providerName);
+        final SecretKeySpec key = new SecretKeySpec(AES_KEY, "AES");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(AES_IV));
+        final byte[] encrypted = cipher.doFinal(AES_PLAINTEXT);
+        // The first block matches the test vector, the second block contains the padding
+        if (encrypted.length != 32 || !Arrays.equals(AES_CIPHERTEXT, Arrays.copyOf(encrypted, 16))) {
+            return false;
+        }
+        cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(AES_IV));
+        if (!Arrays.equals(AES_PLAINTEXT, cipher.doFinal(encrypted))) {
+            return false;
+        }
+        // Status blob is encrypted without padding
+        final Cipher cipherNoPadding = Cipher.getInstance("AES/CBC/NoPadding", providerName);
+        cipherNoPadding.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(AES_IV));
+        return Arrays.equals(AES_CIPHERTEXT, cipherNoPadding.doFinal(AES_PLAINTEXT));
+    }
+
+    /**
+     * Test HMAC-SHA256 computation and PBKDF2 key derivation based on HMAC-SHA1.
+     *
+     * @param providerName Name of the crypto provider.
+     * @return True if the test passed.
+     * @throws GeneralSecurityException In case the test failed with an exception.
+     */
+    private static boolean selfTestHmac(String providerName) throws GeneralSecurityException {
+        final Mac mac = Mac.getInstance("HmacSHA256", providerName);
+        mac.init(new SecretKeySpec(HMAC_KEY, "HmacSHA256"));
+        if (!Arrays.equals(HMAC_RESULT, mac.doFinal(HMAC_DATA))) {
+            return false;
+        }
+        final SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1", providerName);
+        final byte[] key = skf.generateSecret(new PBEKeySpec(PBKDF2_PASSWORD, PBKDF2_SALT, PBKDF2_ITERATIONS, 128)).getEncoded();
+        return Arrays.equals(PBKDF2_KEY, key);
+    }
+
+    /**
+     * Test SHA-256 computation.
+     *
+     * @param providerName Name of the crypto provider.
+     * @return True if the test passed.
+     * @throws GeneralSecurityException In case the test failed with an exception.
+     */
+    private static boolean selfTestDigest(String providerName) throws GeneralSecurityException {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256", providerName);
+        return Arrays.equals(SHA256_HASH, digest.digest(SHA256_DATA));
+    }
+
+    /**
+     * Generate EC key pair on the secp256r1 curve.
+     *
+     * @param providerName Name of the crypto provider.
+     * @return New key pair.
+     * @throws GeneralSecurityException In case key pair generation fails.
+     */
+    private static KeyPair generateKeyPair(String providerName) throws GeneralSecurityException {
+        final KeyPairGenerator kpg = KeyPairGenerator.getInstance("ECDH", providerName);
+        kpg.initialize(new ECGenParameterSpec("secp256r1"));
+        return kpg.generateKeyPair();
+    }
+
+    /**
+     * Compute ECDH shared secret.
+     *
+     * @param providerName Name of the crypto provider.
+     * @param privateKey Private key.
+     * @param publicKey Public key.
+     * @return Shared secret.
+     * @throws GeneralSecurityException In case key agreement fails.
+     */
+    private static byte[] agree(String providerName, PrivateKey privateKey, PublicKey publicKey) throws GeneralSecurityException {
+        final KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH", providerName);
+        keyAgreement.init(privateKey);
+        keyAgreement.doPhase(publicKey, true);
+        return keyAgreement.generateSecret();
+    }
+
+    /**
+     * Decode hexadecimal string.
+     *
+     * @param hex Hexadecimal string.
+     * @return Decoded bytes.
+     */
+    private static byte[] fromHex(String hex) {
+        final byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return result;
+    }
+
+}
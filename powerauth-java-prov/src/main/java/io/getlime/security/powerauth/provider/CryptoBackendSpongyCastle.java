@@ -0,0 +1,48 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.provider;
+
+import java.security.Security;
+
+/**
+ * Crypto backend which uses Spongy Castle provider for all primitives.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public class CryptoBackendSpongyCastle implements CryptoBackend {
+
+    @Override
+    public String getName() {
+        return "SC";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return Security.getProvider("SC") != null;
+    }
+
+    @Override
+    public String getProviderName(CryptoPrimitiveFamily primitive) {
+        return "SC";
+    }
+
+    @Override
+    public CryptoProviderUtil getCryptoProviderUtil() {
+        return new CryptoProviderUtilsSpongyCastle();
+    }
+
+}
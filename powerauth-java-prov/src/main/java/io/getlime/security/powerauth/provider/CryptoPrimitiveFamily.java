@@ -0,0 +1,46 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.provider;
+
+/**
+ * Families of cryptographic primitives, for which a crypto provider can be selected independently.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+public enum CryptoPrimitiveFamily {
+
+    /**
+     * EC key pair generation, ECDH key agreement, ECDSA signatures and EC key conversion.
+     */
+    EC,
+
+    /**
+     * AES cipher.
+     */
+    AES,
+
+    /**
+     * HMAC and HMAC based key derivation.
+     */
+    HMAC,
+
+    /**
+     * Message digests.
+     */
+    DIGEST
+
+}
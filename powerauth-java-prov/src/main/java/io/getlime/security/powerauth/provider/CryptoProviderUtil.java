@@ -38,6 +38,29 @@ public interface CryptoProviderUtil {
      */
     String getProviderName();
 
+    /**
+     * Get the provider name for given family of primitives. By default, the provider returned by
+     * {@link #getProviderName()} is used for all primitives except message digests, which are looked up
+     * in the default provider list.
+     *
+     * @param primitive Family of cryptographic primitives.
+     * @return Name of the provider, or null in case the default provider list should be used.
+     */
+    default String getProviderName(CryptoPrimitiveFamily primitive) {
+        return primitive == CryptoPrimitiveFamily.DIGEST ? null : getProviderName();
+    }
+
+    /**
+     * Get cipher transformation supported by the provider of {@link CryptoPrimitiveFamily#AES} primitives, which is
+     * equivalent to given transformation. By default, the transformation is used unchanged.
+     *
+     * @param transformation Cipher transformation, for example "AES/CBC/PKCS7Padding".
+     * @return Equivalent cipher transformation supported by the provider.
+     */
+    default String getCipherTransformation(String transformation) {
+        return transformation;
+    }
+
     /**
      * Converts an EC public key to a byte array by encoding Q point parameter.
      *
@@ -17,7 +17,10 @@
 package io.getlime.security.powerauth.provider;
 
 import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
+import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
+import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPublicKey;
 import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,13 +28,19 @@ import org.slf4j.LoggerFactory;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.math.BigInteger;
-import java.security.*;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
-import java.security.spec.*;
+import java.security.spec.ECPoint;
+import java.security.spec.InvalidKeySpecException;
 
 /**
  * Crypto provider based on BouncyCastle crypto provider.
+ * <p>
+ * The secp256r1 curve parameters are resolved once, when the class is constructed. EC keys are constructed
+ * directly as Bouncy Castle key objects, which is equivalent to using the Bouncy Castle {@code KeyFactory},
+ * without looking up the factory and converting the curve parameters for each conversion.
  *
  * @author Petr Dvorak, petr@wultra.com
  * @author Roman Strobl, roman.strobl@wultra.com
@@ -40,6 +49,11 @@ public class CryptoProviderUtilBouncyCastle implements CryptoProviderUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(CryptoProviderUtilBouncyCastle.class);
 
+    /**
+     * Parameters of the secp256r1 curve, null in case the curve is not supported.
+     */
+    private final ECNamedCurveParameterSpec ecSpec = ECNamedCurveTable.getParameterSpec("secp256r1");
+
     /**
      * Get the provider name, for example "BC" for Bouncy Castle.
      *
@@ -58,13 +72,14 @@ public class CryptoProviderUtilBouncyCastle implements CryptoProviderUtil {
      * @throws CryptoProviderException When crypto provider is incorrectly initialized.
      */
     public byte[] convertPublicKeyToBytes(PublicKey publicKey) throws CryptoProviderException {
+        final ECNamedCurveParameterSpec ecSpec = getCurveParameterSpec();
+        if (publicKey instanceof BCECPublicKey) {
+            // Bouncy Castle key already holds the Q point
+            return ((BCECPublicKey) publicKey).getQ().getEncoded(false);
+        }
         // Extract public key point
         ECPoint ecPoint = ((ECPublicKey) publicKey).getW();
         // Create EC point using Bouncy Castle library
-        ECNamedCurveParameterSpec ecSpec = ECNamedCurveTable.getParameterSpec("secp256r1");
-        if (ecSpec == null) { // can happen with incorrectly initialized crypto provider.
-            throw new CryptoProviderException("Crypto provider does not support the secp256r1 curve");
-        }
         org.bouncycastle.math.ec.ECPoint point = ecSpec.getCurve().createPoint(ecPoint.getAffineX(), ecPoint.getAffineY());
         // Extract byte[] uncompressed representation
         return point.getEncoded(false);
@@ -72,7 +87,7 @@ public class CryptoProviderUtilBouncyCastle implements CryptoProviderUtil {
 
     /**
      * Converts byte array to an EC public key, by decoding the Q point (W in Java Security).
-     * parameter.
+     * parameter. The point is validated to be on the secp256r1 curve during decoding.
      *
      * @param keyBytes Bytes to be converted to EC public key.
      * @return An instance of the EC public key on success, or null on failure.
@@ -81,26 +96,15 @@ public class CryptoProviderUtilBouncyCastle implements CryptoProviderUtil {
      * @throws CryptoProviderException When crypto provider is incorrectly initialized.
      */
     public PublicKey convertBytesToPublicKey(byte[] keyBytes) throws InvalidKeySpecException, CryptoProviderException {
-        try {
-            // Decode EC point using Bouncy Castle and extract its coordinates
-            ECNamedCurveParameterSpec ecSpec = ECNamedCurveTable.getParameterSpec("secp256r1");
-            if (ecSpec == null) { // can happen with incorrectly initialized crypto provider.
-                throw new CryptoProviderException("Crypto provider does not support the secp256r1 curve");
-            }
-            org.bouncycastle.math.ec.ECPoint point = ecSpec.getCurve().decodePoint(keyBytes);
-            BigInteger x = point.getAffineXCoord().toBigInteger();
-            BigInteger y = point.getAffineYCoord().toBigInteger();
-
-            // Generate public key using Java security API
-            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC", getProviderName());
-            parameters.init(new ECGenParameterSpec("secp256r1"));
-            ECParameterSpec ecParameterSpec = parameters.getParameterSpec(ECParameterSpec.class);
-            ECPublicKeySpec ecPublicKeySpec = new ECPublicKeySpec(new ECPoint(x, y), ecParameterSpec);
-            return KeyFactory.getInstance("EC", getProviderName()).generatePublic(ecPublicKeySpec);
-        } catch (NoSuchAlgorithmException | InvalidParameterSpecException | NoSuchProviderException ex) {
-            logger.warn(ex.getMessage(), ex);
-            throw new CryptoProviderException(ex.getMessage(), ex);
+        final ECNamedCurveParameterSpec ecSpec = getCurveParameterSpec();
+        // Decode EC point using Bouncy Castle
+        final org.bouncycastle.math.ec.ECPoint point = ecSpec.getCurve().decodePoint(keyBytes);
+        if (point.isInfinity()) {
+            throw new InvalidKeySpecException("Public key is a point at infinity");
         }
+        // Construct the key in the same way as Bouncy Castle KeyFactory does
+        final org.bouncycastle.jce.spec.ECPublicKeySpec ecPublicKeySpec = new org.bouncycastle.jce.spec.ECPublicKeySpec(point, ecSpec);
+        return new BCECPublicKey("EC", ecPublicKeySpec, BouncyCastleProvider.CONFIGURATION);
     }
 
     /**
@@ -124,17 +128,11 @@ public class CryptoProviderUtilBouncyCastle implements CryptoProviderUtil {
      * @throws CryptoProviderException When crypto provider is incorrectly initialized.
      */
     public PrivateKey convertBytesToPrivateKey(byte[] keyBytes) throws InvalidKeySpecException, CryptoProviderException {
-        try {
-            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC", getProviderName());
-            parameters.init(new ECGenParameterSpec("secp256r1"));
-            ECParameterSpec ecParameterSpec = parameters.getParameterSpec(ECParameterSpec.class);
-            // Private key is stored including the sign bit as regular Java BigInteger representation
-            ECPrivateKeySpec ecPrivateKeySpec = new ECPrivateKeySpec(new BigInteger(keyBytes), ecParameterSpec);
-            return KeyFactory.getInstance("EC", getProviderName()).generatePrivate(ecPrivateKeySpec);
-        } catch (NoSuchAlgorithmException | InvalidParameterSpecException | NoSuchProviderException ex) {
-            logger.warn(ex.getMessage(), ex);
-            throw new CryptoProviderException(ex.getMessage(), ex);
-        }
+        final ECNamedCurveParameterSpec ecSpec = getCurveParameterSpec();
+        // Private key is stored including the sign bit as regular Java BigInteger representation
+        final org.bouncycastle.jce.spec.ECPrivateKeySpec ecPrivateKeySpec = new org.bouncycastle.jce.spec.ECPrivateKeySpec(new BigInteger(keyBytes), ecSpec);
+        // Construct the key in the same way as Bouncy Castle KeyFactory does
+        return new BCECPrivateKey("EC", ecPrivateKeySpec, BouncyCastleProvider.CONFIGURATION);
     }
 
     /**
@@ -159,4 +157,17 @@ public class CryptoProviderUtilBouncyCastle implements CryptoProviderUtil {
         return new SecretKeySpec(bytesSecretKey, "AES");
     }
 
+    /**
+     * Get parameters of the secp256r1 curve.
+     *
+     * @return Parameters of the secp256r1 curve.
+     * @throws CryptoProviderException When crypto provider does not support the secp256r1 curve.
+     */
+    private ECNamedCurveParameterSpec getCurveParameterSpec() throws CryptoProviderException {
+        if (ecSpec == null) { // can happen with incorrectly initialized crypto provider.
+            throw new CryptoProviderException("Crypto provider does not support the secp256r1 curve");
+        }
+        return ecSpec;
+    }
+
 }
@@ -0,0 +1,109 @@
+/*
+ * PowerAuth Crypto Library
+ * Copyright 2020 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.provider;
+
+import io.getlime.security.powerauth.provider.exception.CryptoProviderException;
+
+import javax.crypto.SecretKey;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Crypto provider utilities which use a different crypto provider for each family of primitives. Keys are
+ * converted by utilities of the backend selected for {@link CryptoPrimitiveFamily#EC} primitives.
+ *
+ * @author Petr Dvorak, petr@wultra.com
+ */
+final class CryptoProviderUtilComposite implements CryptoProviderUtil {
+
+    private final CryptoProviderUtil keyConvertor;
+    private final Map<CryptoPrimitiveFamily, String> providerNames;
+    private final CryptoBackend aesBackend;
+
+    /**
+     * Constructor with key conversion utilities and provider names.
+     *
+     * @param keyConvertor Utilities of the backend selected for EC primitives.
+     * @param providerNames Provider names for all families of primitives.
+     * @param aesBackend Backend selected for AES primitives, used for mapping of cipher transformations, null
+     *                   in case the transformations are used unchanged.
+     */
+    CryptoProviderUtilComposite(CryptoProviderUtil keyConvertor, Map<CryptoPrimitiveFamily, String> providerNames, CryptoBackend aesBackend) {
+        this.keyConvertor = keyConvertor;
+        this.providerNames = new EnumMap<>(providerNames);
+        this.aesBackend = aesBackend;
+    }
+
+    /**
+     * Get name of the provider of EC primitives.
+     *
+     * @return Name of the provider of EC primitives.
+     */
+    @Override
+    public String getProviderName() {
+        return providerNames.get(CryptoPrimitiveFamily.EC);
+    }
+
+    @Override
+    public String getProviderName(CryptoPrimitiveFamily primitive) {
+        return providerNames.get(primitive);
+    }
+
+    @Override
+    public String getCipherTransformation(String transformation) {
+        return aesBackend != null ? aesBackend.getCipherTransformation(transformation) : transformation;
+    }
+
+    @Override
+    public byte[] convertPublicKeyToBytes(PublicKey publicKey) throws CryptoProviderException {
+        return keyConvertor.convertPublicKeyToBytes(publicKey);
+    }
+
+    @Override
+    public PublicKey convertBytesToPublicKey(byte[] keyBytes) throws InvalidKeySpecException, CryptoProviderException {
+        return keyConvertor.convertBytesToPublicKey(keyBytes);
+    }
+
+    @Override
+    public byte[] convertPrivateKeyToBytes(PrivateKey privateKey) {
+        return keyConvertor.convertPrivateKeyToBytes(privateKey);
+    }
+
+    @Override
+    public PrivateKey convertBytesToPrivateKey(byte[] keyBytes) throws InvalidKeySpecException, CryptoProviderException {
+        return keyConvertor.convertBytesToPrivateKey(keyBytes);
+    }
+
+    @Override
+    public byte[] convertSharedSecretKeyToBytes(SecretKey sharedSecretKey) {
+        return keyConvertor.convertSharedSecretKeyToBytes(sharedSecretKey);
+    }
+
+    @Override
+    public SecretKey convertBytesToSharedSecretKey(byte[] bytesSecretKey) {
+        return keyConvertor.convertBytesToSharedSecretKey(bytesSecretKey);
+    }
+
+    @Override
+    public String toString() {
+        return "CryptoProviderUtilComposite" + providerNames;
+    }
+
+}
@@ -16,7 +16,13 @@
  */
 package io.getlime.security.powerauth.provider;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.GeneralSecurityException;
 import java.security.Security;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Factory class for building the correct crypto provider instances.
@@ -25,26 +31,237 @@ import java.security.Security;
  */
 public final class CryptoProviderUtilFactory {
 
-    private static CryptoProviderUtil utils;
+    private static final Logger logger = LoggerFactory.getLogger(CryptoProviderUtilFactory.class);
+
+    /**
+     * Default warm up time and measurement time for selection of the fastest crypto backends.
+     */
+    private static final long DEFAULT_MEASUREMENT_MILLIS = 50;
+
+    /**
+     * Number of measurement rounds for selection of the fastest crypto backends.
+     */
+    private static final int MEASUREMENT_ROUNDS = 3;
+
+    /**
+     * Order of measurement of families of primitives, the expensive EC primitives are measured last in each round.
+     */
+    private static final CryptoPrimitiveFamily[] MEASUREMENT_ORDER = {
+            CryptoPrimitiveFamily.DIGEST, CryptoPrimitiveFamily.HMAC, CryptoPrimitiveFamily.AES, CryptoPrimitiveFamily.EC
+    };
+
+    /**
+     * Families of primitives which are preferably implemented by the JDK providers.
+     */
+    private static final CryptoPrimitiveFamily[] JDK_PREFERRED = {
+            CryptoPrimitiveFamily.AES, CryptoPrimitiveFamily.HMAC, CryptoPrimitiveFamily.DIGEST
+    };
+
+    /**
+     * Shared instance of crypto provider utilities, published without locking.
+     */
+    private static final AtomicReference<CryptoProviderUtil> utils = new AtomicReference<>();
+
+    /**
+     * Return shared (singleton) instance of crypto provider utilities. EC primitives are implemented by Bouncy Castle,
+     * or Spongy Castle. AES, HMAC and SHA-256 primitives are implemented by the JDK providers, which use hardware
+     * accelerated intrinsics, in case the JDK backend is available and passes the self-test. Otherwise, Bouncy Castle,
+     * or Spongy Castle is used for all primitives.
+     * <p>
+     * The method does not use any locks, so that it does not block concurrent callers, nor pin virtual threads to
+     * their carrier threads. Concurrent first callers may create the utilities more than once, all callers receive
+     * the first published instance.
+     *
+     * @return Crypto provider utilities.
+     */
+    public static CryptoProviderUtil getCryptoProviderUtils() {
+        final CryptoProviderUtil current = utils.get();
+        if (current != null) {
+            return current;
+        }
+        final CryptoProviderUtil created = createCryptoProviderUtils();
+        return utils.compareAndSet(null, created) ? created : utils.get();
+    }
+
+    /**
+     * Create crypto provider utilities for the installed crypto providers.
+     *
+     * @return Crypto provider utilities.
+     */
+    private static CryptoProviderUtil createCryptoProviderUtils() {
+        final boolean hasBC = Security.getProvider("BC") != null;
+        final boolean hasSC = Security.getProvider("SC") != null;
+
+        final CryptoProviderUtil ecUtils;
+        if (hasBC) {
+            ecUtils = new CryptoProviderUtilBouncyCastle();
+        } else if (hasSC) {
+            ecUtils = new CryptoProviderUtilsSpongyCastle();
+        } else {
+            throw new IllegalStateException("Neither spongycastle, nor bouncycastle is installed!");
+        }
+        return preferJdkBackend(ecUtils);
+    }
+
+    /**
+     * Get available crypto backends. The backends are discovered using {@link ServiceLoader}, backends which
+     * are not available because their crypto provider is not installed are skipped.
+     *
+     * @return List of available crypto backends.
+     */
+    public static List<CryptoBackend> getCryptoBackends() {
+        final List<CryptoBackend> backends = new ArrayList<>();
+        for (CryptoBackend backend : ServiceLoader.load(CryptoBackend.class)) {
+            if (backend.isAvailable()) {
+                backends.add(backend);
+            }
+        }
+        return backends;
+    }
+
+    /**
+     * Build crypto provider utilities which use given crypto backends for families of primitives. Each selected
+     * backend is verified using {@link CryptoBackendSelfTest} before it is used. Families of primitives which are not
+     * present in the map use the backend selected for {@link CryptoPrimitiveFamily#EC} primitives.
+     *
+     * @param backendNames Map of families of primitives to names of crypto backends, backend for EC primitives is required.
+     * @return Crypto provider utilities.
+     * @throws IllegalStateException In case a backend is not available, or it does not pass the self-test.
+     */
+    public static CryptoProviderUtil getCryptoProviderUtils(Map<CryptoPrimitiveFamily, String> backendNames) {
+        final String ecBackendName = backendNames.get(CryptoPrimitiveFamily.EC);
+        if (ecBackendName == null) {
+            throw new IllegalStateException("Crypto backend for EC primitives is not specified");
+        }
+        final Map<String, CryptoBackend> backends = new HashMap<>();
+        for (CryptoBackend backend : getCryptoBackends()) {
+            backends.putIfAbsent(backend.getName(), backend);
+        }
+        final Map<CryptoPrimitiveFamily, CryptoBackend> selectedBackends = new EnumMap<>(CryptoPrimitiveFamily.class);
+        for (CryptoPrimitiveFamily primitive : CryptoPrimitiveFamily.values()) {
+            final String backendName = backendNames.getOrDefault(primitive, ecBackendName);
+            final CryptoBackend backend = backends.get(backendName);
+            if (backend == null) {
+                throw new IllegalStateException("Crypto backend " + backendName + " is not available");
+            }
+            if (!CryptoBackendSelfTest.selfTest(backend, primitive)) {
+                throw new IllegalStateException("Crypto backend " + backendName + " failed self-test for " + primitive);
+            }
+            selectedBackends.put(primitive, backend);
+        }
+        return createComposite(selectedBackends.get(CryptoPrimitiveFamily.EC).getCryptoProviderUtil(), selectedBackends);
+    }
 
     /**
-     * Return shared (singleton) instance of crypto provider utilities.
+     * Build crypto provider utilities which use the JDK backend for AES, HMAC and SHA-256 primitives, in case
+     * it is available and passes the self-test, and the provider of given utilities for all other primitives.
      *
+     * @param ecUtils Crypto provider utilities of the provider used for EC primitives.
      * @return Crypto provider utilities.
      */
-    public static synchronized CryptoProviderUtil getCryptoProviderUtils() {
-        if (utils == null) {
-            final boolean hasBC = Security.getProvider("BC") != null;
-            final boolean hasSC = Security.getProvider("SC") != null;
+    private static CryptoProviderUtil preferJdkBackend(CryptoProviderUtil ecUtils) {
+        final CryptoBackend jdkBackend = new CryptoBackendJdk();
+        if (!jdkBackend.isAvailable()) {
+            return ecUtils;
+        }
+        final Map<CryptoPrimitiveFamily, CryptoBackend> selectedBackends = new EnumMap<>(CryptoPrimitiveFamily.class);
+        for (CryptoPrimitiveFamily primitive : JDK_PREFERRED) {
+            if (CryptoBackendSelfTest.selfTest(jdkBackend, primitive)) {
+                selectedBackends.put(primitive, jdkBackend);
+            }
+        }
+        if (selectedBackends.isEmpty()) {
+            return ecUtils;
+        }
+        return createComposite(ecUtils, selectedBackends);
+    }
 
-            if (hasBC) {
-                utils = new CryptoProviderUtilBouncyCastle();
-            } else if (hasSC) {
-                utils = new CryptoProviderUtilsSpongyCastle();
-            } else {
-                throw new IllegalStateException("Neither spongycastle, nor bouncycastle is installed!");
+    /**
+     * Build crypto provider utilities from backends selected for families of primitives. Families of primitives
+     * without a selected backend use the provider of given key conversion utilities.
+     *
+     * @param keyConvertor Crypto provider utilities of the provider used for EC primitives.
+     * @param selectedBackends Backends selected for families of primitives.
+     * @return Crypto provider utilities.
+     */
+    private static CryptoProviderUtil createComposite(CryptoProviderUtil keyConvertor, Map<CryptoPrimitiveFamily, CryptoBackend> selectedBackends) {
+        final Map<CryptoPrimitiveFamily, String> providerNames = new EnumMap<>(CryptoPrimitiveFamily.class);
+        for (CryptoPrimitiveFamily primitive : CryptoPrimitiveFamily.values()) {
+            final CryptoBackend backend = selectedBackends.get(primitive);
+            providerNames.put(primitive, backend != null ? backend.getProviderName(primitive) : keyConvertor.getProviderName(primitive));
+        }
+        return new CryptoProviderUtilComposite(keyConvertor, providerNames, selectedBackends.get(CryptoPrimitiveFamily.AES));
+    }
+
+    /**
+     * Select the fastest crypto backend for each family of primitives on the current machine, using the default
+     * measurement time. See {@link #selectFastestBackends(long)}.
+     *
+     * @return Map of families of primitives to names of the fastest crypto backends.
+     * @throws IllegalStateException In case no available backend passes the self-test for a family of primitives.
+     */
+    public static Map<CryptoPrimitiveFamily, String> selectFastestBackends() {
+        return selectFastestBackends(DEFAULT_MEASUREMENT_MILLIS);
+    }
+
+    /**
+     * Select the fastest crypto backend for each family of primitives on the current machine. All available
+     * backends are self-tested and the backends which pass the self-test are measured in several rounds using
+     * {@link CryptoBackendSelfTest#measure(CryptoBackend, CryptoPrimitiveFamily, long)}. The best measured times and
+     * the selected backends are logged. The result can be passed to {@link #getCryptoProviderUtils(Map)}.
+     *
+     * @param measurementMillis Warm up time and measurement time of each backend in each round, in milliseconds.
+     * @return Map of families of primitives to names of the fastest crypto backends.
+     * @throws IllegalStateException In case no available backend passes the self-test for a family of primitives.
+     */
+    public static Map<CryptoPrimitiveFamily, String> selectFastestBackends(long measurementMillis) {
+        final List<CryptoBackend> backends = getCryptoBackends();
+        final Map<CryptoPrimitiveFamily, List<CryptoBackend>> candidates = new EnumMap<>(CryptoPrimitiveFamily.class);
+        final Map<CryptoPrimitiveFamily, double[]> times = new EnumMap<>(CryptoPrimitiveFamily.class);
+        for (CryptoPrimitiveFamily primitive : CryptoPrimitiveFamily.values()) {
+            final List<CryptoBackend> primitiveCandidates = new ArrayList<>();
+            for (CryptoBackend backend : backends) {
+                if (CryptoBackendSelfTest.selfTest(backend, primitive)) {
+                    primitiveCandidates.add(backend);
+                }
+            }
+            if (primitiveCandidates.isEmpty()) {
+                throw new IllegalStateException("No crypto backend is available for " + primitive);
+            }
+            candidates.put(primitive, primitiveCandidates);
+            final double[] primitiveTimes = new double[primitiveCandidates.size()];
+            Arrays.fill(primitiveTimes, Double.MAX_VALUE);
+            times.put(primitive, primitiveTimes);
+        }
+        // All candidates are measured in several rounds and the best time is used, so that the results are not
+        // distorted by JIT compilation, which is triggered mostly during the first round
+        for (int round = 0; round < MEASUREMENT_ROUNDS; round++) {
+            for (CryptoPrimitiveFamily primitive : MEASUREMENT_ORDER) {
+                final List<CryptoBackend> primitiveCandidates = candidates.get(primitive);
+                final double[] primitiveTimes = times.get(primitive);
+                for (int i = 0; i < primitiveCandidates.size(); i++) {
+                    try {
+                        primitiveTimes[i] = Math.min(primitiveTimes[i], CryptoBackendSelfTest.measure(primitiveCandidates.get(i), primitive, measurementMillis));
+                    } catch (GeneralSecurityException ex) {
+                        logger.warn(ex.getMessage(), ex);
+                    }
+                }
+            }
+        }
+        final Map<CryptoPrimitiveFamily, String> result = new EnumMap<>(CryptoPrimitiveFamily.class);
+        for (CryptoPrimitiveFamily primitive : CryptoPrimitiveFamily.values()) {
+            final List<CryptoBackend> primitiveCandidates = candidates.get(primitive);
+            final double[] primitiveTimes = times.get(primitive);
+            int fastest = 0;
+            for (int i = 0; i < primitiveCandidates.size(); i++) {
+                logger.info("Crypto backend {} for {}: {} ns/op", primitiveCandidates.get(i).getName(), primitive, Math.round(primitiveTimes[i]));
+                if (primitiveTimes[i] < primitiveTimes[fastest]) {
+                    fastest = i;
+                }
             }
+            result.put(primitive, primitiveCandidates.get(fastest).getName());
         }
-        return utils;
+        logger.info("Fastest crypto backends: {}", result);
+        return result;
     }
 }